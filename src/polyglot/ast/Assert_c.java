@@ -120,7 +120,7 @@ public class Assert_c extends Stmt_c implements Assert {
     public Node typeCheck(TypeChecker tc) throws SemanticException {
         TypeSystem ts = tc.typeSystem();
 
-        if (!Options.global.assertions) {
+        if (!Options.global().assertions) {
             ErrorQueue eq = tc.errorQueue();
             eq.enqueue(
                     ErrorInfo.WARNING,
@@ -185,7 +185,7 @@ public class Assert_c extends Stmt_c implements Assert {
 
     @Override
     public void translate(CodeWriter w, Translator tr) {
-        if (!Options.global.assertions) {
+        if (!Options.global().assertions) {
             w.write(";");
         } else {
             tr.lang().prettyPrint(this, w, tr);
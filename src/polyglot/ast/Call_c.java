@@ -551,6 +551,7 @@ public class Call_c extends Expr_c implements Call, CallOps {
         c = methodInstance(c, null);
         if (isTargetImplicit()) {
             c = target(c, null);
+            c = targetImplicit(c, true);
         }
         return c;
     }
@@ -26,6 +26,8 @@
 
 package polyglot.ast;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.util.ArrayList;
@@ -71,6 +73,15 @@ public abstract class Node_c implements Node {
     protected Ext ext;
     protected boolean error;
 
+    /**
+     * Is {@code ext} still the extension object of the node this node was
+     * copied from?  The extension objects of a copy are themselves copied
+     * only when first asked for, so copies that are replaced before anyone
+     * looks at their extensions, as when several setters are chained, share
+     * the extensions of the original instead of copying them.
+     */
+    protected transient boolean extShared;
+
     @Deprecated
     public Node_c(Position pos) {
         this(pos, null);
@@ -138,6 +149,12 @@ public abstract class Node_c implements Node {
 
     @Override
     public Ext ext() {
+        if (extShared) {
+            extShared = false;
+            ext = ext.copy();
+            ext.init(this);
+            ext.initPred(this);
+        }
         return ext;
     }
 
@@ -149,7 +166,9 @@ public abstract class Node_c implements Node {
         }
 
         Ext old = this.ext;
+        boolean oldShared = this.extShared;
         this.ext = null;
+        this.extShared = false;
 
         Node_c n = (Node_c) copy();
 
@@ -161,6 +180,7 @@ public abstract class Node_c implements Node {
         }
 
         this.ext = old;
+        this.extShared = oldShared;
 
         return n;
     }
@@ -177,11 +197,8 @@ public abstract class Node_c implements Node {
                 n.del.init(n);
             }
 
-            if (ext != null) {
-                n.ext = ext.copy();
-                n.ext.init(n);
-                n.ext.initPred(n);
-            }
+            // The extension objects are copied by ext() when first needed.
+            n.extShared = ext != null;
 
             return n;
         } catch (CloneNotSupportedException e) {
@@ -189,6 +206,18 @@ public abstract class Node_c implements Node {
         }
     }
 
+    @SuppressWarnings("unused")
+    private static final long writeObjectVersionUID = 1L;
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // If you update this method in an incompatible way, increment
+        // writeObjectVersionUID.
+
+        // Give the node its own extension objects before writing them.
+        ext();
+        out.defaultWriteObject();
+    }
+
     protected <N extends Node> N copyIfNeeded(N n) {
         if (n == this) n = Copy.Util.copy(n);
         return n;
@@ -298,21 +327,24 @@ public abstract class Node_c implements Node {
             return null;
         }
 
-        List<T> result = l;
-        List<T> vl = new ArrayList<>(l.size());
+        // The list is shared with the result unless a child changes, in
+        // which case the children visited so far are copied into a new list.
+        List<T> vl = null;
+        int i = 0;
 
         for (T n : l) {
             T m = visitChild(n, v);
-            if (n != m) {
-                result = vl;
+            if (vl == null && n != m) {
+                vl = new ArrayList<>(l.size());
+                vl.addAll(l.subList(0, i));
             }
-            if (m != null) {
-                T t = m;
-                vl.add(t);
+            if (vl != null && m != null) {
+                vl.add(m);
             }
+            i++;
         }
 
-        return result;
+        return vl == null ? l : vl;
     }
 
     @Override
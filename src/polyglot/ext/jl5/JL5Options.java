@@ -43,7 +43,9 @@ public class JL5Options extends Options {
     public boolean morePermissiveInference;
     public boolean morePermissiveCasts;
     public boolean skip524checks;
+    public boolean incremental524checks;
     public boolean leaveCovariantReturns;
+    public boolean noFusion;
 
     public JL5Options(ExtensionInfo extension) {
         super(extension);
@@ -94,11 +96,22 @@ public class JL5Options extends Options {
                         Kind.SECRET,
                         new String[] {"-skip524checks", "--skip524checks"},
                         "Don't type check the result of removeJava5isms"));
+        flags.add(
+                new Switch(
+                        new String[] {"-incremental524checks", "--incremental524checks"},
+                        "With removeJava5isms, skip the flow checks of the methods and"
+                                + " constructors the translation leaves unchanged; pays off"
+                                + " only when their bodies are large"));
         flags.add(
                 new Switch(
                         Kind.SECRET,
                         new String[] {"-leaveCovariantReturns", "--leaveCovariantReturns"},
                         "With removeJava5isms, does not translate away covariant returns"));
+        flags.add(
+                new Switch(
+                        Kind.SECRET,
+                        new String[] {"-nofusion", "--nofusion"},
+                        "With removeJava5isms, run each desugaring pass as a separate traversal"));
         flags.add(
                 new Switch(
                         new String[] {"-morepermissiveinference", "--morepermissiveinference"},
@@ -127,8 +140,12 @@ public class JL5Options extends Options {
             this.morePermissiveCasts = (Boolean) arg.value();
         } else if (arg.flag().ids().contains("-skip524checks")) {
             this.skip524checks = (Boolean) arg.value();
+        } else if (arg.flag().ids().contains("-incremental524checks")) {
+            this.incremental524checks = (Boolean) arg.value();
         } else if (arg.flag().ids().contains("-leaveCovariantReturns")) {
             this.leaveCovariantReturns = (Boolean) arg.value();
+        } else if (arg.flag().ids().contains("-nofusion")) {
+            this.noFusion = (Boolean) arg.value();
         } else super.handleArg(arg);
     }
 }
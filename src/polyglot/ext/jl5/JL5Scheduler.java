@@ -25,8 +25,12 @@
  ******************************************************************************/
 package polyglot.ext.jl5;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import polyglot.ast.NodeFactory;
 import polyglot.ext.jl5.translate.JL5ToJLRewriter;
+import polyglot.ext.jl5.translate.MemberSnapshot;
 import polyglot.ext.jl5.types.JL5TypeSystem;
 import polyglot.ext.jl5.visit.AnnotationChecker;
 import polyglot.ext.jl5.visit.AutoBoxer;
@@ -192,6 +196,9 @@ public class JL5Scheduler extends JLScheduler {
         Goal g = new VisitorGoal(job, new RemoveStaticImports(job, ts, nf));
         try {
             g.addPrerequisiteGoal(PreRemoveJava5isms(job), this);
+            // Static imports have always been removed after the type-directed
+            // rewrites; keep them there when goals are fused.
+            g.addPrerequisiteGoal(TypeErasureProcDecls(job), this);
         } catch (CyclicDependencyException e) {
             throw new InternalCompilerError(e);
         }
@@ -218,36 +225,79 @@ public class JL5Scheduler extends JLScheduler {
             g.addPrerequisiteGoal(AnnotationCheck(job), this);
             // make sure we serialize before we start changing things.
             g.addPrerequisiteGoal(Serialized(job), this);
+            if (incremental524checks()) {
+                g.addPrerequisiteGoal(MembersRecorded(job), this);
+            }
         } catch (CyclicDependencyException e) {
             throw new InternalCompilerError(e);
         }
         return internGoal(g);
     }
 
+    /**
+     * Record the members of the AST of {@code job} before Java 5 features are
+     * removed, so that only the members changed by the removal are checked
+     * again.
+     */
+    public Goal MembersRecorded(Job job) {
+        Goal g =
+                internGoal(
+                        new VisitorGoal(
+                                job, new MemberSnapshot(job, extInfo.nodeFactory().lang())));
+        try {
+            g.addPrerequisiteGoal(TypeChecked(job), this);
+            g.addPrerequisiteGoal(AnnotationCheck(job), this);
+            g.addPrerequisiteGoal(Serialized(job), this);
+        } catch (CyclicDependencyException e) {
+            throw new InternalCompilerError(e);
+        }
+        return g;
+    }
+
+    protected boolean incremental524checks() {
+        Options opts = extInfo.getOptions();
+        return opts instanceof JL5Options && ((JL5Options) opts).incremental524checks;
+    }
+
     public Goal RemoveJava5isms(Job job) {
         Options opts = extInfo.getOptions();
         boolean typecheckResult =
                 !(opts instanceof JL5Options && ((JL5Options) opts).skip524checks);
+        MemberSnapshot snapshot =
+                incremental524checks()
+                        ? (MemberSnapshot) ((VisitorGoal) MembersRecorded(job)).visitor()
+                        : null;
         Goal g =
                 typecheckResult
                         ? internGoal(
                                 new VisitorGoal(
                                         job,
                                         new JL5ToJLRewriter(
-                                                job, extInfo, extInfo.outputExtensionInfo())))
+                                                job,
+                                                extInfo,
+                                                extInfo.outputExtensionInfo(),
+                                                snapshot)))
                         : new EmptyGoal(job, "RemoveJava5isms");
         try {
             g.addPrerequisiteGoal(PreRemoveJava5isms(job), this);
-            g.addPrerequisiteGoal(CastsInserted(job), this);
-            g.addPrerequisiteGoal(TypeErasureProcDecls(job), this);
-            g.addPrerequisiteGoal(RemoveVarArgs(job), this);
-            g.addPrerequisiteGoal(AutoBoxing(job), this);
-            g.addPrerequisiteGoal(RemoveEnums(job), this);
-            g.addPrerequisiteGoal(RemoveVarArgsFlags(job), this);
-            g.addPrerequisiteGoal(RemoveExtendedFors(job), this);
-            g.addPrerequisiteGoal(RemoveStaticImports(job), this);
-            g.addPrerequisiteGoal(RemoveAnnotations(job), this);
-
+            List<Goal> passes = new ArrayList<>();
+            passes.add(CastsInserted(job));
+            passes.add(TypeErasureProcDecls(job));
+            passes.add(RemoveVarArgs(job));
+            passes.add(SimplifyExpressionsForBoxing(job));
+            passes.add(AutoBoxing(job));
+            passes.add(RemoveEnums(job));
+            passes.add(RemoveVarArgsFlags(job));
+            passes.add(RemoveExtendedFors(job));
+            passes.add(RemoveStaticImports(job));
+            passes.add(RemoveAnnotations(job));
+            if (!(opts instanceof JL5Options && ((JL5Options) opts).noFusion)) {
+                // Run independent desugarings in shared traversals.
+                passes = fuse(passes);
+            }
+            for (Goal pass : passes) {
+                g.addPrerequisiteGoal(pass, this);
+            }
         } catch (CyclicDependencyException e) {
             throw new InternalCompilerError(e);
         }
@@ -25,21 +25,84 @@
  ******************************************************************************/
 package polyglot.ext.jl5.translate;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import polyglot.ast.Block;
+import polyglot.ast.ConstructorCall;
+import polyglot.ast.Node;
+import polyglot.ast.NodeFactory;
+import polyglot.ast.ProcedureDecl;
+import polyglot.ast.Stmt;
 import polyglot.ast.TypeNode;
 import polyglot.ext.jl5.types.JL5TypeSystem;
 import polyglot.ext.jl5.types.inference.LubType;
 import polyglot.frontend.ExtensionInfo;
 import polyglot.frontend.Job;
 import polyglot.translate.ExtensionRewriter;
+import polyglot.translate.JLOutputExtensionInfo;
+import polyglot.types.SemanticException;
 import polyglot.types.Type;
 import polyglot.util.Position;
+import polyglot.visit.NodeVisitor;
 
 public class JL5ToJLRewriter extends ExtensionRewriter {
     protected final JL5TypeSystem jl5ts;
 
+    /**
+     * The members of the AST before Java 5 features were removed, or null
+     * if the whole translated AST is checked.
+     */
+    protected final MemberSnapshot snapshot;
+
     public JL5ToJLRewriter(Job job, ExtensionInfo from_ext, ExtensionInfo to_ext) {
+        this(job, from_ext, to_ext, null);
+    }
+
+    /**
+     * Create a rewriter that elides from the translated AST the bodies of
+     * the methods and constructors that are unchanged since
+     * {@code snapshot} was taken, so that only the changed members are
+     * checked again by the output extension.
+     */
+    public JL5ToJLRewriter(
+            Job job, ExtensionInfo from_ext, ExtensionInfo to_ext, MemberSnapshot snapshot) {
         super(job, from_ext, to_ext);
         jl5ts = (JL5TypeSystem) from_ext.typeSystem();
+        this.snapshot = to_ext instanceof JLOutputExtensionInfo ? snapshot : null;
+    }
+
+    @Override
+    public Node leaveCall(Node old, Node n, NodeVisitor v) throws SemanticException {
+        n = super.leaveCall(old, n, v);
+        if (snapshot != null && snapshot.unchanged(old) && n instanceof ProcedureDecl) {
+            ProcedureDecl pd = (ProcedureDecl) n;
+            if (pd.body() != null) return pd.body(stub(pd.body()));
+        }
+        return n;
+    }
+
+    @Override
+    public void finish(Node ast) {
+        // The goals keep the snapshot, but not the AST it was taken of.
+        if (snapshot != null) snapshot.release();
+        super.finish(ast);
+    }
+
+    /**
+     * Replace an unchanged body with a stub that is well-formed wherever the
+     * body was: it keeps the explicit constructor call, if any, and then
+     * completes abruptly.
+     */
+    protected Block stub(Block body) {
+        NodeFactory nf = to_nf();
+        Position pos = body.position();
+        List<Stmt> stmts = new ArrayList<>(2);
+        if (!body.statements().isEmpty() && body.statements().get(0) instanceof ConstructorCall) {
+            stmts.add(body.statements().get(0));
+        }
+        stmts.add(nf.Throw(pos, nf.NullLit(pos)));
+        return ((JLOutputExtensionInfo) to_ext).elideBody(nf.Block(pos, stmts), body);
     }
 
     @Override
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.ext.jl5.translate;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import polyglot.ast.Expr;
+import polyglot.ast.Lang;
+import polyglot.ast.Node;
+import polyglot.ast.ProcedureDecl;
+import polyglot.frontend.Job;
+import polyglot.visit.NodeVisitor;
+
+/**
+ * Records the method and constructor declarations of an AST before Java 5
+ * features are removed from it.  Since AST nodes are rebuilt whenever one
+ * of their children changes, a declaration that is still present, by
+ * identity, after the removal passes has not been changed by them.
+ */
+public class MemberSnapshot extends NodeVisitor {
+    protected Job job;
+    protected Set<Node> members;
+
+    /** True if the job is pinned to keep the recorded members in memory. */
+    protected boolean pinned;
+
+    public MemberSnapshot(Job job, Lang lang) {
+        super(lang);
+        this.job = job;
+        members = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+    }
+
+    @Override
+    public NodeVisitor begin() {
+        // The members are kept by identity, so the AST must not be spilled
+        // until the snapshot is released.
+        if (!pinned) {
+            job.pin();
+            pinned = true;
+        }
+        return super.begin();
+    }
+
+    /**
+     * Return true if {@code n} is a method or constructor declaration that
+     * was in the AST when the snapshot was taken.
+     */
+    public boolean unchanged(Node n) {
+        return members.contains(n);
+    }
+
+    /**
+     * Forget the recorded members once the removal passes have compared
+     * against them.  Members are unchanged only relative to the AST the
+     * snapshot was taken of, so nothing is considered unchanged afterwards.
+     */
+    public void release() {
+        members = Collections.emptySet();
+        if (pinned) {
+            job.unpin();
+            pinned = false;
+        }
+    }
+
+    @Override
+    public Node override(Node parent, Node n) {
+        if (n instanceof ProcedureDecl) {
+            // Local classes are part of the enclosing member.
+            members.add(n);
+            return n;
+        }
+        // Members of anonymous classes are part of the enclosing expression.
+        if (n instanceof Expr) return n;
+        return null;
+    }
+}
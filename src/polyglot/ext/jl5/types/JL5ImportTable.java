@@ -27,6 +27,7 @@ package polyglot.ext.jl5.types;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import polyglot.types.ClassType;
 import polyglot.types.ImportTable;
@@ -44,8 +45,8 @@ public class JL5ImportTable extends ImportTable {
     protected ArrayList<String> singleStaticImports;
     protected ArrayList<String> staticOnDemandImports;
 
-    public int id = counter++;
-    private static int counter = 0;
+    public int id = counter.getAndIncrement();
+    private static final AtomicInteger counter = new AtomicInteger();
 
     public JL5ImportTable(TypeSystem ts, polyglot.types.Package pkg, String src) {
         super(ts, pkg, src);
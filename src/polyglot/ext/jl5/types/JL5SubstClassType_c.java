@@ -285,7 +285,7 @@ public class JL5SubstClassType_c extends SubstClassType_c<TypeVariable, Referenc
             }
 
             // Use the short name if it is unique.
-            else if (c != null && !Options.global.fully_qualified_names) {
+            else if (c != null && !Options.global().fully_qualified_names) {
                 try {
                     Named x = c.find(ct.name());
 
@@ -308,7 +308,7 @@ public class JL5SubstClassType_c extends SubstClassType_c<TypeVariable, Referenc
 
             // Use the short name if it is unique and not an inner class
             // whose containing class does not descend from outer class.
-            else if (c != null && !Options.global.fully_qualified_names) {
+            else if (c != null && !Options.global().fully_qualified_names) {
                 boolean toTry = true;
                 if (ct.isInnerClass() && c instanceof Context) {
                     JL5TypeSystem ts = (JL5TypeSystem) typeSystem();
@@ -368,7 +368,7 @@ public class JL5SubstClassType_c extends SubstClassType_c<TypeVariable, Referenc
             }
 
             // Use the short name if it is unique.
-            if (c != null && !Options.global.fully_qualified_names) {
+            if (c != null && !Options.global().fully_qualified_names) {
                 try {
                     Named x = c.find(name());
 
@@ -148,7 +148,8 @@ public class JL5Subst_c extends Subst_c<TypeVariable, ReferenceType> implements
                 return pct;
             }
 
-            return new JL5SubstClassType_c(ts, t.position(), pct, this);
+            // The position is that of pct, so every equal instance has it.
+            return ts.intern(new JL5SubstClassType_c(ts, t.position(), pct, this));
         }
 
         throw new InternalCompilerError("Don't know how to handle class type " + t.getClass());
@@ -2057,7 +2057,11 @@ public class JL5TypeSystem_c extends ParamTypeSystem_c<TypeVariable, ReferenceTy
         if (upperBound == null) {
             upperBound = Object();
         }
-        return new WildCardType_c(this, position, upperBound, lowerBound);
+        // The wildcard returned may have the position of an equal wildcard
+        // created earlier.  Wildcard positions are only passed on to the
+        // variables that capture them, which only report internal errors
+        // at them.
+        return intern(new WildCardType_c(this, position, upperBound, lowerBound));
     }
 
     public CaptureConvertedWildCardType captureConvertedWildCardType(Position pos) {
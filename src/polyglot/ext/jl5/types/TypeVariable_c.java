@@ -29,6 +29,7 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import polyglot.types.ClassType;
 import polyglot.types.FieldInstance;
@@ -71,7 +72,7 @@ public class TypeVariable_c extends ReferenceType_c implements TypeVariable {
      */
     protected transient Long syntheticUniqueId;
 
-    private static long idCount = 1;
+    private static final AtomicLong idCount = new AtomicLong(1);
 
     /**
      * The upper bound of this type variable. Should always be non-null.
@@ -94,7 +95,7 @@ public class TypeVariable_c extends ReferenceType_c implements TypeVariable {
             upperBound = ts.Object();
         }
         this.upperBound = upperBound;
-        this.syntheticUniqueId = Long.valueOf(idCount++);
+        this.syntheticUniqueId = Long.valueOf(idCount.getAndIncrement());
     }
 
     @Override
@@ -41,12 +41,13 @@ import polyglot.types.Flags;
 import polyglot.types.SemanticException;
 import polyglot.types.TypeSystem;
 import polyglot.visit.ContextVisitor;
+import polyglot.visit.FusibleVisitor;
 import polyglot.visit.NodeVisitor;
 
 /**
  * Remove annotations
  */
-public class RemoveAnnotations extends ContextVisitor {
+public class RemoveAnnotations extends ContextVisitor implements FusibleVisitor {
     public RemoveAnnotations(Job job, TypeSystem ts, NodeFactory nf) {
         super(job, ts, nf);
     }
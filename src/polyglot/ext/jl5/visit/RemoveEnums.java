@@ -634,9 +634,11 @@ public class RemoveEnums extends ContextVisitor {
             int index = findEnumConstIndex(enumType, field);
             Stmt s =
                     qq.parseStmt(
-                            "if (%E == %T." + field.name() + ") return " + index + ";",
+                            "if (%E == %T.%s) return %E;",
                             nodeFactory().Local(pos, arg).localInstance(argLI).type(enumType),
-                            enumType);
+                            enumType,
+                            field.name(),
+                            nodeFactory().IntLit(pos, IntLit.INT, index));
             stmts.add(s);
         }
 
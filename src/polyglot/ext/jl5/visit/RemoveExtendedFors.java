@@ -57,12 +57,13 @@ import polyglot.types.Type;
 import polyglot.types.TypeSystem;
 import polyglot.util.Position;
 import polyglot.visit.ContextVisitor;
+import polyglot.visit.FusibleVisitor;
 import polyglot.visit.NodeVisitor;
 
 /**
  * Translate enums to Java 1.4 language features.
  */
-public class RemoveExtendedFors extends ContextVisitor {
+public class RemoveExtendedFors extends ContextVisitor implements FusibleVisitor {
     public RemoveExtendedFors(Job job, TypeSystem ts, NodeFactory nf) {
         super(job, ts, nf);
     }
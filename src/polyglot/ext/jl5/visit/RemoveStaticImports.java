@@ -43,12 +43,13 @@ import polyglot.types.MethodInstance;
 import polyglot.types.SemanticException;
 import polyglot.types.TypeSystem;
 import polyglot.visit.ContextVisitor;
+import polyglot.visit.FusibleVisitor;
 import polyglot.visit.NodeVisitor;
 
 /**
  * Remove static imports
  */
-public class RemoveStaticImports extends ContextVisitor {
+public class RemoveStaticImports extends ContextVisitor implements FusibleVisitor {
     public RemoveStaticImports(Job job, TypeSystem ts, NodeFactory nf) {
         super(job, ts, nf);
     }
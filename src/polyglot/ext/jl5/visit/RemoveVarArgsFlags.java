@@ -34,9 +34,10 @@ import polyglot.ast.NodeFactory;
 import polyglot.ext.jl5.types.JL5Flags;
 import polyglot.frontend.Job;
 import polyglot.types.TypeSystem;
+import polyglot.visit.FusibleVisitor;
 import polyglot.visit.NodeVisitor;
 
-public class RemoveVarArgsFlags extends NodeVisitor {
+public class RemoveVarArgsFlags extends NodeVisitor implements FusibleVisitor {
 
     public RemoveVarArgsFlags(Job job, TypeSystem ts, NodeFactory nf) {
         super(nf.lang());
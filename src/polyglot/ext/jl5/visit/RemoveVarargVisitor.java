@@ -50,8 +50,9 @@ import polyglot.types.TypeSystem;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.Position;
 import polyglot.visit.ErrorHandlingVisitor;
+import polyglot.visit.FusibleVisitor;
 
-public class RemoveVarargVisitor extends ErrorHandlingVisitor {
+public class RemoveVarargVisitor extends ErrorHandlingVisitor implements FusibleVisitor {
 
     public RemoveVarargVisitor(Job job, TypeSystem ts, NodeFactory nf) {
         super(job, ts, nf);
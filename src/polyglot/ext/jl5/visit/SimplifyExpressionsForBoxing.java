@@ -46,6 +46,7 @@ import polyglot.types.Type;
 import polyglot.types.TypeSystem;
 import polyglot.util.InternalCompilerError;
 import polyglot.visit.DeepCopy;
+import polyglot.visit.FusibleVisitor;
 import polyglot.visit.HaltingVisitor;
 import polyglot.visit.NodeVisitor;
 
@@ -53,7 +54,7 @@ import polyglot.visit.NodeVisitor;
  * Simplify some expressions for the later analyses. Actually, this is a kitchen-sink
  * clean up pass...
  */
-public class SimplifyExpressionsForBoxing extends HaltingVisitor {
+public class SimplifyExpressionsForBoxing extends HaltingVisitor implements FusibleVisitor {
     NodeFactory nf;
     TypeSystem ts;
 
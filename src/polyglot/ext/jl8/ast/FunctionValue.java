@@ -26,6 +26,7 @@
 package polyglot.ext.jl8.ast;
 
 import polyglot.ast.Expr;
+import polyglot.ast.Node;
 import polyglot.types.SemanticException;
 import polyglot.types.Type;
 import polyglot.visit.TypeChecker;
@@ -39,5 +40,26 @@ public interface FunctionValue extends Expr {
 
     FunctionValue functionSpec(FunctionSpec functionSpec);
 
+    /**
+     * @deprecated Use {@link #typeCheckWithTargetType(Node, Type, TypeChecker)},
+     *             which does not modify this node.
+     */
+    @Deprecated
     void setTargetType(Type type, TypeChecker tc) throws SemanticException;
+
+    /**
+     * The type of this function value while the methods it may be an
+     * argument of are being resolved.  For a lambda, this checks its body
+     * against each candidate target type without modifying this node.
+     *
+     * @param parent the node this function value is a child of.
+     */
+    Type temporaryTypeBeforeTypeChecking(Node parent, TypeChecker tc);
+
+    /**
+     * Return this function value for the target type {@code type}, type
+     * checked as a child of {@code parent}.  The result of a check of the
+     * same target type while resolving methods is reused.
+     */
+    Expr typeCheckWithTargetType(Node parent, Type type, TypeChecker tc) throws SemanticException;
 }
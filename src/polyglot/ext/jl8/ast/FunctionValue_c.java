@@ -25,9 +25,12 @@
  ******************************************************************************/
 package polyglot.ext.jl8.ast;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import polyglot.ast.Assign;
 import polyglot.ast.Cast;
+import polyglot.ast.Expr;
 import polyglot.ast.Expr_c;
 import polyglot.ast.Ext;
 import polyglot.ast.FieldDecl;
@@ -37,13 +40,24 @@ import polyglot.ast.NodeFactory;
 import polyglot.ast.Precedence;
 import polyglot.ast.Return;
 import polyglot.ast.Term;
+import polyglot.ext.jl5.types.JL5SubstType;
+import polyglot.ext.jl5.types.TypeVariable;
+import polyglot.ext.jl5.types.WildCardType;
+import polyglot.ext.jl8.types.FunctionType;
 import polyglot.ext.jl8.types.JL8TypeSystem;
+import polyglot.types.ArrayType;
 import polyglot.types.CodeInstance;
 import polyglot.types.FunctionInstance;
+import polyglot.types.MethodInstance;
+import polyglot.types.ReferenceType;
 import polyglot.types.SemanticException;
 import polyglot.types.Type;
+import polyglot.util.CacheMetrics;
 import polyglot.util.CodeWriter;
+import polyglot.util.ErrorInfo;
+import polyglot.util.ErrorLimitError;
 import polyglot.util.SerialVersionUID;
+import polyglot.util.SilentErrorQueue;
 import polyglot.visit.CFGBuilder;
 import polyglot.visit.NodeVisitor;
 import polyglot.visit.PrettyPrinter;
@@ -55,6 +69,14 @@ public class FunctionValue_c extends Expr_c implements FunctionValue {
 
     protected FunctionSpec functionSpec;
 
+    /**
+     * The results of checking this function value against candidate target
+     * types while resolving the methods it may be an argument of, keyed by
+     * the target type.  Shared by the copies of this node, and null until
+     * the first check.
+     */
+    protected transient Map<Type, Attribution> attributions;
+
     //    @Deprecated
     FunctionValue_c(FunctionSpec functionSpec) {
         this(functionSpec, null);
@@ -100,36 +122,66 @@ public class FunctionValue_c extends Expr_c implements FunctionValue {
             if (ci instanceof FunctionInstance) {
                 Type type = ((FunctionInstance) ci).returnType();
                 if (!type.isCanonical()) return this;
-                setTargetType(type, tc);
+                return targetTypeOverride(parent, type, tc);
             }
         }
         if (parent instanceof Assign) {
             Assign assign = (Assign) parent;
             Type type = assign.left().type();
             if (type == null || !type.isCanonical()) return this;
-            setTargetType(type, tc);
+            return targetTypeOverride(parent, type, tc);
         }
         if (parent instanceof LocalDecl) {
             LocalDecl localDecl = (LocalDecl) parent;
             Type type = localDecl.declType();
             if (!type.isCanonical()) return this;
-            setTargetType(type, tc);
+            return targetTypeOverride(parent, type, tc);
         }
         if (parent instanceof FieldDecl) {
             FieldDecl fieldDecl = (FieldDecl) parent;
             Type type = fieldDecl.type().type();
             if (type == null || !type.isCanonical()) return this;
-            setTargetType(type, tc);
+            return targetTypeOverride(parent, type, tc);
         }
         if (parent instanceof Cast) {
             Cast cast = (Cast) parent;
             Type type = cast.castType().type();
             if (!type.isCanonical()) return this;
-            setTargetType(type, tc);
+            return targetTypeOverride(parent, type, tc);
         }
         return super.typeCheckOverride(parent, tc);
     }
 
+    /**
+     * Type check this function value for a target type given by its
+     * parent, unless it already has that target type and can be checked
+     * as is.
+     */
+    protected Node targetTypeOverride(Node parent, Type type, TypeChecker tc)
+            throws SemanticException {
+        if (hasTargetType(type, tc)) return super.typeCheckOverride(parent, tc);
+        return typeCheckWithTargetType(parent, type, tc);
+    }
+
+    protected boolean hasTargetType(Type type, TypeChecker tc) {
+        Type targetType = this.functionSpec.targetType();
+        return targetType != null && tc.typeSystem().equals(targetType, type);
+    }
+
+    /**
+     * Return a copy of this function value whose function spec is for the
+     * target type {@code type}.
+     */
+    protected FunctionValue withTargetType(Type type, TypeChecker tc) throws SemanticException {
+        return functionSpec(
+                this.functionSpec.withTargetType(
+                        type,
+                        (JL8TypeSystem) tc.typeSystem(),
+                        tc.nodeFactory(),
+                        tc.context().currentClass()));
+    }
+
+    @Deprecated
     @Override
     public void setTargetType(Type type, TypeChecker tc) throws SemanticException {
         this.functionSpec =
@@ -140,6 +192,147 @@ public class FunctionValue_c extends Expr_c implements FunctionValue {
                         tc.context().currentClass());
     }
 
+    @Override
+    public Type temporaryTypeBeforeTypeChecking(final Node parent, final TypeChecker tc) {
+        JL8TypeSystem ts = (JL8TypeSystem) tc.typeSystem();
+        Type type = this.functionSpec.temporaryTypeBeforeTypeChecking(ts);
+        if (!(type instanceof FunctionType) || !(this.functionSpec instanceof LambdaExpression)) {
+            return type;
+        }
+        FunctionType functionType = (FunctionType) type;
+        return ts.functionType(
+                functionType.formalTypes(),
+                functionType.returnType(),
+                new FunctionType.BodyCheck() {
+                    @Override
+                    public boolean isBodyCompatible(
+                            ReferenceType targetType, MethodInstance descriptor) {
+                        return attribution(parent, targetType, descriptor, tc).compatible;
+                    }
+                });
+    }
+
+    @Override
+    public Expr typeCheckWithTargetType(Node parent, Type type, TypeChecker tc)
+            throws SemanticException {
+        if (hasTargetType(type, tc)) return (Expr) tc.visitEdge(parent, this);
+        Attribution a = this.attributions == null ? null : this.attributions.get(type);
+        if (a != null && a.checked != null) {
+            for (ErrorInfo e : a.warnings) {
+                tc.errorQueue().enqueue(e);
+            }
+            return a.checked;
+        }
+        return (Expr) tc.visitEdge(parent, withTargetType(type, tc));
+    }
+
+    /**
+     * Check this lambda against the candidate target type {@code targetType},
+     * whose function descriptor is {@code descriptor}, memoizing the result.
+     * The shape of the body must fit the descriptor (JLS 15.12.2.1).  If the
+     * formal types are explicit, and the descriptor does not mention type
+     * variables that inference may yet instantiate, the body is also type
+     * checked against the target type, reporting errors to a private queue;
+     * the lambda is compatible if there are none (JLS 15.12.2.2).  The
+     * checked copy is kept, so that it need not be checked again if the
+     * target type is chosen.
+     */
+    protected Attribution attribution(
+            Node parent, ReferenceType targetType, MethodInstance descriptor, TypeChecker tc) {
+        CacheMetrics attributionMetrics = CacheMetrics.get("FunctionValue_c.attributions");
+        if (this.attributions == null) this.attributions = new HashMap<>();
+        Attribution a = this.attributions.get(targetType);
+        if (a != null) {
+            attributionMetrics.hit();
+            return a;
+        }
+        attributionMetrics.miss();
+
+        LambdaExpression lambda = (LambdaExpression) this.functionSpec;
+        boolean compatible =
+                descriptor.returnType().isVoid()
+                        ? lambda.isVoidCompatible()
+                        : lambda.isValueCompatible();
+        if (!compatible || !lambda.isExplicitlyTyped() || mentionsTypeVariable(descriptor)) {
+            a = new Attribution(compatible, null, null);
+        } else {
+            SilentErrorQueue eq = new SilentErrorQueue(1, "speculative attribution");
+            TypeChecker v = (TypeChecker) tc.errorQueue(eq);
+            v = (TypeChecker) v.rethrowMissingDependencies(true);
+            try {
+                Expr checked = (Expr) v.visitEdge(parent, withTargetType(targetType, tc));
+                a = new Attribution(true, isTypeChecked(checked) ? checked : null, eq.getErrors());
+            } catch (SemanticException | ErrorLimitError e) {
+                a = new Attribution(false, null, null);
+            }
+        }
+        this.attributions.put(targetType, a);
+        return a;
+    }
+
+    /** Have all the nodes of {@code n} been type checked? */
+    protected boolean isTypeChecked(Node n) {
+        final boolean[] typeChecked = {true};
+        n.visit(
+                new NodeVisitor(lang()) {
+                    @Override
+                    public Node override(Node parent, Node n) {
+                        if (!typeChecked[0]) return n;
+                        if (!n.isTypeChecked()) {
+                            typeChecked[0] = false;
+                            return n;
+                        }
+                        return null;
+                    }
+                });
+        return typeChecked[0];
+    }
+
+    protected static boolean mentionsTypeVariable(MethodInstance mi) {
+        if (mentionsTypeVariable(mi.returnType())) return true;
+        for (Type t : mi.formalTypes()) {
+            if (mentionsTypeVariable(t)) return true;
+        }
+        return false;
+    }
+
+    protected static boolean mentionsTypeVariable(Type t) {
+        if (t instanceof TypeVariable) return true;
+        if (t instanceof ArrayType) return mentionsTypeVariable(((ArrayType) t).base());
+        if (t instanceof WildCardType) {
+            WildCardType w = (WildCardType) t;
+            return (w.upperBound() != null && mentionsTypeVariable(w.upperBound()))
+                    || (w.lowerBound() != null && mentionsTypeVariable(w.lowerBound()));
+        }
+        if (t instanceof JL5SubstType) {
+            for (ReferenceType actual : ((JL5SubstType) t).subst().substitutions().values()) {
+                if (mentionsTypeVariable(actual)) return true;
+            }
+        }
+        return false;
+    }
+
+    /** The result of checking a function value against a target type. */
+    protected static class Attribution {
+        /** Could the function value have the target type? */
+        protected final boolean compatible;
+
+        /**
+         * The function value type checked for the target type, or null if
+         * its body was not checked, or could not be checked completely.
+         */
+        protected final Expr checked;
+
+        /** The warnings reported while checking the body. */
+        protected final List<ErrorInfo> warnings;
+
+        protected Attribution(boolean compatible, Expr checked, List<ErrorInfo> warnings) {
+            this.compatible = compatible;
+            this.checked = checked;
+            this.warnings = warnings;
+        }
+    }
+
     @Override
     public Node typeCheck(TypeChecker tc) throws SemanticException {
         return type(this.functionSpec.targetType());
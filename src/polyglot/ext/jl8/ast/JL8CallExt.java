@@ -94,9 +94,7 @@ public class JL8CallExt extends JL8ProcedureCallExt implements CallOps {
             Expr checked;
             if (argument instanceof FunctionValue) {
                 FunctionValue functionValue = (FunctionValue) argument;
-                checked =
-                        argument.type(
-                                functionValue.functionSpec().temporaryTypeBeforeTypeChecking(ts));
+                checked = argument.type(functionValue.temporaryTypeBeforeTypeChecking(node, tc));
             } else {
                 checked = tc.rethrowMissingDependencies(true).visitEdge(node, argument);
             }
@@ -175,9 +173,11 @@ public class JL8CallExt extends JL8ProcedureCallExt implements CallOps {
             Expr argument = partiallyTypeCheckedArguments.get(i);
             if (argument instanceof FunctionValue) {
                 FunctionValue f = (FunctionValue) argument;
-                f.setTargetType(mi.formalTypes().get(i), tc);
                 fullyTypeCheckedArguments.add(
-                        tc.rethrowMissingDependencies(true).visitEdge(node, f));
+                        f.typeCheckWithTargetType(
+                                node,
+                                mi.formalTypes().get(i),
+                                (TypeChecker) tc.rethrowMissingDependencies(true)));
             } else {
                 fullyTypeCheckedArguments.add(argument);
             }
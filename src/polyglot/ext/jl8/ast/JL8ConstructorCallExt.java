@@ -77,9 +77,7 @@ public class JL8ConstructorCallExt extends JL8ProcedureCallExt {
             Expr checked;
             if (argument instanceof FunctionValue) {
                 FunctionValue functionValue = (FunctionValue) argument;
-                checked =
-                        argument.type(
-                                functionValue.functionSpec().temporaryTypeBeforeTypeChecking(ts));
+                checked = argument.type(functionValue.temporaryTypeBeforeTypeChecking(call, tc));
             } else {
                 checked = tc.rethrowMissingDependencies(true).visitEdge(call, argument);
                 if (!checked.isDisambiguated()) return call;
@@ -105,9 +103,11 @@ public class JL8ConstructorCallExt extends JL8ProcedureCallExt {
             if (argument instanceof FunctionValue) {
                 FunctionValue f = (FunctionValue) argument;
                 Type lambdaTargetType = ci.formalTypes().get(i);
-                f.setTargetType(lambdaTargetType, tc);
                 fullyTypeCheckedArguments.add(
-                        tc.rethrowMissingDependencies(true).visitEdge(call, f));
+                        f.typeCheckWithTargetType(
+                                call,
+                                lambdaTargetType,
+                                (TypeChecker) tc.rethrowMissingDependencies(true)));
             } else {
                 fullyTypeCheckedArguments.add(argument);
             }
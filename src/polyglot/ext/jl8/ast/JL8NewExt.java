@@ -37,7 +37,6 @@ import polyglot.ext.jl5.ast.JL5Ext;
 import polyglot.ext.jl5.ast.JL5NewExt;
 import polyglot.ext.jl7.ast.JL7Ext;
 import polyglot.ext.jl7.ast.JL7NewExt;
-import polyglot.ext.jl8.types.JL8TypeSystem;
 import polyglot.types.ConstructorInstance;
 import polyglot.types.SemanticException;
 import polyglot.types.Type;
@@ -65,7 +64,6 @@ public class JL8NewExt extends JL8ProcedureCallExt {
         final New n = this.node();
         final JL7NewExt ext7 = (JL7NewExt) JL7Ext.ext(n);
         final JL5NewExt ext5 = (JL5NewExt) JL5Ext.ext(n);
-        final JL8TypeSystem ts = (JL8TypeSystem) tc.typeSystem();
         if (!ext7.setExpectedObjectTypeFromParent(parent, tc)) {
             return n;
         }
@@ -84,9 +82,8 @@ public class JL8NewExt extends JL8ProcedureCallExt {
                                 FunctionValue functionValue = (FunctionValue) argument;
                                 checked =
                                         argument.type(
-                                                functionValue
-                                                        .functionSpec()
-                                                        .temporaryTypeBeforeTypeChecking(ts));
+                                                functionValue.temporaryTypeBeforeTypeChecking(
+                                                        n, tc));
                             } else {
                                 checked =
                                         tc.rethrowMissingDependencies(true).visitEdge(n, argument);
@@ -107,9 +104,11 @@ public class JL8NewExt extends JL8ProcedureCallExt {
                             if (argument instanceof FunctionValue) {
                                 FunctionValue f = (FunctionValue) argument;
                                 Type lambdaTargetType = ci.formalTypes().get(i);
-                                f.setTargetType(lambdaTargetType, tc);
                                 fullyTypeCheckedArguments.add(
-                                        tc.rethrowMissingDependencies(true).visitEdge(n, f));
+                                        f.typeCheckWithTargetType(
+                                                n,
+                                                lambdaTargetType,
+                                                (TypeChecker) tc.rethrowMissingDependencies(true)));
                             } else {
                                 fullyTypeCheckedArguments.add(argument);
                             }
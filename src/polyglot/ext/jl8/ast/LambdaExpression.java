@@ -29,7 +29,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import polyglot.ast.Assign;
 import polyglot.ast.Block;
+import polyglot.ast.Call;
+import polyglot.ast.ClassBody;
 import polyglot.ast.ClassMember;
 import polyglot.ast.CodeNode;
 import polyglot.ast.Expr;
@@ -45,13 +48,16 @@ import polyglot.ast.Special;
 import polyglot.ast.Stmt;
 import polyglot.ast.Term;
 import polyglot.ast.Term_c;
+import polyglot.ast.Throw;
 import polyglot.ast.TypeNode;
+import polyglot.ast.Unary;
 import polyglot.ext.jl8.types.FunctionType;
 import polyglot.ext.jl8.types.JL8TypeSystem;
 import polyglot.types.ClassType;
 import polyglot.types.CodeInstance;
 import polyglot.types.Context;
 import polyglot.types.Flags;
+import polyglot.types.LocalInstance;
 import polyglot.types.MethodInstance;
 import polyglot.types.ReferenceType;
 import polyglot.types.SemanticException;
@@ -130,6 +136,87 @@ public class LambdaExpression extends Term_c implements FunctionSpec, CodeNode,
         return ts.functionType(formalTypes, null);
     }
 
+    /**
+     * Is the body of the lambda an expression, rather than a block?  Such a
+     * body is parsed as a compiler-generated block returning the expression.
+     */
+    public boolean hasExpressionBody() {
+        return this.block.position().isCompilerGenerated()
+                && this.block.statements().size() == 1
+                && this.block.statements().get(0) instanceof Return;
+    }
+
+    /**
+     * Are the types of the formals of the lambda given explicitly?  Only
+     * then is the body pertinent to the applicability of the methods the
+     * lambda is an argument of.
+     */
+    public boolean isExplicitlyTyped() {
+        for (Formal formal : this.formals) {
+            if (formal.type().position().isCompilerGenerated()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Could the lambda be compatible with a function descriptor whose return
+     * type is void?  That is, is its body a statement expression, or a block
+     * with no {@code return} of a value?
+     */
+    public boolean isVoidCompatible() {
+        if (hasExpressionBody()) {
+            Expr e = ((Return) this.block.statements().get(0)).expr();
+            if (e instanceof Unary) {
+                Unary.Operator op = ((Unary) e).operator();
+                return op == Unary.PRE_INC
+                        || op == Unary.PRE_DEC
+                        || op == Unary.POST_INC
+                        || op == Unary.POST_DEC;
+            }
+            return e instanceof Assign || e instanceof Call || e instanceof New;
+        }
+        for (Return r : returns()) {
+            if (r.expr() != null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Could the lambda be compatible with a function descriptor whose return
+     * type is not void?  That is, is its body an expression, or a block that
+     * returns a value and does not {@code return} without one?  A block
+     * that may complete normally is approximated by one with no
+     * {@code return} that does not end with a {@code throw}.
+     */
+    public boolean isValueCompatible() {
+        if (hasExpressionBody()) return true;
+        List<Return> returns = returns();
+        for (Return r : returns) {
+            if (r.expr() == null) return false;
+        }
+        if (!returns.isEmpty()) return true;
+        List<Stmt> stmts = this.block.statements();
+        return !stmts.isEmpty() && stmts.get(stmts.size() - 1) instanceof Throw;
+    }
+
+    /**
+     * The return statements of the body, not counting those of nested
+     * lambdas and classes.
+     */
+    protected List<Return> returns() {
+        final List<Return> returns = new ArrayList<>();
+        this.block.visit(
+                new NodeVisitor(lang()) {
+                    @Override
+                    public Node override(Node parent, Node n) {
+                        if (n instanceof LambdaExpression || n instanceof ClassBody) return n;
+                        if (n instanceof Return) returns.add((Return) n);
+                        return null;
+                    }
+                });
+        return returns;
+    }
+
     public static Node replaceThisWithQualifiedThis(
             Node node, Lang lang, final NodeFactory nodeFactory, final ClassType currentClass) {
         return node.visit(
@@ -161,9 +248,7 @@ public class LambdaExpression extends Term_c implements FunctionSpec, CodeNode,
             List<MethodInstance> methods =
                     jl8TypeSystem.nonObjectPublicAbstractMethods(targetReferenceType);
             if (methods.size() == 1) {
-                this.targetType = targetReferenceType;
                 MethodInstance method = methods.get(0);
-                this.sam = method;
                 List<? extends Type> formalTypesFromTarget = method.formalTypes();
                 int expectedSize = formalTypesFromTarget.size();
                 if (expectedSize != this.formals.size()) {
@@ -185,8 +270,13 @@ public class LambdaExpression extends Term_c implements FunctionSpec, CodeNode,
                                 formal.type(
                                         nodeFactory.CanonicalTypeNode(
                                                 formal.position(), formalTypeFromTarget));
-                        if (newFormal.localInstance() != null) {
-                            newFormal.localInstance().setType(formalTypeFromTarget);
+                        LocalInstance li = newFormal.localInstance();
+                        if (li != null) {
+                            // Other target types may be tried for the same
+                            // lambda, so leave the original formal alone.
+                            li = (LocalInstance) li.copy();
+                            li.setType(formalTypeFromTarget);
+                            newFormal = newFormal.localInstance(li);
                         }
                         newFormals.add(i, newFormal);
                     } else {
@@ -205,8 +295,7 @@ public class LambdaExpression extends Term_c implements FunctionSpec, CodeNode,
                 Block newBlock = this.block;
                 // When the return type is void,
                 // lambda () -> e should be interpreted as () -> { e; }
-                if (this.block.position().equals(Position.COMPILER_GENERATED)
-                        && method.returnType().equals(jl8TypeSystem.Void())) {
+                if (hasExpressionBody() && method.returnType().equals(jl8TypeSystem.Void())) {
                     Expr e = ((Return) this.block.statements().get(0)).expr();
                     newBlock =
                             this.block.statements(
@@ -217,9 +306,11 @@ public class LambdaExpression extends Term_c implements FunctionSpec, CodeNode,
                         (Block)
                                 replaceThisWithQualifiedThis(
                                         newBlock, lang(), nodeFactory, currentClass);
-                this.formals = newFormals;
-                this.block = newBlock;
-                return this;
+                LambdaExpression n = block(formals(this, newFormals), newBlock);
+                n = copyIfNeeded(n);
+                n.targetType = targetReferenceType;
+                n.sam = method;
+                return n;
             }
         }
         throw new SemanticException(targetType + " is not a functional interface.", position());
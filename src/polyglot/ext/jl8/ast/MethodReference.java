@@ -113,13 +113,14 @@ public class MethodReference extends Term_c implements FunctionSpec {
             List<MethodInstance> methods =
                     jl8TypeSystem.nonObjectPublicAbstractMethods(targetReferenceType);
             if (methods.size() == 1) {
-                this.targetType = targetReferenceType;
-                this.sam = methods.get(0);
-                this.receiver =
+                Receiver receiver =
                         (Receiver)
                                 LambdaExpression.replaceThisWithQualifiedThis(
                                         this.receiver, lang(), nodeFactory, currentClass);
-                return this;
+                MethodReference n = copyIfNeeded(receiver(this, receiver));
+                n.targetType = targetReferenceType;
+                n.sam = methods.get(0);
+                return n;
             }
         }
         throw new SemanticException(targetType + " is not a functional interface.", position());
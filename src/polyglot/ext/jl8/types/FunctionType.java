@@ -27,6 +27,8 @@
 package polyglot.ext.jl8.types;
 
 import java.util.List;
+import polyglot.types.MethodInstance;
+import polyglot.types.ReferenceType;
 import polyglot.types.Type;
 
 /** A placeholder for lambda expressions with known types before resolved into a reference type. */
@@ -40,4 +42,17 @@ public interface FunctionType extends Type {
 
     /** The functions's return type. */
     Type returnType();
+
+    /**
+     * Could the body of the function be compatible with the functional
+     * interface {@code targetType}, whose function descriptor is
+     * {@code descriptor}?  The formal and return types are checked
+     * separately.
+     */
+    boolean isBodyCompatible(ReferenceType targetType, MethodInstance descriptor);
+
+    /** A check of the body of a function against a candidate target type. */
+    interface BodyCheck {
+        boolean isBodyCompatible(ReferenceType targetType, MethodInstance descriptor);
+    }
 }
@@ -1,6 +1,8 @@
 package polyglot.ext.jl8.types;
 
 import java.util.List;
+import polyglot.types.MethodInstance;
+import polyglot.types.ReferenceType;
 import polyglot.types.Resolver;
 import polyglot.types.Type;
 import polyglot.types.TypeSystem;
@@ -12,6 +14,7 @@ public class FunctionType_c extends Type_c implements FunctionType {
 
     private List<? extends Type> formalTypes;
     private Type returnType;
+    private transient BodyCheck bodyCheck;
 
     /** Used for deserializing types. */
     protected FunctionType_c() {
@@ -24,6 +27,12 @@ public class FunctionType_c extends Type_c implements FunctionType {
         this.returnType = returnType;
     }
 
+    public FunctionType_c(
+            TypeSystem ts, List<? extends Type> formalTypes, Type returnType, BodyCheck bodyCheck) {
+        this(ts, formalTypes, returnType);
+        this.bodyCheck = bodyCheck;
+    }
+
     @Override
     public List<? extends Type> formalTypes() {
         return formalTypes;
@@ -34,6 +43,11 @@ public class FunctionType_c extends Type_c implements FunctionType {
         return returnType;
     }
 
+    @Override
+    public boolean isBodyCompatible(ReferenceType targetType, MethodInstance descriptor) {
+        return bodyCheck == null || bodyCheck.isBodyCompatible(targetType, descriptor);
+    }
+
     @Override
     public String translate(Resolver c) {
         throw new UnsupportedOperationException();
@@ -36,6 +36,21 @@ import polyglot.types.Type;
 public interface JL8TypeSystem extends JL7TypeSystem {
     FunctionType functionType(List<? extends Type> formalTypes, Type returnType);
 
+    /**
+     * Return a function type whose body is checked against candidate
+     * target types by {@code bodyCheck}.
+     */
+    FunctionType functionType(
+            List<? extends Type> formalTypes, Type returnType, FunctionType.BodyCheck bodyCheck);
+
+    /**
+     * Return the function descriptor of a functional interface: the public
+     * abstract methods of {@code referenceType}, declared or inherited, that
+     * are not public methods of Object.  Override-equivalent methods appear
+     * once.  {@code referenceType} is a functional interface if the list has
+     * exactly one element; the list is empty if it is not an interface.
+     * The returned list must not be modified.
+     */
     List<MethodInstance> nonObjectPublicAbstractMethods(ReferenceType referenceType);
 
     /** Allows Class.instanceMethod call by considering receiver as special first parameter. */
@@ -27,17 +27,28 @@ package polyglot.ext.jl8.types;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import polyglot.ext.jl5.types.JL5SubstClassType;
+import polyglot.ext.jl5.types.RawClass;
 import polyglot.ext.jl7.types.JL7TypeSystem_c;
 import polyglot.types.ClassType;
+import polyglot.types.ConstructorInstance;
 import polyglot.types.Flags;
 import polyglot.types.MethodInstance;
 import polyglot.types.NoMemberException;
+import polyglot.types.ParsedClassType;
 import polyglot.types.ReferenceType;
 import polyglot.types.SemanticException;
 import polyglot.types.Type;
 import polyglot.types.UnknownType;
+import polyglot.util.CacheMetrics;
 
 public class JL8TypeSystem_c extends JL7TypeSystem_c implements JL8TypeSystem {
     @Override
@@ -58,7 +69,8 @@ public class JL8TypeSystem_c extends JL7TypeSystem_c implements JL8TypeSystem {
             }
             Type functionReturnType = functionType.returnType();
             if (functionReturnType == null) functionReturnType = unknownType;
-            return isImplicitCastValid(functionReturnType, method.returnType());
+            if (!isImplicitCastValid(functionReturnType, method.returnType())) return false;
+            return functionType.isBodyCompatible((ReferenceType) toType, method);
         }
         return super.isImplicitCastValid(fromType, toType);
     }
@@ -68,36 +80,178 @@ public class JL8TypeSystem_c extends JL7TypeSystem_c implements JL8TypeSystem {
         return new FunctionType_c(this, formalTypes, returnType);
     }
 
+    @Override
+    public FunctionType functionType(
+            List<? extends Type> formalTypes, Type returnType, FunctionType.BodyCheck bodyCheck) {
+        return new FunctionType_c(this, formalTypes, returnType, bodyCheck);
+    }
+
+    /**
+     * Function descriptors of reference types, keyed by the type.  Since
+     * instantiations of a generic interface are equal when their type
+     * arguments are, this memoizes the descriptor per interface and type
+     * arguments.  Only types whose members are fully resolved are cached.
+     */
+    protected Map<ReferenceType, List<MethodInstance>> functionDescriptors = new HashMap<>();
+
+    protected final CacheMetrics functionDescriptorMetrics =
+            CacheMetrics.get("JL8TypeSystem_c.functionDescriptors");
+
+    /** The public methods of Object, or null if not yet computed. */
+    protected List<MethodInstance> objectPublicMethods;
+
     @Override
     public List<MethodInstance> nonObjectPublicAbstractMethods(ReferenceType referenceType) {
+        if (!referenceType.isClass() || !referenceType.toClass().flags().isInterface()) {
+            return Collections.emptyList();
+        }
+        List<MethodInstance> result = functionDescriptors.get(referenceType);
+        if (result != null) {
+            functionDescriptorMetrics.hit();
+            return result;
+        }
+        functionDescriptorMetrics.miss();
+
         List<MethodInstance> objectPublicMethods = this.objectPublicMethods();
         List<MethodInstance> nonObjectPublicAbstractMethods = new ArrayList<>();
-        for (MethodInstance m : referenceType.methods()) {
-            Flags flags = m.flags();
-            if (flags.isPublic() && flags.isAbstract()) {
-                boolean isObjectMethod = false;
-                for (MethodInstance objectMethod : objectPublicMethods) {
-                    if (m.isSameMethod(objectMethod)) {
-                        isObjectMethod = true;
-                        break;
-                    }
+        boolean complete = isMembersComplete(referenceType);
+
+        // Visit the interface and then its superinterfaces, breadth first,
+        // so that a method overridden in a subinterface is found first and
+        // hides the override-equivalent methods it overrides.
+        LinkedList<ReferenceType> worklist = new LinkedList<>();
+        Set<ReferenceType> visited = new HashSet<>();
+        worklist.add(referenceType);
+        visited.add(referenceType);
+        while (!worklist.isEmpty()) {
+            ReferenceType t = worklist.removeFirst();
+            complete &= isMembersComplete(t);
+            for (MethodInstance m : t.methods()) {
+                Flags flags = m.flags();
+                if (flags.isPublic()
+                        && flags.isAbstract()
+                        && !containsSameMethod(objectPublicMethods, m)
+                        && !containsSameMethod(nonObjectPublicAbstractMethods, m)) {
+                    nonObjectPublicAbstractMethods.add(m);
+                }
+            }
+            for (Type s : t.interfaces()) {
+                if (s.isReference() && visited.add(s.toReference())) {
+                    worklist.add(s.toReference());
                 }
-                if (!isObjectMethod) nonObjectPublicAbstractMethods.add(m);
             }
         }
-        return nonObjectPublicAbstractMethods;
+
+        result = Collections.unmodifiableList(nonObjectPublicAbstractMethods);
+        if (complete) functionDescriptors.put(referenceType, result);
+        return result;
+    }
+
+    private static boolean containsSameMethod(List<MethodInstance> methods, MethodInstance m) {
+        for (MethodInstance mi : methods) {
+            if (m.isSameMethod(mi)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Have the supertypes and member signatures of {@code t} been resolved,
+     * so that its methods will not change?
+     */
+    protected boolean isMembersComplete(ReferenceType t) {
+        if (t instanceof JL5SubstClassType) t = ((JL5SubstClassType) t).base();
+        if (t instanceof RawClass) t = ((RawClass) t).base();
+        if (t instanceof ParsedClassType) {
+            ParsedClassType ct = (ParsedClassType) t;
+            return ct.supertypesResolved() && ct.membersAdded() && ct.signaturesResolved();
+        }
+        return true;
     }
 
     private List<MethodInstance> objectPublicMethods() {
+        if (objectPublicMethods != null) return objectPublicMethods;
         List<MethodInstance> objectMethods = new ArrayList<>();
         for (MethodInstance i : Object().methods()) {
             if (i.flags().isPublic()) {
                 objectMethods.add(i);
             }
         }
+        if (isMembersComplete(Object())) objectPublicMethods = objectMethods;
         return objectMethods;
     }
 
+    /**
+     * Find the method as usual.  If no method is applicable once the bodies
+     * of explicitly typed lambda arguments are checked against the
+     * candidate target types, find it again without checking the bodies,
+     * so that an error in a lambda body is reported in the body rather than
+     * as a missing method.
+     */
+    @Override
+    public MethodInstance findMethod(
+            ReferenceType container,
+            java.lang.String name,
+            List<? extends Type> argTypes,
+            List<? extends ReferenceType> typeArgs,
+            ClassType currClass,
+            Type expectedReturnType,
+            boolean fromClient)
+            throws SemanticException {
+        try {
+            return super.findMethod(
+                    container, name, argTypes, typeArgs, currClass, expectedReturnType, fromClient);
+        } catch (SemanticException e) {
+            List<Type> unchecked = withoutBodyChecks(argTypes);
+            if (unchecked == null) throw e;
+            return super.findMethod(
+                    container,
+                    name,
+                    unchecked,
+                    typeArgs,
+                    currClass,
+                    expectedReturnType,
+                    fromClient);
+        }
+    }
+
+    /**
+     * Find the constructor as usual, falling back to not checking lambda
+     * bodies as for {@link #findMethod(ReferenceType, java.lang.String, List,
+     * List, ClassType, Type, boolean)}.
+     */
+    @Override
+    public ConstructorInstance findConstructor(
+            ClassType container,
+            List<? extends Type> argTypes,
+            List<? extends ReferenceType> typeArgs,
+            ClassType currClass,
+            boolean fromClient)
+            throws SemanticException {
+        try {
+            return super.findConstructor(container, argTypes, typeArgs, currClass, fromClient);
+        } catch (SemanticException e) {
+            List<Type> unchecked = withoutBodyChecks(argTypes);
+            if (unchecked == null) throw e;
+            return super.findConstructor(container, unchecked, typeArgs, currClass, fromClient);
+        }
+    }
+
+    /**
+     * Return {@code argTypes} with its function types replaced by ones that
+     * do not check their bodies, or null if it has no function types.
+     */
+    protected List<Type> withoutBodyChecks(List<? extends Type> argTypes) {
+        List<Type> result = null;
+        for (int i = 0; i < argTypes.size(); i++) {
+            if (argTypes.get(i) instanceof FunctionType) {
+                FunctionType functionType = (FunctionType) argTypes.get(i);
+                if (result == null) result = new ArrayList<>(argTypes);
+                result.set(i, functionType(functionType.formalTypes(), functionType.returnType()));
+            }
+        }
+        return result;
+    }
+
     @Override
     public MethodInstance findMethodForMethodReference(
             ReferenceType container,
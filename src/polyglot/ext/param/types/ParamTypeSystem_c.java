@@ -36,6 +36,7 @@ import polyglot.types.SemanticException;
 import polyglot.types.Type;
 import polyglot.types.TypeObject;
 import polyglot.types.TypeSystem_c;
+import polyglot.util.CacheMetrics;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.Position;
 
@@ -47,6 +48,8 @@ public abstract class ParamTypeSystem_c<Formal extends Param, Actual extends Typ
     protected Map<Map<Formal, ? extends Actual>, Subst<Formal, Actual>> substCache =
             new HashMap<>();
 
+    protected final CacheMetrics substMetrics = CacheMetrics.get("ParamTypeSystem_c.substCache");
+
     @Override
     public MuPClass<Formal, Actual> mutablePClass(Position pos) {
         return new MuPClass_c<>(this, pos);
@@ -131,8 +134,11 @@ public abstract class ParamTypeSystem_c<Formal extends Param, Actual extends Typ
     public final Subst<Formal, Actual> subst(Map<Formal, ? extends Actual> substMap) {
         Subst<Formal, Actual> subst = substCache.get(substMap);
         if (subst == null) {
+            substMetrics.miss();
             subst = substImpl(substMap);
             substCache.put(substMap, subst);
+        } else {
+            substMetrics.hit();
         }
         return subst;
     }
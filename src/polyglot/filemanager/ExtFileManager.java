@@ -37,7 +37,16 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -59,9 +68,11 @@ import javax.tools.StandardLocation;
 import polyglot.frontend.ExtensionInfo;
 import polyglot.frontend.FileSource;
 import polyglot.frontend.Source;
+import polyglot.main.CompilationSession;
 import polyglot.main.Main;
 import polyglot.main.Report;
 import polyglot.types.reflect.ClassFile;
+import polyglot.util.CacheMetrics;
 import polyglot.util.CollectionUtil;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.StringUtil;
@@ -79,11 +90,75 @@ public class ExtFileManager extends ForwardingJavaFileManager<StandardJavaFileMa
     /** Map of sources already loaded */
     protected final Map<String, FileSource> loadedSources;
     /** A cache for package look ups */
-    protected static final Map<String, Boolean> packageCache = new HashMap<>();
+    protected final Map<String, Boolean> packageCache;
     /** A cache for the class files that don't exist */
-    protected static final Set<String> nocache = new HashSet<>();
+    protected final Set<String> nocache;
 
-    protected static final Map<File, Object> zipCache = new HashMap<>();
+    protected final Map<File, Object> zipCache;
+
+    /** The names of the entries of the archives in zipCache */
+    protected final Map<File, Set<String>> zipEntries;
+
+    /**
+     * The names of the files in the directories searched for input, or
+     * {@code not_found} for a path entry that is neither a directory nor
+     * an archive.  Unlike the archives, directories may change from one
+     * compilation to the next, so each file manager lists them afresh.
+     */
+    protected final Map<File, Object> directoryListings;
+
+    /** The entries of the search path of each location, or null. */
+    protected final Map<Location, List<File>> searchPaths;
+
+    /** A cache for the class files of the runtime, shared by the session */
+    protected final Map<String, JavaFileObject> platformClasses;
+
+    /**
+     * Keys of platformClasses for which the runtime was found to have no
+     * class file.  They are not shared by the session, since they are
+     * mostly the names of the classes being compiled.
+     */
+    protected final Set<String> platformMisses;
+
+    protected final CacheMetrics packageMetrics = CacheMetrics.get("ExtFileManager.packageCache");
+
+    protected final CacheMetrics nocacheMetrics = CacheMetrics.get("ExtFileManager.nocache");
+
+    protected final CacheMetrics nameIndexMetrics = CacheMetrics.get("ExtFileManager.nameIndex");
+
+    protected final CacheMetrics platformClassMetrics =
+            CacheMetrics.get("ExtFileManager.platformClasses");
+
+    /**
+     * The lookup caches shared by the file managers of a
+     * {@code CompilationSession}.  They are cleared whenever a file manager
+     * with different default locations is created in the session.
+     */
+    public static class Caches {
+        protected final Map<String, Boolean> packageCache = new HashMap<>();
+        protected final Set<String> nocache = new HashSet<>();
+        protected final Map<File, Object> zipCache = new HashMap<>();
+        protected final Map<File, Set<String>> zipEntries = new HashMap<>();
+        protected List<Location> defaultLocations;
+
+        /** Have the packages of the runtime been added to the package cache? */
+        protected boolean builtinPackages;
+
+        /**
+         * Class files of the runtime found by reflection, keyed by class
+         * name and file extension.  They cannot change while the virtual
+         * machine runs, so they are kept even when the other caches are
+         * cleared.
+         */
+        protected final Map<String, JavaFileObject> platformClasses = new HashMap<>();
+
+        /**
+         * The packages of the runtime image, each mapped to the names of its
+         * files once they are needed, or null until the image is listed.
+         * Like platformClasses, they are kept when the caches are cleared.
+         */
+        protected Map<String, Set<String>> runtimePackages;
+    }
 
     protected static final Object not_found = new Object();
 
@@ -121,7 +196,7 @@ public class ExtFileManager extends ForwardingJavaFileManager<StandardJavaFileMa
      */
     protected final boolean inMemory;
 
-    protected static List<Location> default_locations;
+    protected final List<Location> default_locations;
 
     public ExtFileManager(ExtensionInfo extInfo) {
         super(javaCompiler.getStandardFileManager(null, null, null));
@@ -129,15 +204,33 @@ public class ExtFileManager extends ForwardingJavaFileManager<StandardJavaFileMa
         loadedSources = new HashMap<>();
         objectMap = new HashMap<>();
         inMemory = extInfo.getOptions().noOutputToFS;
-        List<Location> defaultLocations = extInfo.defaultLocations();
-        if (!defaultLocations.equals(default_locations)) {
-            default_locations = defaultLocations;
+        Caches caches = CompilationSession.current().fileManagerCaches();
+        packageCache = caches.packageCache;
+        nocache = caches.nocache;
+        zipCache = caches.zipCache;
+        zipEntries = caches.zipEntries;
+        directoryListings = new HashMap<>();
+        searchPaths = new HashMap<>();
+        platformClasses = caches.platformClasses;
+        platformMisses = new HashSet<>();
+        // The caches are shared by the file managers of the session, so
+        // their sizes are those of the session.
+        packageMetrics.setSize(packageCache::size);
+        nocacheMetrics.setSize(nocache::size);
+        platformClassMetrics.setSize(platformClasses::size);
+        default_locations = extInfo.defaultLocations();
+        if (!default_locations.equals(caches.defaultLocations)) {
+            caches.defaultLocations = default_locations;
+            caches.builtinPackages = false;
             clearCache();
         }
-        setupPackageCacheForBuiltinPackages();
+        if (!caches.builtinPackages) {
+            setupPackageCacheForBuiltinPackages();
+            caches.builtinPackages = true;
+        }
     }
 
-    private static void setupPackageCacheForBuiltinPackages() {
+    private void setupPackageCacheForBuiltinPackages() {
         File builtinClasspathFile =
                 new File(
                         System.getProperty("java.home")
@@ -163,9 +256,12 @@ public class ExtFileManager extends ForwardingJavaFileManager<StandardJavaFileMa
     }
 
     protected void clearCache() {
+        packageMetrics.evict(packageCache.size());
+        nocacheMetrics.evict(nocache.size());
         packageCache.clear();
         nocache.clear();
         zipCache.clear();
+        zipEntries.clear();
     }
 
     @Override
@@ -179,9 +275,123 @@ public class ExtFileManager extends ForwardingJavaFileManager<StandardJavaFileMa
                 if (jfo != null) return jfo;
             }
         }
+        if (!mayContain(location, packageName, relativeName)) {
+            nameIndexMetrics.negativeHit();
+            return null;
+        }
         return super.getFileForInput(location, packageName, relativeName);
     }
 
+    /**
+     * Could {@code location} contain the file {@code relativeName} of
+     * package {@code packageName}?  The answer comes from the listings of
+     * the directories and archives of the location, so most lookups of
+     * files that do not exist are answered without touching the file
+     * system.  Return true if the location cannot be listed.
+     */
+    protected boolean mayContain(Location location, String packageName, String relativeName) {
+        List<File> files = searchPath(location);
+        if (files == null) {
+            nameIndexMetrics.miss();
+            return true;
+        }
+
+        String path = relativeName;
+        if (!packageName.isEmpty()) path = packageName.replace('.', '/') + "/" + relativeName;
+        int slash = path.lastIndexOf('/');
+        String dir = slash < 0 ? "" : path.substring(0, slash);
+        String name = path.substring(slash + 1);
+        if (caseInsensitive()) {
+            path = path.toLowerCase();
+            name = name.toLowerCase();
+        }
+
+        for (File f : files) {
+            String fileName = f.getName();
+            if (fileName.endsWith(".jar") || fileName.endsWith(".zip")) {
+                try {
+                    loadZip(f);
+                } catch (IOException e) {
+                    nameIndexMetrics.miss();
+                    return true;
+                }
+                Set<String> entries = zipEntries.get(f);
+                if (entries != null && entries.contains(path)) {
+                    nameIndexMetrics.hit();
+                    return true;
+                }
+            } else {
+                Object listing = directoryListing(f, dir);
+                if (listing == not_found) {
+                    nameIndexMetrics.miss();
+                    return true;
+                }
+                if (((Set<?>) listing).contains(name)) {
+                    nameIndexMetrics.hit();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the entries of the search path of {@code location}, or null if
+     * the location is not a search path of files.
+     */
+    protected List<File> searchPath(Location location) {
+        if (searchPaths.containsKey(location)) return searchPaths.get(location);
+        List<File> result = null;
+        try {
+            Iterable<? extends File> files = getLocation(location);
+            if (files != null) {
+                result = new ArrayList<>();
+                for (File f : files) result.add(f.getAbsoluteFile());
+            }
+        } catch (UnsupportedOperationException
+                | IllegalArgumentException
+                | IllegalStateException e) {
+            // The location is not a search path of files, such as the
+            // modules of the runtime image.
+            result = null;
+        }
+        searchPaths.put(location, result);
+        return result;
+    }
+
+    /**
+     * Return the names of the files in the directory {@code dir} below the
+     * path entry {@code root}, or {@code not_found} if {@code root} exists
+     * but is not a directory.
+     */
+    protected Object directoryListing(File root, String dir) {
+        Object rootListing = directoryListings.get(root);
+        if (rootListing == null) {
+            rootListing = listing(root);
+            if (rootListing == null)
+                rootListing = root.exists() ? not_found : Collections.emptySet();
+            directoryListings.put(root, rootListing);
+        }
+        if (dir.isEmpty() || rootListing == not_found) return rootListing;
+
+        File d = new File(root, dir);
+        Object result = directoryListings.get(d);
+        if (result == null) {
+            result = listing(d);
+            if (result == null) result = Collections.emptySet();
+            directoryListings.put(d, result);
+        }
+        return result;
+    }
+
+    private Set<String> listing(File dir) {
+        String[] names = dir.list();
+        if (names == null) return null;
+        Set<String> result = new HashSet<>(names.length * 2);
+        for (String n : names) result.add(caseInsensitive() ? n.toLowerCase() : n);
+        return result;
+    }
+
     @Override
     public JavaFileObject getJavaFileForInput(Location location, String className, Kind kind)
             throws IOException {
@@ -191,34 +401,116 @@ public class ExtFileManager extends ForwardingJavaFileManager<StandardJavaFileMa
         JavaFileObject result = (JavaFileObject) getFileForInput(location, pkg, relativeName);
 
         if (result == null && location == StandardLocation.PLATFORM_CLASS_PATH) {
-            // In Java 9+, the FileManager is unable to find a class file for
-            // system classes. In this case, we fall back on reflection to get
-            // a resource for the class.
+            String key = className + kind.extension;
+            result = platformClasses.get(key);
+            if (result != null) {
+                platformClassMetrics.hit();
+            } else if (platformMisses.contains(key)) {
+                platformClassMetrics.negativeHit();
+            } else {
+                platformClassMetrics.miss();
+                if (runtimeMayContain(className, kind)) result = platformClass(className, kind);
+                if (result != null) platformClasses.put(key, result);
+                else platformMisses.add(key);
+            }
+        }
 
-            // Get the class from the system class loader.
-            Class<?> clazz;
-            try {
-                clazz = ClassLoader.getSystemClassLoader().loadClass(className);
-            } catch (ClassNotFoundException e) {
-                clazz = null;
+        return result;
+    }
+
+    /**
+     * Could the runtime image have a file for the class {@code className}?
+     * A package of the image belongs to one of its modules, so a class in
+     * it can only come from the image, and the listing of the package
+     * answers without loading the class.  Return true for a package that is
+     * not in the image, or if the image cannot be listed.
+     */
+    protected boolean runtimeMayContain(String className, Kind kind) {
+        Caches caches = CompilationSession.current().fileManagerCaches();
+        if (caches.runtimePackages == null) caches.runtimePackages = listRuntimePackages();
+        Map<String, Set<String>> packages = caches.runtimePackages;
+
+        String pkg = StringUtil.getPackageComponent(className);
+        if (!packages.containsKey(pkg)) return true;
+        Set<String> names = packages.get(pkg);
+        if (names == null) {
+            names = listRuntimePackage(pkg);
+            if (names == null) {
+                packages.remove(pkg);
+                return true;
             }
+            packages.put(pkg, names);
+        }
+        return names.contains(StringUtil.getShortNameComponent(className) + kind.extension);
+    }
 
-            if (clazz != null) {
-                // Found the class. Create a JavaFileObject for it.
-                URL url = clazz.getResource(relativeName);
-                try {
-                    result =
-                            new ExtFileObject(
-                                    new URI(url.getPath()),
-                                    kindFromExtension(relativeName),
-                                    clazz.getResourceAsStream(relativeName));
-                } catch (URISyntaxException e) {
-                    throw new InternalCompilerError(e);
+    /**
+     * Return the packages of the runtime image, or no packages if there is
+     * no image, as before Java 9.
+     */
+    protected static Map<String, Set<String>> listRuntimePackages() {
+        Map<String, Set<String>> packages = new HashMap<>();
+        try {
+            FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(jrt.getPath("/packages"))) {
+                for (Path p : ds) packages.put(p.getFileName().toString(), null);
+            }
+        } catch (ProviderNotFoundException | FileSystemNotFoundException | IOException e) {
+            packages.clear();
+        }
+        return packages;
+    }
+
+    /**
+     * Return the names of the files of the package {@code pkg} of the
+     * runtime image, or null if they cannot be listed.
+     */
+    protected static Set<String> listRuntimePackage(String pkg) {
+        Set<String> names = new HashSet<>();
+        try {
+            FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+            try (DirectoryStream<Path> modules =
+                    Files.newDirectoryStream(jrt.getPath("/packages", pkg))) {
+                for (Path m : modules) {
+                    Path dir =
+                            jrt.getPath(
+                                    "/modules", m.getFileName().toString(), pkg.replace('.', '/'));
+                    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                        for (Path f : files) names.add(f.getFileName().toString());
+                    }
                 }
             }
+        } catch (ProviderNotFoundException | FileSystemNotFoundException | IOException e) {
+            return null;
         }
+        return names;
+    }
 
-        return result;
+    /**
+     * Find the class file of the runtime for {@code className} by
+     * reflection, or return null if there is none.
+     */
+    protected JavaFileObject platformClass(String className, Kind kind) throws IOException {
+        // In Java 9+, the FileManager is unable to find a class file for
+        // system classes. In this case, we fall back on reflection to get
+        // a resource for the class.
+        String relativeName = StringUtil.getShortNameComponent(className) + kind.extension;
+
+        // Get the class from the system class loader.
+        Class<?> clazz;
+        try {
+            clazz = ClassLoader.getSystemClassLoader().loadClass(className);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        // Found the class. Create a JavaFileObject for it.
+        URL url = clazz.getResource(relativeName);
+        try (InputStream in = clazz.getResourceAsStream(relativeName)) {
+            return new ExtFileObject(new URI(url.getPath()), kindFromExtension(relativeName), in);
+        } catch (URISyntaxException e) {
+            throw new InternalCompilerError(e);
+        }
     }
 
     protected Kind kindFromExtension(String name) {
@@ -290,6 +582,16 @@ public class ExtFileManager extends ForwardingJavaFileManager<StandardJavaFileMa
         else return super.list(location, packageName, kinds, recurse);
     }
 
+    /**
+     * Return the files written to {@code location} that are kept in memory,
+     * keyed by their paths relative to the location.
+     */
+    public Map<String, JavaFileObject> memoryFiles(Location location) {
+        Map<String, JavaFileObject> locMap = objectMap.get(location);
+        if (locMap == null) return Collections.emptyMap();
+        return Collections.unmodifiableMap(locMap);
+    }
+
     // Use this method for obtaining JavaFileObjects representing files on the
     // local file system
     @Override
@@ -333,11 +635,19 @@ public class ExtFileManager extends ForwardingJavaFileManager<StandardJavaFileMa
     @Override
     public void setLocation(Location location, Iterable<? extends File> path) throws IOException {
         fileManager.setLocation(location, path);
+        directoryListings.clear();
+        searchPaths.clear();
     }
 
     @Override
     public boolean packageExists(String name) {
-        if (packageCache.containsKey(name)) return packageCache.get(name);
+        Boolean cached = packageCache.get(name);
+        if (cached != null) {
+            if (cached) packageMetrics.hit();
+            else packageMetrics.negativeHit();
+            return cached;
+        }
+        packageMetrics.miss();
         boolean exists = false;
         for (int i = default_locations.size() - 1; !exists && i >= 0; i--)
             exists = packageExists(default_locations.get(i), name);
@@ -346,7 +656,7 @@ public class ExtFileManager extends ForwardingJavaFileManager<StandardJavaFileMa
         return exists;
     }
 
-    protected static ZipFile loadZip(File dir) throws IOException {
+    protected ZipFile loadZip(File dir) throws IOException {
         Object o = zipCache.get(dir);
         if (o != not_found) {
             ZipFile zip = (ZipFile) o;
@@ -368,11 +678,14 @@ public class ExtFileManager extends ForwardingJavaFileManager<StandardJavaFileMa
                     }
                     zipCache.put(dir, zip);
 
-                    // Load the package cache
+                    // Load the package cache and the entry names
+                    Set<String> entries = new HashSet<>(zip.size() * 2);
+                    zipEntries.put(dir, entries);
                     Enumeration<? extends ZipEntry> i = zip.entries();
                     while (i.hasMoreElements()) {
                         ZipEntry ei = i.nextElement();
                         String n = ei.getName();
+                        entries.add(caseInsensitive() ? n.toLowerCase() : n);
                         int index = n.indexOf('/');
                         while (index >= 0) {
                             packageCache.put(n.substring(0, index), true);
@@ -418,7 +731,11 @@ public class ExtFileManager extends ForwardingJavaFileManager<StandardJavaFileMa
 
     @Override
     public ClassFile loadFile(String name) {
-        if (nocache.contains(name)) return null;
+        if (nocache.contains(name)) {
+            nocacheMetrics.negativeHit();
+            return null;
+        }
+        nocacheMetrics.miss();
         ClassFile clazz = null;
         for (int i = default_locations.size() - 1; i >= 0; i--) {
             clazz = loadFile(default_locations.get(i), name);
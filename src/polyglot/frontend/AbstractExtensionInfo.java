@@ -45,6 +45,7 @@ import polyglot.frontend.Source.Kind;
 import polyglot.frontend.goals.Goal;
 import polyglot.main.Options;
 import polyglot.main.Version;
+import polyglot.qq.TemplateCache;
 import polyglot.translate.ext.ToExt;
 import polyglot.translate.ext.ToExt_c;
 import polyglot.types.TypeSystem;
@@ -69,6 +70,7 @@ public abstract class AbstractExtensionInfo implements ExtensionInfo {
     protected FileManager extFM;
     protected ClassFileLoader classFileLoader;
     protected List<Location> default_locations;
+    protected TemplateCache qqTemplates;
 
     @Override
     public abstract Goal getCompileGoal(Job job);
@@ -163,7 +165,9 @@ public abstract class AbstractExtensionInfo implements ExtensionInfo {
                             extFileManager(),
                             getOptions().source_output,
                             getOptions().output_ext,
-                            getOptions().output_stdout);
+                            getOptions().output_stdout,
+                            getOptions().output_threads,
+                            getOptions().skip_unchanged_output);
         }
 
         return target_factory;
@@ -210,6 +214,14 @@ public abstract class AbstractExtensionInfo implements ExtensionInfo {
     @Override
     public abstract Parser parser(Reader reader, Source source, ErrorQueue eq);
 
+    @Override
+    public TemplateCache qqTemplates() {
+        if (qqTemplates == null) {
+            qqTemplates = new TemplateCache();
+        }
+        return qqTemplates;
+    }
+
     @Override
     public String toString() {
         return getClass().getName();
@@ -26,26 +26,35 @@
 
 package polyglot.frontend;
 
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.tools.JavaFileObject;
 
 import polyglot.frontend.Source.Kind;
 import polyglot.frontend.goals.Goal;
 import polyglot.main.Options;
+import polyglot.main.Report;
 import polyglot.types.reflect.ClassFileLoader;
+import polyglot.util.CacheMetrics;
 import polyglot.util.CodeWriter;
 import polyglot.util.ErrorInfo;
 import polyglot.util.ErrorLimitError;
 import polyglot.util.ErrorQueue;
 import polyglot.util.InternalCompilerError;
+import polyglot.util.JsonWriter;
 import polyglot.util.OptimalCodeWriter;
 import polyglot.util.SimpleCodeWriter;
 import polyglot.util.StdErrorQueue;
@@ -77,6 +86,12 @@ public class Compiler {
      */
     private Collection<JavaFileObject> outputFiles = new LinkedHashSet<>();
 
+    /**
+     * The output files left untouched because their content was unchanged,
+     * a subset of {@code outputFiles}.
+     */
+    private Collection<JavaFileObject> unchangedOutputFiles = new LinkedHashSet<>();
+
     /**
      * A Job contains the Output AST generated by the compiler for a given input source file
      */
@@ -93,7 +108,9 @@ public class Compiler {
                 new StdErrorQueue(
                         System.err,
                         extensionInfo.getOptions().error_count,
-                        extensionInfo.compilerName()));
+                        extensionInfo.compilerName(),
+                        extensionInfo.getOptions().sort_errors,
+                        extensionInfo.getOptions().json_errors));
     }
 
     /**
@@ -117,6 +134,15 @@ public class Compiler {
         return outputFiles;
     }
 
+    /**
+     * Return the output files that were left untouched because their
+     * content was unchanged.  These are also among the
+     * {@code outputFiles}.
+     */
+    public Collection<JavaFileObject> unchangedOutputFiles() {
+        return unchangedOutputFiles;
+    }
+
     /**
      * Compile all the files listed in the set of strings {@code source}.
      * Return true on success. The method {@code outputFiles} can be
@@ -229,6 +255,17 @@ public class Compiler {
 
                 // Then, compile the files to completion.
                 okay = scheduler.runToCompletion();
+
+                // Wait for the output files still being written.
+                Set<URI> unchanged = new HashSet<>();
+                for (ExtensionInfo ext : allExtensions) {
+                    TargetFactory tf = ext.targetFactory();
+                    okay &= tf.finishOutput(eq);
+                    unchanged.addAll(tf.unchangedFiles());
+                }
+                for (JavaFileObject f : outputFiles) {
+                    if (unchanged.contains(f.toUri())) unchangedOutputFiles.add(f);
+                }
             } catch (InternalCompilerError e) {
                 // Report it like other errors, but rethrow to get the stack trace.
                 try {
@@ -249,9 +286,51 @@ public class Compiler {
 
         for (ExtensionInfo ext : allExtensions) ext.getStats().report();
 
+        if (Report.should_report(Report.cache, 1)) CacheMetrics.reportAll();
+
+        writeProfiles();
+
         return okay;
     }
 
+    /**
+     * Write the profile and trace files requested on the command line, if any.
+     */
+    protected void writeProfiles() {
+        Options options = extensionInfo.getOptions();
+        if (options.profile_file != null) writeProfile(options.profile_file, false);
+        if (options.trace_file != null) writeProfile(options.trace_file, true);
+    }
+
+    /**
+     * Write the profiles collected by the {@code Stats} of all extensions
+     * to {@code file}, either as a JSON profile or as a Chrome trace.
+     */
+    protected void writeProfile(File file, boolean trace) {
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            JsonWriter w = new JsonWriter(out);
+            w.beginObject();
+            if (trace) {
+                w.member("displayTimeUnit", "ms");
+                w.name("traceEvents").beginArray();
+                for (ExtensionInfo ext : allExtensions) ext.getStats().exportTraceEvents(w);
+                w.endArray();
+            } else {
+                w.name("extensions").beginArray();
+                for (ExtensionInfo ext : allExtensions) ext.getStats().exportProfile(w);
+                w.endArray();
+                w.name("caches");
+                CacheMetrics.exportAll(w);
+            }
+            w.endObject();
+        } catch (IOException e) {
+            eq.enqueue(
+                    ErrorInfo.IO_ERROR,
+                    "Could not write profile to " + file + ": " + e.getMessage());
+            eq.flush();
+        }
+    }
+
     /** Get the compiler's class file loader. */
     public ClassFileLoader loader() {
         return loader;
@@ -316,20 +395,20 @@ public class Compiler {
     }
 
     public static CodeWriter createCodeWriter(OutputStream w) {
-        return createCodeWriter(w, Options.global.output_width);
+        return createCodeWriter(w, Options.global().output_width);
     }
 
     public static CodeWriter createCodeWriter(OutputStream w, int width) {
-        if (Options.global.use_simple_code_writer) return new SimpleCodeWriter(w, width);
+        if (Options.global().use_simple_code_writer) return new SimpleCodeWriter(w, width);
         else return new OptimalCodeWriter(w, width);
     }
 
     public static CodeWriter createCodeWriter(Writer w) {
-        return createCodeWriter(w, Options.global.output_width);
+        return createCodeWriter(w, Options.global().output_width);
     }
 
     public static CodeWriter createCodeWriter(Writer w, int width) {
-        if (Options.global.use_simple_code_writer) return new SimpleCodeWriter(w, width);
+        if (Options.global().use_simple_code_writer) return new SimpleCodeWriter(w, width);
         else return new OptimalCodeWriter(w, width);
     }
 }
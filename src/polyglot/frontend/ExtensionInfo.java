@@ -40,6 +40,7 @@ import polyglot.filemanager.FileManager;
 import polyglot.frontend.Source.Kind;
 import polyglot.frontend.goals.Goal;
 import polyglot.main.Options;
+import polyglot.qq.TemplateCache;
 import polyglot.translate.ext.ToExt;
 import polyglot.types.TypeSystem;
 import polyglot.types.reflect.ClassFile;
@@ -137,6 +138,12 @@ public interface ExtensionInfo {
     /** Get a parser for this language extension. */
     Parser parser(Reader reader, Source source, ErrorQueue eq);
 
+    /**
+     * Get the cache of quasiquoting templates that create AST nodes of this
+     * language extension.
+     */
+    TemplateCache qqTemplates();
+
     /**
      * Get the ToExt extension object used for translating AST nodes to the
      * to_ext language.
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.frontend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import polyglot.frontend.goals.Goal;
+
+/**
+ * The goals of a scheduler, numbered densely in the order they are first
+ * seen, and the prerequisite edges added between them through the
+ * scheduler.  Sets of goals can be represented as bit sets over the goal
+ * numbers.
+ *
+ * The graph keeps a topological order of its goals up to date as edges are
+ * added, using the algorithm of Pearce and Kelly, so an edge that would
+ * close a cycle is detected by visiting only the goals whose order it
+ * affects.  Prerequisites that goals compute on demand rather than record
+ * through the scheduler are not part of the graph.
+ */
+public class GoalGraph {
+    /** The number of each goal. */
+    protected Map<Goal, Integer> ids = new IdentityHashMap<>();
+
+    /** The goal with each number. */
+    protected List<Goal> goals = new ArrayList<>();
+
+    /** The prerequisites of each goal. */
+    protected int[][] prereqs = new int[16][];
+
+    /** The goals that have each goal as a prerequisite. */
+    protected int[][] dependents = new int[16][];
+
+    /** The position of each goal in the topological order. */
+    protected int[] ord = new int[16];
+
+    /** Goals visited by the current reordering. */
+    protected BitSet visited = new BitSet();
+
+    /** An empty list in the format of {@link #append(int[], int)}. */
+    protected static final int[] NONE = new int[] {1};
+
+    /** Return the number of {@code g}, numbering it if it is new. */
+    public int id(Goal g) {
+        Integer id = ids.get(g);
+        if (id != null) return id;
+        int n = goals.size();
+        if (n == ord.length) {
+            ord = Arrays.copyOf(ord, 2 * n);
+            prereqs = Arrays.copyOf(prereqs, 2 * n);
+            dependents = Arrays.copyOf(dependents, 2 * n);
+        }
+        ord[n] = n;
+        prereqs[n] = NONE;
+        dependents[n] = NONE;
+        goals.add(g);
+        ids.put(g, n);
+        return n;
+    }
+
+    /** Return the goal numbered {@code id}. */
+    public Goal goal(int id) {
+        return goals.get(id);
+    }
+
+    /** The number of goals in the graph. */
+    public int size() {
+        return goals.size();
+    }
+
+    /**
+     * Add the edge from goal {@code g} to its prerequisite {@code p}, unless
+     * it would close a cycle.
+     *
+     * @return false, leaving the graph unchanged, if {@code g} is already
+     *         a prerequisite of {@code p}, directly or transitively.
+     */
+    public boolean addPrerequisite(int g, int p) {
+        if (g == p) return false;
+        int lb = ord[g];
+        int ub = ord[p];
+        if (lb < ub) {
+            // p must now precede g.  Find the dependents of g that come no
+            // later than p, and the prerequisites of p that come no earlier
+            // than g: only these need to move.
+            int[] forward = reach(g, dependents, lb, ub, p);
+            if (forward == null) return false;
+            int[] backward = reach(p, prereqs, lb, ub, -1);
+            reorder(backward, forward);
+        }
+        prereqs[g] = append(prereqs[g], p);
+        dependents[p] = append(dependents[p], g);
+        return true;
+    }
+
+    /**
+     * Return the goals reachable from {@code start} along {@code edges}
+     * whose position is in [lb, ub], or null if {@code stop} is one of them.
+     */
+    protected int[] reach(int start, int[][] edges, int lb, int ub, int stop) {
+        int[] found = new int[] {2, start};
+        visited.set(start);
+        for (int i = 1; i < found[0]; i++) {
+            int[] out = edges[found[i]];
+            for (int j = 1; j < out[0]; j++) {
+                int v = out[j];
+                if (v == stop) {
+                    clear(found);
+                    return null;
+                }
+                if (!visited.get(v) && ord[v] >= lb && ord[v] <= ub) {
+                    visited.set(v);
+                    found = append(found, v);
+                }
+            }
+        }
+        clear(found);
+        return found;
+    }
+
+    /**
+     * Give the goals of {@code before} and then those of {@code after} the
+     * positions they occupy between them, preserving the order within each.
+     */
+    protected void reorder(int[] before, int[] after) {
+        int nb = before[0] - 1;
+        int na = after[0] - 1;
+        int[] nodes = new int[nb + na];
+        System.arraycopy(before, 1, nodes, 0, nb);
+        System.arraycopy(after, 1, nodes, nb, na);
+        int[] slots = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) slots[i] = ord[nodes[i]];
+        Arrays.sort(slots);
+        sortByOrd(nodes, 0, nb);
+        sortByOrd(nodes, nb, nodes.length);
+        for (int i = 0; i < nodes.length; i++) ord[nodes[i]] = slots[i];
+    }
+
+    private void sortByOrd(int[] nodes, int from, int to) {
+        // The sets are small; insertion sort avoids boxing.
+        for (int i = from + 1; i < to; i++) {
+            int v = nodes[i];
+            int j = i - 1;
+            while (j >= from && ord[nodes[j]] > ord[v]) {
+                nodes[j + 1] = nodes[j];
+                j--;
+            }
+            nodes[j + 1] = v;
+        }
+    }
+
+    private void clear(int[] found) {
+        for (int i = 1; i < found[0]; i++) visited.clear(found[i]);
+    }
+
+    /**
+     * Append {@code v} to a list stored as the index past its last element
+     * followed by its elements, growing the array if needed.
+     */
+    protected static int[] append(int[] list, int v) {
+        int n = list[0];
+        if (n == list.length) list = Arrays.copyOf(list, 2 * n);
+        list[n] = v;
+        list[0] = n + 1;
+        return list;
+    }
+}
@@ -26,8 +26,13 @@
 
 package polyglot.frontend;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
 import polyglot.ast.Node;
 import polyglot.util.CodeWriter;
+import polyglot.util.InternalCompilerError;
 
 /**
  * A {@code Job} encapsulates work done by the compiler for a single
@@ -47,6 +52,18 @@ public class Job {
     /** The AST constructed from the source file. */
     protected Node ast;
 
+    /** The AST written out by {@code spill}, or null if the AST is in memory. */
+    protected SpilledAst spilled;
+
+    /** The value of {@code clock} when the AST was last requested. */
+    protected long lastUse;
+
+    /** Counter used to order jobs by when their ASTs were last requested. */
+    protected static final AtomicLong clock = new AtomicLong();
+
+    /** The number of unreleased calls to {@code pin}. */
+    protected int pins;
+
     /** The pass currently running over the job, or null. */
     protected Pass runningPass;
 
@@ -110,24 +127,81 @@ public class Job {
         return runningPass;
     }
 
-    /** Get the state's AST. */
+    /** Get the state's AST, reloading it if it was spilled. */
     public Node ast() {
+        if (spilled != null) {
+            ast = spilled.reload();
+            spilled = null;
+        }
+        lastUse = clock.incrementAndGet();
         return ast;
     }
 
     /** Set the state's AST. */
     public void ast(Node ast) {
+        if (spilled != null) {
+            spilled.discard();
+            spilled = null;
+        }
+        lastUse = clock.incrementAndGet();
         this.ast = ast;
     }
 
+    /**
+     * Write the AST to a temporary file in {@code dir} and release it from
+     * memory. The AST is reloaded the next time it is requested.  Pinned
+     * jobs keep their AST in memory.
+     */
+    public void spill(File dir) throws IOException {
+        if (ast != null && spilled == null && !isPinned()) {
+            spilled = SpilledAst.spill(ast, dir);
+            ast = null;
+        }
+    }
+
+    /**
+     * Keep the AST in memory until a matching call to {@code unpin}.  A pass
+     * that remembers nodes of the AST by identity from one run to the next
+     * must pin the job, since a reloaded AST consists of new nodes.
+     */
+    public void pin() {
+        pins++;
+    }
+
+    /** Release a call to {@code pin}. */
+    public void unpin() {
+        if (pins == 0) throw new InternalCompilerError("Job " + this + " is not pinned");
+        pins--;
+    }
+
+    /** True if the AST must not be spilled. */
+    public boolean isPinned() {
+        return pins > 0;
+    }
+
+    /** True if the AST is currently written out to disk. */
+    public boolean isSpilled() {
+        return spilled != null;
+    }
+
+    /** True if the AST is in memory. */
+    public boolean isResident() {
+        return ast != null;
+    }
+
+    /** The time the AST was last requested, relative to other jobs. */
+    public long lastUse() {
+        return lastUse;
+    }
+
     /** True if some pass reported an error. */
     public boolean reportedErrors() {
         return reportedErrors;
     }
 
     public void dump(CodeWriter cw) {
-        if (ast != null) {
-            ast.dump(cw);
+        if (ast != null || spilled != null) {
+            ast().dump(cw);
         }
     }
 
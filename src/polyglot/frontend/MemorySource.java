@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.frontend;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.tools.JavaFileObject;
+
+import polyglot.filemanager.ExtFileObject;
+import polyglot.util.InternalCompilerError;
+
+/**
+ * A source held in memory rather than in a file.  A memory source is named
+ * by a virtual path relative to the source path, such as
+ * {@code "p/C.jl"}, which is used in place of a file name in error
+ * messages.  Its contents are given either as text or as bytes, and are
+ * encoded in UTF-8 whatever the platform encoding: the bytes of a source
+ * given as text are its UTF-8 encoding, and a source given as bytes is
+ * decoded as UTF-8.
+ */
+public class MemorySource extends Source_c {
+    /** The virtual path of the source. */
+    protected final String path;
+
+    /** The text of the source, or null if it was given as bytes. */
+    protected final CharSequence text;
+
+    public MemorySource(String path, CharSequence text) {
+        this(path, text, text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Create a source from the remaining bytes of {@code contents}, without
+     * changing its position.
+     */
+    public MemorySource(String path, ByteBuffer contents) {
+        this(path, null, bytes(contents));
+    }
+
+    protected MemorySource(String path, CharSequence text, byte[] bytes) {
+        super(fileObject(path, bytes), Kind.USER_SPECIFIED);
+        this.path = path;
+        this.text = text;
+    }
+
+    private static byte[] bytes(ByteBuffer contents) {
+        byte[] bytes = new byte[contents.remaining()];
+        contents.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static ExtFileObject fileObject(String path, byte[] bytes) {
+        try {
+            URI uri = new URI("memory", null, "/" + path, null);
+            return new ExtFileObject(
+                    uri, JavaFileObject.Kind.OTHER, new ByteArrayInputStream(bytes));
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid source path " + path, e);
+        } catch (IOException e) {
+            throw new InternalCompilerError(e);
+        }
+    }
+
+    @Override
+    public String name() {
+        return path;
+    }
+
+    @Override
+    public String path() {
+        return path;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+        if (text != null) return text;
+        StringBuilder sb = new StringBuilder();
+        try (Reader r = openReader(ignoreEncodingErrors)) {
+            char[] buf = new char[4096];
+            for (int n; (n = r.read(buf)) != -1; ) sb.append(buf, 0, n);
+        }
+        return sb;
+    }
+
+    @Override
+    public Reader openReader(boolean ignoreEncodingErrors) throws IOException {
+        if (text != null) return new StringReader(text.toString());
+        return new InputStreamReader(openInputStream(), StandardCharsets.UTF_8);
+    }
+}
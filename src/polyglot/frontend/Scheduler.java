@@ -26,9 +26,16 @@
 
 package polyglot.frontend;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -36,12 +43,15 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import polyglot.ast.Lang;
 import polyglot.ast.Node;
 import polyglot.frontend.goals.AbstractGoal;
 import polyglot.frontend.goals.EndGoal;
+import polyglot.frontend.goals.FusedVisitorGoal;
 import polyglot.frontend.goals.Goal;
+import polyglot.frontend.goals.VisitorGoal;
 import polyglot.main.Main;
 import polyglot.main.Options;
 import polyglot.main.Report;
@@ -51,6 +61,7 @@ import polyglot.util.ErrorInfo;
 import polyglot.util.ErrorQueue;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.StringUtil;
+import polyglot.visit.FusibleVisitor;
 
 /**
  * The {@code Scheduler} manages {@code Goal}s and runs
@@ -74,6 +85,9 @@ import polyglot.util.StringUtil;
  * on this run so that it will be added back to the worklist; the pass
  * must also add any missing dependencies.
  *
+ * A scheduler is used only by the thread compiling for its extension, so
+ * its goals and dependency graph are not locked.
+ *
  * @author nystrom
  */
 public abstract class Scheduler {
@@ -100,6 +114,21 @@ public abstract class Scheduler {
     /** Map from goals to goals used to intern goals. */
     protected Map<Goal, Goal> goals;
 
+    /** Numbers of the interned goals and the prerequisite edges between them. */
+    protected GoalGraph graph;
+
+    /**
+     * The goals being attempted by each active call of
+     * {@link #attemptGoal(Goal)}, which may be reentered by a running pass.
+     */
+    protected List<BitSet> attempting;
+
+    /** The number of active calls of {@link #attemptGoal(Goal)}. */
+    protected int attemptDepth;
+
+    /** Map from goals to the fused goals that reach them. */
+    protected Map<Goal, Goal> fusedGoals;
+
     /** Map from goals to number of times a pass was run for the goal. */
     protected Map<Goal, Integer> runCount;
 
@@ -114,6 +143,9 @@ public abstract class Scheduler {
 
         jobs = new LinkedHashMap<>();
         goals = new LinkedHashMap<>();
+        graph = new GoalGraph();
+        attempting = new ArrayList<>();
+        fusedGoals = new HashMap<>();
         runCount = new LinkedHashMap<>();
         inWorklist = new LinkedHashSet<>();
         worklist = new LinkedList<>();
@@ -129,12 +161,22 @@ public abstract class Scheduler {
     }
 
     public boolean prerequisiteDependsOn(Goal goal, Goal subgoal) {
+        return prerequisiteDependsOn(goal, subgoal, new BitSet());
+    }
+
+    protected boolean prerequisiteDependsOn(Goal goal, Goal subgoal, BitSet visited) {
         if (goal == subgoal) {
             return true;
         }
 
+        int id = goalId(goal);
+        if (visited.get(id)) {
+            return false;
+        }
+        visited.set(id);
+
         for (Goal g : goal.prerequisiteGoals(this)) {
-            if (prerequisiteDependsOn(g, subgoal)) {
+            if (prerequisiteDependsOn(g, subgoal, visited)) {
                 return true;
             }
         }
@@ -187,6 +229,10 @@ public abstract class Scheduler {
         if (!goal.prerequisiteGoals(this).contains(subgoal)) {
             if (Report.should_report(Report.frontend, 3) || Report.should_report("deps", 1))
                 Report.report(3, "Adding prereq edge: " + subgoal + " => " + goal);
+            if (!graph.addPrerequisite(graph.id(goal), graph.id(subgoal))) {
+                throw new CyclicDependencyException(
+                        "Goal " + goal + " is a prerequisite of " + subgoal + ".");
+            }
             goal.addPrerequisiteGoal(subgoal, this);
         }
     }
@@ -200,17 +246,184 @@ public abstract class Scheduler {
         }
     }
 
+    /**
+     * Schedule {@code goals} so that goals whose visitors are
+     * {@link FusibleVisitor fusible} share traversals of the AST where
+     * their dependencies allow.  Goals are assigned to the earliest stage
+     * after all the goals they (transitively) depend on; a fusible goal that
+     * would run alone is moved to a later stage that has other fusible goals
+     * when no dependency prevents it.  The fusible goals of each stage are
+     * replaced by a single {@link FusedVisitorGoal}, and each stage is made a
+     * prerequisite of the next.  Attempting a goal that has been fused
+     * attempts the fused goal instead.
+     *
+     * @param goals interned goals of the same job, in their preferred order
+     * @return the goals to run in place of {@code goals}, in order
+     */
+    public List<Goal> fuse(List<Goal> goals) {
+        int n = goals.size();
+
+        // deps[i][j] iff goals[i] transitively requires goals[j].
+        boolean[][] deps = new boolean[n][n];
+        for (int i = 0; i < n; i++) {
+            LinkedList<Goal> frontier = new LinkedList<>(goals.get(i).prerequisiteGoals(this));
+            Set<Goal> seen = new HashSet<>();
+            while (!frontier.isEmpty()) {
+                Goal g = frontier.removeFirst();
+                if (!seen.add(g)) continue;
+                int j = goals.indexOf(g);
+                if (j >= 0) deps[i][j] = true;
+                frontier.addAll(g.prerequisiteGoals(this));
+            }
+        }
+
+        // Assign each goal the earliest level after its dependencies.
+        int[] level = new int[n];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (deps[i][j] && level[i] <= level[j]) {
+                        level[i] = level[j] + 1;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        // Move lone fusible goals later to join other fusible goals.
+        for (int i = n - 1; i >= 0; i--) {
+            if (!fusible(goals.get(i)) || fusibleAt(goals, level, level[i], i) > 0) continue;
+            int max = 0;
+            for (int k = 0; k < n; k++) {
+                max = Math.max(max, level[k]);
+            }
+            for (int k = 0; k < n; k++) {
+                if (deps[k][i]) max = Math.min(max, level[k] - 1);
+            }
+            for (int l = level[i] + 1; l <= max; l++) {
+                if (fusibleAt(goals, level, l, i) > 0) {
+                    level[i] = l;
+                    break;
+                }
+            }
+        }
+
+        // Group the goals into stages.
+        List<List<Goal>> stages = new ArrayList<>();
+        List<Integer> stageLevels = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Goal g = goals.get(i);
+            List<Goal> stage = null;
+            if (fusible(g)) {
+                for (int s = 0; s < stages.size(); s++) {
+                    if (stageLevels.get(s) == level[i] && fusible(stages.get(s).get(0))) {
+                        stage = stages.get(s);
+                    }
+                }
+            }
+            if (stage == null) {
+                stage = new ArrayList<>();
+                stages.add(stage);
+                stageLevels.add(level[i]);
+            }
+            stage.add(g);
+        }
+
+        // Order the stages, preferring the earliest declared goal among the
+        // stages whose dependencies have been scheduled.
+        List<Goal> result = new ArrayList<>();
+        Set<Goal> scheduled = new HashSet<>();
+        while (!stages.isEmpty()) {
+            List<Goal> next = null;
+            for (List<Goal> stage : stages) {
+                if (ready(goals, deps, stage, scheduled)) {
+                    next = stage;
+                    break;
+                }
+            }
+            if (next == null) {
+                throw new InternalCompilerError("Cannot order fused goals " + stages);
+            }
+            stages.remove(next);
+            scheduled.addAll(next);
+            result.add(fusedGoal(goals, next));
+        }
+
+        try {
+            addPrerequisiteDependencyChain(result);
+        } catch (CyclicDependencyException e) {
+            throw new InternalCompilerError(e);
+        }
+        return result;
+    }
+
+    /** Can the visitor of {@code g} share a traversal with other visitors? */
+    protected boolean fusible(Goal g) {
+        return g instanceof VisitorGoal && ((VisitorGoal) g).visitor() instanceof FusibleVisitor;
+    }
+
+    private int fusibleAt(List<Goal> goals, int[] level, int l, int except) {
+        int count = 0;
+        for (int k = 0; k < goals.size(); k++) {
+            if (k != except && level[k] == l && fusible(goals.get(k))) count++;
+        }
+        return count;
+    }
+
+    private boolean ready(
+            List<Goal> goals, boolean[][] deps, List<Goal> stage, Set<Goal> scheduled) {
+        for (Goal g : stage) {
+            int i = goals.indexOf(g);
+            for (int j = 0; j < goals.size(); j++) {
+                if (deps[i][j]
+                        && !stage.contains(goals.get(j))
+                        && !scheduled.contains(goals.get(j))) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the goal that reaches all the goals of {@code stage}, creating
+     * a fused goal if there is more than one.
+     */
+    protected Goal fusedGoal(List<Goal> goals, List<Goal> stage) {
+        if (stage.size() == 1) return stage.get(0);
+
+        List<VisitorGoal> components = new ArrayList<>(stage.size());
+        for (Goal g : stage) {
+            components.add((VisitorGoal) g);
+        }
+        Goal fused = internGoal(new FusedVisitorGoal(stage.get(0).job(), components));
+        try {
+            for (Goal g : stage) {
+                for (Goal prereq : g.prerequisiteGoals(this)) {
+                    if (!goals.contains(prereq)) addPrerequisiteDependency(fused, prereq);
+                }
+            }
+        } catch (CyclicDependencyException e) {
+            throw new InternalCompilerError(e);
+        }
+        for (Goal g : stage) {
+            fusedGoals.put(g, fused);
+        }
+        return fused;
+    }
+
     /**
      * Intern the {@code goal} so that there is only one copy of the goal.
      * All goals passed into and returned by scheduler should be interned.
      * @param goal
      * @return the interned copy of {@code goal}
      */
-    public synchronized Goal internGoal(Goal goal) {
+    public Goal internGoal(Goal goal) {
         Goal g = goals.get(goal);
         if (g == null) {
             g = goal;
             goals.put(g, g);
+            graph.id(g);
             if (Report.should_report(Report.frontend, 4)) Report.report(4, "new goal " + g);
             if (Report.should_report(Report.frontend, 5))
                 Report.report(5, "goals = " + goals.keySet());
@@ -218,6 +431,11 @@ public abstract class Scheduler {
         return g;
     }
 
+    /** Return the dense number of {@code goal}, numbering it if needed. */
+    protected int goalId(Goal goal) {
+        return graph.id(goal);
+    }
+
     /** Add {@code goal} to the worklist. */
     public void addGoal(Goal goal) {
         if (!inWorklist.contains(goal)) {
@@ -241,6 +459,10 @@ public abstract class Scheduler {
     protected void completeJob(Job job) {
         if (job != null) {
             jobs.put(job.source(), Job.COMPLETED);
+            if (heapBudget() > 0) {
+                // Goals keep the job reachable, so drop the AST explicitly.
+                job.ast(null);
+            }
             if (Report.should_report(Report.frontend, 1)) {
                 Report.report(1, "Completed job " + job);
             }
@@ -391,10 +613,21 @@ public abstract class Scheduler {
      *         there was no error, even if the goal was not reached.
      */
     public boolean attemptGoal(Goal goal) {
-        return attemptGoal(goal, new LinkedHashSet<Goal>());
+        if (attemptDepth == attempting.size()) attempting.add(new BitSet());
+        BitSet above = attempting.get(attemptDepth++);
+        try {
+            return attemptGoal(goal, above);
+        } finally {
+            attemptDepth--;
+        }
     }
 
-    protected boolean attemptGoal(Goal goal, Set<Goal> above) {
+    /**
+     * Attempt {@code goal}, given the numbers of the goals being attempted
+     * by the callers.  Each call adds its goal to {@code above} while it
+     * runs, and removes it again before returning.
+     */
+    protected boolean attemptGoal(Goal goal, BitSet above) {
         if (Report.should_report("dump-dep-graph", 2)) dumpInFlightDependenceGraph();
 
         if (Report.should_report(Report.frontend, 2)) Report.report(2, "Running to goal " + goal);
@@ -405,17 +638,29 @@ public abstract class Scheduler {
             Report.report(4, "  Corequisites for " + goal + " = " + goal.corequisiteGoals(this));
         }
 
-        if (above.contains(goal)) {
+        int id = goalId(goal);
+        if (above.get(id)) {
             if (Report.should_report(Report.frontend, 4))
                 Report.report(4, goal + " is being attempted by a caller; returning");
             return true;
         }
 
-        boolean progress = true;
+        Goal fused = fusedGoals.get(goal);
+        if (fused != null && !reached(goal)) {
+            return attemptGoal(fused, above);
+        }
 
-        Set<Goal> newAbove = new LinkedHashSet<>();
-        newAbove.addAll(above);
-        newAbove.add(goal);
+        above.set(id);
+        try {
+            return attemptGoalAbove(goal, above);
+        } finally {
+            above.clear(id);
+        }
+    }
+
+    /** Attempt {@code goal}, which has been added to {@code above}. */
+    private boolean attemptGoalAbove(Goal goal, BitSet above) {
+        boolean progress = true;
 
         // Loop over the goal and its coreqs as long as progress is made.
         while (progress && !reached(goal)) {
@@ -425,7 +670,7 @@ public abstract class Scheduler {
                 Report.report(4, "outer loop for " + goal);
 
             // Run the prereqs of the goal.
-            for (Goal subgoal : new ArrayList<>(goal.prerequisiteGoals(this))) {
+            for (Goal subgoal : goal.prerequisiteGoals(this).toArray(new Goal[0])) {
                 if (reached(subgoal)) {
                     continue;
                 }
@@ -433,7 +678,7 @@ public abstract class Scheduler {
                 if (Report.should_report(Report.frontend, 4))
                     Report.report(4, "running prereq: " + subgoal + "->" + goal);
 
-                if (!attemptGoal(subgoal, newAbove)) {
+                if (!attemptGoal(subgoal, above)) {
                     return false;
                 }
 
@@ -475,7 +720,7 @@ public abstract class Scheduler {
             }
 
             // If the goal was not reached, run the coreqs of the goal.
-            for (Goal subgoal : new ArrayList<>(goal.corequisiteGoals(this))) {
+            for (Goal subgoal : goal.corequisiteGoals(this).toArray(new Goal[0])) {
                 if (reached(subgoal)) {
                     continue;
                 }
@@ -483,7 +728,7 @@ public abstract class Scheduler {
                 if (Report.should_report(Report.frontend, 4))
                     Report.report(4, "running coreq: " + subgoal + "->" + goal);
 
-                if (!attemptGoal(subgoal, newAbove)) {
+                if (!attemptGoal(subgoal, above)) {
                     return false;
                 }
 
@@ -500,6 +745,20 @@ public abstract class Scheduler {
         return true;
     }
 
+    /** Describe the state a pass run left its goal in, for profiling. */
+    protected String goalOutcome(Goal goal, boolean result) {
+        if (!result) return "failed";
+        switch (goal.state()) {
+            case Goal.REACHED:
+                return "reached";
+            case Goal.RUNNING:
+                // The pass threw an exception.
+                return "aborted";
+            default:
+                return "unreached";
+        }
+    }
+
     protected boolean runGoal(Goal goal) {
         if (reached(goal)) {
             if (Report.should_report(Report.frontend, 3))
@@ -619,6 +878,11 @@ public abstract class Scheduler {
             long t = System.currentTimeMillis();
             String key = goal.toString();
 
+            Stats.PassRun profile =
+                    extInfo.getStats().profiling()
+                            ? extInfo.getStats().startPassRun(pass, count)
+                            : null;
+
             extInfo.getStats().accumPassTimes(key + " attempts", 1, 1);
             extInfo.getStats().accumPassTimes("total goal attempts", 1, 1);
 
@@ -682,6 +946,16 @@ public abstract class Scheduler {
             } finally {
                 t = System.currentTimeMillis() - t;
                 extInfo.getStats().accumPassTimes(key, t, t);
+                if (count > 1) {
+                    // Time spent rerunning passes for goals not reached the first time.
+                    extInfo.getStats().accumPassTimes(key + " reruns", 1, 1);
+                    extInfo.getStats().accumPassTimes(key + " rerun time", t, t);
+                    extInfo.getStats().accumPassTimes("total goal rerun time", t, t);
+                }
+
+                if (profile != null) {
+                    extInfo.getStats().finishPassRun(profile, goalOutcome(goal, result));
+                }
 
                 pass.toggleTimers(false);
 
@@ -760,9 +1034,94 @@ public abstract class Scheduler {
             job.updateStatus(result);
         }
 
+        governMemory();
+
         return result;
     }
 
+    /**
+     * The heap budget in bytes, or 0 if the memory used by ASTs is not
+     * governed.  The budget is set on the command line of the source
+     * extension, so that the output extension is governed too.
+     */
+    protected long heapBudget() {
+        Compiler compiler = extInfo.compiler();
+        Options options =
+                compiler != null ? compiler.sourceExtension().getOptions() : extInfo.getOptions();
+        return options.heap_budget * 1024L * 1024L;
+    }
+
+    /**
+     * The number of most recently used ASTs that are never spilled, since
+     * they are likely to be needed again soon.
+     */
+    protected int residentJobs() {
+        return 16;
+    }
+
+    /**
+     * If the heap in use is over budget, write the ASTs of the least recently
+     * used jobs to disk. A spilled AST is reloaded when its job next needs
+     * it. Jobs with a running pass and pinned jobs are never spilled.
+     */
+    protected void governMemory() {
+        long budget = heapBudget();
+        if (budget <= 0 || heapInUse() <= budget) return;
+
+        List<Job> idle = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (job != Job.COMPLETED && job.isResident() && !job.isRunning() && !job.isPinned()) {
+                idle.add(job);
+            }
+        }
+
+        Collections.sort(
+                idle,
+                new Comparator<Job>() {
+                    @Override
+                    public int compare(Job j1, Job j2) {
+                        return Long.compare(j1.lastUse(), j2.lastUse());
+                    }
+                });
+
+        for (int i = 0; i < idle.size() - residentJobs(); i++) {
+            Job job = idle.get(i);
+            try {
+                job.spill(null);
+                if (Report.should_report(Report.frontend, 2))
+                    Report.report(2, "Spilled AST of " + job);
+            } catch (IOException e) {
+                extInfo.compiler()
+                        .errorQueue()
+                        .enqueue(
+                                ErrorInfo.WARNING,
+                                "Could not write AST of " + job + " to disk: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Estimate the amount of heap holding live data: the heap in use, not
+     * counting the young generation's allocation space, which is mostly
+     * garbage.
+     */
+    protected static long heapInUse() {
+        long used = 0;
+        boolean found = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && !pool.getName().contains("Eden")) {
+                used += pool.getUsage().getUsed();
+                found = true;
+            }
+        }
+        if (!found) {
+            Runtime r = Runtime.getRuntime();
+            used = r.totalMemory() - r.freeMemory();
+        }
+        return used;
+    }
+
     protected static String statusString(boolean okay) {
         if (okay) {
             return "done";
@@ -889,7 +1248,7 @@ public abstract class Scheduler {
         return getClass().getName() + " worklist=" + worklist;
     }
 
-    protected static int dumpCounter = 0;
+    protected static final AtomicInteger dumpCounter = new AtomicInteger();
 
     protected Goal infiniteLoopGoal = null;
     protected int infiniteFrontEnd;
@@ -908,7 +1267,7 @@ public abstract class Scheduler {
      */
     protected void dumpDependenceGraph() {
         String name = "FullDepGraph";
-        name += dumpCounter++;
+        name += dumpCounter.getAndIncrement();
 
         Report.report(2, "digraph " + name + " {");
         Report.report(2, "  fontsize=20; center=true; ratio=auto; size = \"8.5,11\";");
@@ -943,7 +1302,7 @@ public abstract class Scheduler {
      */
     protected void dumpInFlightDependenceGraph() {
         String name = "InFlightDepGraph";
-        name += dumpCounter++;
+        name += dumpCounter.getAndIncrement();
 
         Report.report(2, "digraph " + name + " {");
         Report.report(2, "  fontsize=20; center=true; ratio=auto; size = \"8.5,11\";");
@@ -1004,7 +1363,7 @@ public abstract class Scheduler {
      */
     protected void dumpDependenceGraph(Goal g) {
         String name = "DepGraph";
-        name += dumpCounter++;
+        name += dumpCounter.getAndIncrement();
 
         Report.report(2, "digraph " + name + " {");
         Report.report(2, "  fontsize=20; center=true; ratio=auto; size = \"8.5,11\";");
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.frontend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import polyglot.ast.Node;
+import polyglot.ast.NodeOps;
+import polyglot.util.InternalCompilerError;
+import polyglot.util.Position;
+
+/**
+ * An AST that has been written to a temporary file to reduce the memory
+ * footprint of the compiler.
+ *
+ * Only the structure of the AST is written out: nodes, extensions,
+ * delegates, positions, strings, boxed values, arrays and collections.
+ * Every other object, in particular type objects and the enumerations that
+ * are compared by identity, is shared with the rest of the compiler and is
+ * therefore kept in memory and written as a handle; when the AST is
+ * reloaded, the handles are replaced with the original objects, so the
+ * reloaded AST refers to exactly the same objects as the AST that was
+ * spilled.  The nodes themselves are new, however, so a pass that keeps
+ * nodes by identity must pin its job (see {@link Job#pin()}).
+ */
+public class SpilledAst {
+    /** The file the AST was written to. */
+    protected File file;
+
+    /** The objects referenced from the AST that were not written out. */
+    protected List<Object> retained;
+
+    protected SpilledAst(File file, List<Object> retained) {
+        this.file = file;
+        this.retained = retained;
+    }
+
+    /** Write {@code ast} to a temporary file in {@code dir}. */
+    public static SpilledAst spill(Node ast, File dir) throws IOException {
+        File file = File.createTempFile("polyglot-ast", ".ser", dir);
+        file.deleteOnExit();
+        try (SpillOutputStream out =
+                new SpillOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeObject(ast);
+            return new SpilledAst(file, out.retained);
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+    }
+
+    /** Read the AST back in and delete the temporary file. */
+    public Node reload() {
+        try (SpillInputStream in =
+                new SpillInputStream(
+                        new BufferedInputStream(new FileInputStream(file)), retained)) {
+            return (Node) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new InternalCompilerError("Could not reload AST from " + file, e);
+        } finally {
+            discard();
+        }
+    }
+
+    /** Delete the temporary file without reading the AST back in. */
+    public void discard() {
+        file.delete();
+        retained = null;
+    }
+
+    /** A reference to an object that was kept in memory. */
+    protected static class Handle implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        protected final int index;
+
+        protected Handle(int index) {
+            this.index = index;
+        }
+    }
+
+    protected static class SpillOutputStream extends ObjectOutputStream {
+        protected List<Object> retained = new ArrayList<>();
+        protected Map<Object, Handle> handles = new IdentityHashMap<>();
+
+        protected SpillOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object o) {
+            if (!isStructure(o)) {
+                Handle h = handles.get(o);
+                if (h == null) {
+                    h = new Handle(retained.size());
+                    retained.add(o);
+                    handles.put(o, h);
+                }
+                return h;
+            }
+            return o;
+        }
+
+        /** Should {@code o} be written out rather than kept in memory? */
+        protected boolean isStructure(Object o) {
+            // Nodes, their extensions and their delegates.
+            if (o instanceof NodeOps) return true;
+            if (o instanceof Position || o instanceof String) return true;
+            if (o instanceof Number || o instanceof Boolean || o instanceof Character) {
+                return true;
+            }
+            if (o.getClass().isArray()) return true;
+            return o instanceof Serializable
+                    && (o instanceof Collection || o instanceof Map)
+                    && o.getClass().getName().startsWith("java.util.");
+        }
+    }
+
+    protected static class SpillInputStream extends ObjectInputStream {
+        protected List<Object> retained;
+
+        protected SpillInputStream(InputStream in, List<Object> retained) throws IOException {
+            super(in);
+            this.retained = retained;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object o) {
+            if (o instanceof Handle) {
+                return retained.get(((Handle) o).index);
+            }
+            return o;
+        }
+    }
+}
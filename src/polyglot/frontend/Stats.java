@@ -26,12 +26,20 @@
 
 package polyglot.frontend;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import polyglot.frontend.goals.Goal;
+import polyglot.main.Options;
 import polyglot.main.Report;
+import polyglot.types.CachingResolver;
+import polyglot.util.JsonWriter;
 
 /**
  * Statistics collection and reporting object.
@@ -56,10 +64,151 @@ public class Stats {
      */
     protected List<Object> keys = new ArrayList<>(20);
 
+    /**
+     * A record of a single run of a pass, kept when profiling is enabled.
+     * Times are in nanoseconds, relative to the creation of the Stats
+     * object; allocation is in bytes allocated by the compiler thread.
+     */
+    public static class PassRun {
+        public final String goal;
+        public final String job;
+        public final String pass;
+        /** The number of times a pass has been run for the goal, including this one. */
+        public final int attempt;
+
+        public final int depth;
+        public final long start;
+        public long duration;
+        public long exclusiveDuration;
+        public long allocated;
+        public long exclusiveAllocated;
+        public String outcome;
+
+        protected long startAllocated;
+        protected long childDuration;
+        protected long childAllocated;
+
+        protected PassRun(
+                String goal, String job, String pass, int attempt, int depth, long start) {
+            this.goal = goal;
+            this.job = job;
+            this.pass = pass;
+            this.attempt = attempt;
+            this.depth = depth;
+            this.start = start;
+        }
+    }
+
+    /** Aggregated measurements for a goal or a job. */
+    protected static class Totals {
+        public int runs;
+        public int maxAttempt;
+        public long time;
+        public long exclusiveTime;
+        public long allocated;
+        public long rerunTime;
+
+        protected void add(PassRun r) {
+            runs++;
+            maxAttempt = Math.max(maxAttempt, r.attempt);
+            time += r.duration;
+            exclusiveTime += r.exclusiveDuration;
+            allocated += r.exclusiveAllocated;
+            if (r.attempt > 1) rerunTime += r.duration;
+        }
+    }
+
+    /** Runs of passes recorded when profiling, in the order they started. */
+    protected List<PassRun> passRuns = new ArrayList<>();
+
+    /** Runs of passes that have started but not finished, innermost last. */
+    protected List<PassRun> runningPasses = new ArrayList<>();
+
+    /** Time origin for the start times of pass runs. */
+    protected final long epoch = System.nanoTime();
+
     public Stats(ExtensionInfo ext) {
         this.ext = ext;
     }
 
+    /**
+     * Return true if passes should be profiled.  Profiling is controlled by
+     * the options of the source extension, so that passes of an output
+     * extension are profiled along with those of the source extension.
+     */
+    public boolean profiling() {
+        Compiler compiler = ext.compiler();
+        Options options =
+                compiler != null ? compiler.sourceExtension().getOptions() : ext.getOptions();
+        return options.profile_file != null || options.trace_file != null;
+    }
+
+    /**
+     * Record the start of a run of {@code pass}.  The returned object should
+     * be passed to {@code finishPassRun} when the pass has finished.
+     *
+     * @param attempt the number of times a pass has been run for the pass's goal,
+     *          including this run.
+     */
+    public PassRun startPassRun(Pass pass, int attempt) {
+        Goal goal = pass.goal();
+        Job job = goal.job();
+        PassRun run =
+                new PassRun(
+                        goal.name(),
+                        job != null ? job.toString() : null,
+                        pass.name(),
+                        attempt,
+                        runningPasses.size(),
+                        System.nanoTime() - epoch);
+        run.startAllocated = allocatedBytes();
+        passRuns.add(run);
+        runningPasses.add(run);
+        return run;
+    }
+
+    /**
+     * Record the end of a run of a pass.
+     *
+     * @param outcome a short description of the result of the run, e.g.,
+     *          "reached" or "failed".
+     */
+    public void finishPassRun(PassRun run, String outcome) {
+        run.duration = System.nanoTime() - epoch - run.start;
+        run.allocated = allocatedBytes() - run.startAllocated;
+        run.exclusiveDuration = run.duration - run.childDuration;
+        run.exclusiveAllocated = run.allocated - run.childAllocated;
+        run.outcome = outcome;
+
+        runningPasses.remove(runningPasses.size() - 1);
+        if (!runningPasses.isEmpty()) {
+            PassRun parent = runningPasses.get(runningPasses.size() - 1);
+            parent.childDuration += run.duration;
+            parent.childAllocated += run.allocated;
+        }
+    }
+
+    /**
+     * Return the number of bytes allocated so far by the current thread, or
+     * 0 if the VM does not support allocation measurement.
+     */
+    protected static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()
+                    && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return 0;
+    }
+
+    /** Return the runs of passes recorded so far. */
+    public List<PassRun> passRuns() {
+        return passRuns;
+    }
+
     /** Reset the accumulated times for a pass. */
     public void resetPassTimes(Object key) {
         passTimes.remove(key);
@@ -110,4 +259,116 @@ public class Stats {
             }
         }
     }
+
+    /**
+     * Write the profile collected for this extension as a JSON object.
+     * The object contains totals per goal kind, per goal, and per job, the
+     * hit rates of the type system's resolvers, and every recorded pass run.
+     */
+    public void exportProfile(JsonWriter w) throws IOException {
+        Map<String, Totals> byGoalKind = new LinkedHashMap<>();
+        Map<String, Totals> byGoal = new LinkedHashMap<>();
+        Map<String, Totals> byJob = new LinkedHashMap<>();
+
+        for (PassRun r : passRuns) {
+            totals(byGoalKind, r.goal).add(r);
+            totals(byGoal, r.job != null ? r.job + ":" + r.goal : r.goal).add(r);
+            if (r.job != null) totals(byJob, r.job).add(r);
+        }
+
+        w.beginObject();
+        w.member("extension", ext.compilerName());
+        w.name("goalKinds");
+        exportTotals(w, byGoalKind);
+        w.name("goals");
+        exportTotals(w, byGoal);
+        w.name("jobs");
+        exportTotals(w, byJob);
+
+        w.name("resolvers").beginArray();
+        exportResolver(w, "system", ext.typeSystem().systemResolver());
+        w.endArray();
+
+        w.name("runs").beginArray();
+        for (PassRun r : passRuns) {
+            w.beginObject();
+            w.member("goal", r.goal);
+            w.member("job", r.job);
+            w.member("pass", r.pass);
+            w.member("attempt", r.attempt);
+            w.member("depth", r.depth);
+            w.member("start", r.start);
+            w.member("time", r.duration);
+            w.member("exclusiveTime", r.exclusiveDuration);
+            w.member("allocated", r.allocated);
+            w.member("exclusiveAllocated", r.exclusiveAllocated);
+            w.member("outcome", r.outcome);
+            w.endObject();
+        }
+        w.endArray();
+        w.endObject();
+    }
+
+    /**
+     * Write the recorded pass runs as Chrome trace events, i.e., as elements
+     * of the "traceEvents" array of the Trace Event Format understood by
+     * chrome://tracing and Perfetto.
+     */
+    public void exportTraceEvents(JsonWriter w) throws IOException {
+        for (PassRun r : passRuns) {
+            w.beginObject();
+            w.member("name", r.job != null ? r.goal + " " + r.job : r.goal);
+            w.member("cat", ext.compilerName());
+            w.member("ph", "X");
+            w.member("ts", r.start / 1000.0);
+            w.member("dur", r.duration / 1000.0);
+            w.member("pid", 1);
+            w.member("tid", 1);
+            w.name("args").beginObject();
+            w.member("pass", r.pass);
+            w.member("attempt", r.attempt);
+            w.member("allocated", r.allocated);
+            w.member("outcome", r.outcome);
+            w.endObject();
+            w.endObject();
+        }
+    }
+
+    protected static Totals totals(Map<String, Totals> map, String key) {
+        Totals t = map.get(key);
+        if (t == null) {
+            t = new Totals();
+            map.put(key, t);
+        }
+        return t;
+    }
+
+    protected void exportTotals(JsonWriter w, Map<String, Totals> map) throws IOException {
+        w.beginObject();
+        for (Map.Entry<String, Totals> e : map.entrySet()) {
+            Totals t = e.getValue();
+            w.name(e.getKey()).beginObject();
+            w.member("runs", t.runs);
+            w.member("reattempts", Math.max(0, t.maxAttempt - 1));
+            w.member("rerunTime", t.rerunTime);
+            w.member("time", t.time);
+            w.member("exclusiveTime", t.exclusiveTime);
+            w.member("allocated", t.allocated);
+            w.endObject();
+        }
+        w.endObject();
+    }
+
+    protected void exportResolver(JsonWriter w, String name, CachingResolver r) throws IOException {
+        if (r == null) return;
+        w.beginObject();
+        w.member("name", name);
+        w.member("lookups", r.lookups());
+        w.member("hits", r.hits());
+        w.member("negativeHits", r.negativeHits());
+        w.member(
+                "hitRatio",
+                r.lookups() == 0 ? 0 : (double) (r.hits() + r.negativeHits()) / r.lookups());
+        w.endObject();
+    }
 }
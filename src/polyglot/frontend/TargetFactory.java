@@ -28,9 +28,38 @@ package polyglot.frontend;
 
 import static java.io.File.separatorChar;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.tools.FileObject;
 import javax.tools.JavaFileManager;
@@ -38,30 +67,430 @@ import javax.tools.JavaFileManager.Location;
 import javax.tools.JavaFileObject;
 import javax.tools.JavaFileObject.Kind;
 
+import polyglot.filemanager.ExtFileObject;
 import polyglot.filemanager.FileManager;
 import polyglot.main.Report;
 import polyglot.util.CodeWriter;
+import polyglot.util.ErrorInfo;
+import polyglot.util.ErrorQueue;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.UnicodeWriter;
 
-/** A {@code TargetFactory} is responsible for opening output files. */
+/**
+ * A {@code TargetFactory} is responsible for opening output files.
+ *
+ * Unless it writes to standard output, a target factory created with output
+ * threads writes files in the background: closing a code writer it opens
+ * hands the writer to a thread that formats the text in memory, then
+ * escapes and encodes it into a temporary file next to the output file,
+ * which is moved into place.  An output file therefore appears complete
+ * or not at all.  The compiler waits for the files to be written
+ * (see {@link #finishOutput}) before running the post-compiler.
+ *
+ * A target factory may also skip unchanged output: a file on disk whose
+ * bytes are those that would be written is left untouched, keeping its
+ * modification time, and is listed by {@link #unchangedFiles}.
+ */
 public class TargetFactory {
     protected FileManager fileManager = null;
     protected JavaFileManager.Location outputLocation = null;
     protected String outputExtension;
     protected boolean outputStdout;
 
+    /**
+     * The number of threads output files are written on, or 0 to write them
+     * as they are generated.
+     */
+    protected int outputThreads;
+
+    /** Leave output files whose content is unchanged untouched? */
+    protected boolean skipUnchanged;
+
+    /** The output files left untouched, by URI. */
+    protected final Set<URI> unchangedFiles = ConcurrentHashMap.newKeySet();
+
+    /** The threads writing output files, created on demand. */
+    protected ExecutorService writers;
+
+    /** The writes not yet waited for, in the order they were started. */
+    protected final List<Future<?>> pendingWrites = new ArrayList<>();
+
+    /** The last write started to each file, by the URI of the file. */
+    protected final Map<URI, Future<?>> lastWrites = new HashMap<>();
+
+    /** Output text collected on each thread, kept for reuse. */
+    private static final ThreadLocal<StringBuilder> buffers = new ThreadLocal<>();
+
+    /** Buffers larger than this many characters are not kept for reuse. */
+    private static final int MAX_REUSED_BUFFER = 1 << 20;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private static final AtomicInteger tempFiles = new AtomicInteger();
+
     public TargetFactory(
             FileManager fileManager, Location outputLocation, String outExt, boolean so) {
+        this(fileManager, outputLocation, outExt, so, 0, false);
+    }
+
+    public TargetFactory(
+            FileManager fileManager,
+            Location outputLocation,
+            String outExt,
+            boolean so,
+            int outputThreads,
+            boolean skipUnchanged) {
         this.fileManager = fileManager;
         this.outputLocation = outputLocation;
         this.outputExtension = outExt;
         this.outputStdout = so;
+        this.outputThreads = outputThreads;
+        this.skipUnchanged = skipUnchanged;
     }
 
     public CodeWriter outputCodeWriter(FileObject f, int width) throws IOException {
-        Writer w = outputWriter(f);
-        return Compiler.createCodeWriter(w, width);
+        if (outputStdout || outputThreads <= 0 && !skipUnchanged) {
+            Writer w = outputWriter(f);
+            return Compiler.createCodeWriter(w, width);
+        }
+
+        if (Report.should_report(Report.frontend, 2))
+            Report.report(2, "Collecting output for " + f + ".");
+        OutputBuffer b = new OutputBuffer();
+        return new DeferredCodeWriter(f, Compiler.createCodeWriter(b, width), b);
+    }
+
+    /**
+     * Wait for the output files handed to the output threads to be
+     * written, reporting any that could not be to {@code eq}.  Return true
+     * if all the files were written.
+     */
+    public boolean finishOutput(ErrorQueue eq) {
+        boolean okay = true;
+        for (Future<?> write : pendingWrites) {
+            try {
+                write.get();
+            } catch (ExecutionException e) {
+                okay = false;
+                eq.enqueue(
+                        ErrorInfo.IO_ERROR,
+                        "I/O error while translating: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InternalCompilerError("Interrupted while writing output", e);
+            }
+        }
+        pendingWrites.clear();
+        lastWrites.clear();
+        if (writers != null) {
+            writers.shutdown();
+            writers = null;
+        }
+        return okay;
+    }
+
+    /**
+     * The URIs of the output files left untouched because their content
+     * was unchanged.
+     */
+    public Set<URI> unchangedFiles() {
+        return unchangedFiles;
+    }
+
+    /**
+     * Finish {@code w} and write the text it produces into {@code b} to
+     * {@code f} on an output thread, or right away if there are none.
+     * Files are written in the order they are handed over.
+     */
+    protected void writeLater(final FileObject f, final CodeWriter w, final OutputBuffer b) {
+        if (outputThreads <= 0) {
+            CompletableFuture<Void> write = new CompletableFuture<>();
+            try {
+                w.close();
+                write(f, b.text());
+                write.complete(null);
+            } catch (IOException e) {
+                write.completeExceptionally(e);
+            }
+            pendingWrites.add(write);
+            return;
+        }
+
+        URI uri = f.toUri();
+        Future<?> previous = lastWrites.get(uri);
+        if (previous != null) {
+            // Let the earlier output of the same file land first.
+            try {
+                previous.get();
+            } catch (ExecutionException e) {
+                // Reported when the output is finished.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InternalCompilerError("Interrupted while writing output", e);
+            }
+        }
+        if (writers == null) {
+            // The threads stop when idle, in case compilation is abandoned
+            // without finishing the output.
+            final AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor pool =
+                    new ThreadPoolExecutor(
+                            outputThreads,
+                            outputThreads,
+                            1,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(),
+                            r -> {
+                                Thread t =
+                                        new Thread(r, "polyglot-output-" + count.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            });
+            pool.allowCoreThreadTimeOut(true);
+            writers = pool;
+        }
+        Future<?> write =
+                writers.submit(
+                        () -> {
+                            w.close();
+                            write(f, b.text());
+                            return null;
+                        });
+        pendingWrites.add(write);
+        lastWrites.put(uri, write);
+    }
+
+    /**
+     * Write {@code text} to {@code f}, escaping non-ASCII characters.  A file
+     * on disk is replaced atomically where the file system allows it.
+     */
+    protected void write(FileObject f, String text) throws IOException {
+        URI uri = f.toUri();
+        if (f instanceof ExtFileObject || !"file".equals(uri.getScheme())) {
+            try (Writer w = new UnicodeWriter(f.openWriter())) {
+                w.write(text);
+            }
+            return;
+        }
+
+        Path path = Paths.get(uri);
+        byte[] bytes = null;
+        if (skipUnchanged) {
+            bytes = encode(text);
+            if (hasContent(path, bytes)) {
+                unchangedFiles.add(uri);
+                return;
+            }
+            unchangedFiles.remove(uri);
+        }
+
+        Path dir = path.getParent();
+        Files.createDirectories(dir);
+        Path temp =
+                dir.resolve("." + path.getFileName() + "." + tempFiles.incrementAndGet() + ".tmp");
+        try {
+            try (FileChannel ch =
+                    FileChannel.open(
+                            temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                if (bytes != null) {
+                    ByteBuffer bb = ByteBuffer.wrap(bytes);
+                    while (bb.hasRemaining()) ch.write(bb);
+                } else {
+                    try (Writer w =
+                            new UnicodeWriter(
+                                    new BufferedWriter(
+                                            Channels.newWriter(
+                                                    ch,
+                                                    Charset.defaultCharset().newEncoder(),
+                                                    WRITE_BUFFER_SIZE),
+                                            WRITE_BUFFER_SIZE))) {
+                        w.write(text);
+                    }
+                }
+            }
+            try {
+                Files.move(
+                        temp,
+                        path,
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Escape and encode {@code text} as it would be written to a file. */
+    protected static byte[] encode(String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() + 64);
+        try (Writer w =
+                new UnicodeWriter(
+                        new BufferedWriter(
+                                new OutputStreamWriter(out, Charset.defaultCharset()),
+                                WRITE_BUFFER_SIZE))) {
+            w.write(text);
+        }
+        return out.toByteArray();
+    }
+
+    /** Does the file at {@code path} hold exactly {@code bytes}? */
+    protected static boolean hasContent(Path path, byte[] bytes) throws IOException {
+        if (!Files.isRegularFile(path) || Files.size(path) != bytes.length) return false;
+        return Arrays.equals(Files.readAllBytes(path), bytes);
+    }
+
+    /**
+     * A writer that collects text in memory, in a buffer of the thread that
+     * first writes to it.
+     */
+    protected static class OutputBuffer extends Writer {
+        protected StringBuilder sb;
+
+        protected StringBuilder sb() {
+            if (sb == null) {
+                sb = buffers.get();
+                if (sb == null) sb = new StringBuilder(WRITE_BUFFER_SIZE);
+                else buffers.set(null);
+            }
+            return sb;
+        }
+
+        @Override
+        public void write(int c) {
+            sb().append((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            sb().append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            sb().append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+
+        /**
+         * Return the text collected, and keep the buffer for reuse by the
+         * current thread.
+         */
+        protected String text() {
+            if (sb == null) return "";
+            String text = sb.toString();
+            if (sb.capacity() <= MAX_REUSED_BUFFER) {
+                sb.setLength(0);
+                buffers.set(sb);
+            }
+            sb = null;
+            return text;
+        }
+    }
+
+    /**
+     * A code writer whose text is formatted and written to its file on an
+     * output thread once it is closed.
+     */
+    protected class DeferredCodeWriter extends CodeWriter {
+        protected final FileObject file;
+        protected final CodeWriter w;
+        protected final OutputBuffer b;
+        protected boolean closed;
+
+        protected DeferredCodeWriter(FileObject file, CodeWriter w, OutputBuffer b) {
+            this.file = file;
+            this.w = w;
+            this.b = b;
+        }
+
+        @Override
+        public void write(String s) {
+            w.write(s);
+        }
+
+        @Override
+        public void write(String s, int length) {
+            w.write(s, length);
+        }
+
+        @Override
+        public void begin(int n) {
+            w.begin(n);
+        }
+
+        @Override
+        public void end() {
+            w.end();
+        }
+
+        @Override
+        public void allowBreak(int n, int level, String alt, int altlen) {
+            w.allowBreak(n, level, alt, altlen);
+        }
+
+        @Override
+        public void unifiedBreak(int n, int level, String alt, int altlen) {
+            w.unifiedBreak(n, level, alt, altlen);
+        }
+
+        @Override
+        public void unifiedBreak(int n) {
+            w.unifiedBreak(n);
+        }
+
+        @Override
+        public void allowBreak(int n) {
+            w.allowBreak(n);
+        }
+
+        @Override
+        public void allowBreak(int n, String alt) {
+            w.allowBreak(n, alt);
+        }
+
+        @Override
+        public void newline() {
+            w.newline();
+        }
+
+        @Override
+        public void newline(int n) {
+            w.newline(n);
+        }
+
+        @Override
+        public void newline(int n, int level) {
+            w.newline(n, level);
+        }
+
+        @Override
+        public boolean flush() throws IOException {
+            return w.flush();
+        }
+
+        @Override
+        public boolean flush(boolean format) throws IOException {
+            return w.flush(format);
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            writeLater(file, w, b);
+        }
+
+        @Override
+        public String toString() {
+            return w.toString();
+        }
     }
 
     /** Open a writer to the output file. */
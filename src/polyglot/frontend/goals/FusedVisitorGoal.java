@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.frontend.goals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import polyglot.frontend.Job;
+import polyglot.visit.FusedVisitor;
+import polyglot.visit.NodeVisitor;
+
+/**
+ * A goal to run the visitors of several {@code VisitorGoal}s in a single
+ * traversal of the AST.  Reaching this goal reaches each of the fused
+ * goals.
+ */
+public class FusedVisitorGoal extends VisitorGoal {
+    protected List<VisitorGoal> goals;
+
+    public FusedVisitorGoal(Job job, List<VisitorGoal> goals) {
+        super(job, new FusedVisitor(visitors(goals)));
+        this.goals = new ArrayList<>(goals);
+    }
+
+    protected static List<NodeVisitor> visitors(List<VisitorGoal> goals) {
+        List<NodeVisitor> l = new ArrayList<>(goals.size());
+        for (VisitorGoal g : goals) {
+            l.add(g.visitor());
+        }
+        return l;
+    }
+
+    /** The goals whose visitors are fused. */
+    public List<VisitorGoal> goals() {
+        return goals;
+    }
+
+    @Override
+    public void setState(int state) {
+        super.setState(state);
+        if (state == REACHED) {
+            for (Goal g : goals) {
+                g.setState(REACHED);
+            }
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return job().hashCode() + goals.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof FusedVisitorGoal) {
+            FusedVisitorGoal g = (FusedVisitorGoal) o;
+            return job().equals(g.job()) && goals.equals(g.goals);
+        }
+        return false;
+    }
+}
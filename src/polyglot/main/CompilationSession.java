@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.main;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+
+import polyglot.filemanager.ExtFileManager;
+import polyglot.filemanager.FileManager;
+import polyglot.frontend.Compiler;
+import polyglot.frontend.ExtensionInfo;
+import polyglot.frontend.FileSource;
+import polyglot.util.CacheMetrics;
+import polyglot.util.ErrorInfo;
+import polyglot.util.InternalCompilerError;
+import polyglot.util.SilentErrorQueue;
+
+/**
+ * A compilation session owns the state that is shared by the compilers run
+ * in it but must not be shared with compilers run elsewhere: the global
+ * {@code Options}, the reporting state of {@code Report}, the lookup
+ * caches of {@code ExtFileManager}, and the counters of
+ * {@code CacheMetrics}.
+ *
+ * Each thread has a current session.  Unless a thread enters a session of
+ * its own, its current session is the default session, whose state is
+ * that of the static fields the compiler has always used, so that running
+ * several compilers one after another in the same process behaves as it
+ * did before sessions existed.  Compilers that run concurrently must each
+ * run in a session of their own.
+ *
+ * A session can also compile sources held in memory, such as
+ * {@code MemorySource}s, returning the generated code and class files
+ * without writing them to disk (see {@link #compile}).  The lookup caches
+ * of the session stay warm from one such compilation to the next.
+ */
+public class CompilationSession {
+    /** The session used by threads that have not entered a session. */
+    private static final CompilationSession DEFAULT =
+            new CompilationSession(
+                    "default", new Report.State(Report.should_report, Report.reportTopics));
+
+    /** The number of sessions created, used to name them. */
+    private static final AtomicInteger sessions = new AtomicInteger();
+
+    private static final ThreadLocal<CompilationSession> current =
+            ThreadLocal.withInitial(() -> DEFAULT);
+
+    /** The options of the compiler most recently started in this session. */
+    protected Options options;
+
+    /** The reporting state of this session. */
+    protected final Report.State report;
+
+    /** The file manager caches of this session, created on demand. */
+    protected ExtFileManager.Caches fileManagerCaches;
+
+    /** The cache metrics of this session. */
+    protected final CacheMetrics.Registry cacheMetrics;
+
+    public CompilationSession() {
+        this("session" + sessions.incrementAndGet(), new Report.State());
+    }
+
+    private CompilationSession(String name, Report.State report) {
+        this.report = report;
+        this.cacheMetrics = new CacheMetrics.Registry(name);
+    }
+
+    /** Return the session of the current thread. */
+    public static CompilationSession current() {
+        return current.get();
+    }
+
+    /** Return the default session. */
+    public static CompilationSession defaultSession() {
+        return DEFAULT;
+    }
+
+    /**
+     * Make {@code session} the session of the current thread, and return
+     * the session it replaces, which should be passed to {@link #exit}.
+     */
+    public static CompilationSession enter(CompilationSession session) {
+        CompilationSession previous = current.get();
+        current.set(session);
+        return previous;
+    }
+
+    /**
+     * Leave the session of the current thread, restoring
+     * {@code previous}.
+     */
+    public static void exit(CompilationSession previous) {
+        if (previous == DEFAULT) current.remove();
+        else current.set(previous);
+    }
+
+    /** Run {@code r} in this session on the current thread. */
+    public void run(Runnable r) {
+        CompilationSession previous = enter(this);
+        try {
+            r.run();
+        } finally {
+            exit(previous);
+        }
+    }
+
+    public boolean isDefault() {
+        return this == DEFAULT;
+    }
+
+    /**
+     * The options of the compiler most recently started in this session.
+     * For the default session, these are {@code Options.global}.
+     */
+    @SuppressWarnings("deprecation")
+    public Options options() {
+        return isDefault() ? Options.global : options;
+    }
+
+    @SuppressWarnings("deprecation")
+    public void setOptions(Options options) {
+        if (isDefault()) Options.global = options;
+        else this.options = options;
+    }
+
+    Report.State report() {
+        return report;
+    }
+
+    public ExtFileManager.Caches fileManagerCaches() {
+        if (fileManagerCaches == null) fileManagerCaches = new ExtFileManager.Caches();
+        return fileManagerCaches;
+    }
+
+    public CacheMetrics.Registry cacheMetrics() {
+        return cacheMetrics;
+    }
+
+    /**
+     * Compile {@code sources} in this session with the extension
+     * {@code extInfo}, keeping all output in memory.  The options in
+     * {@code args} are those of the command line, but must not name source
+     * files or an external post-compiler.  Each call needs a new
+     * {@code ExtensionInfo}, since the types of an extension belong to the
+     * jobs of a single compilation; the lookup caches of the session are
+     * reused by every call.
+     *
+     * @throws UsageError if the options are incorrect.
+     */
+    public Output compile(
+            ExtensionInfo extInfo, List<String> args, Collection<? extends FileSource> sources)
+            throws UsageError {
+        CompilationSession previous = enter(this);
+        try {
+            Options options = extInfo.getOptions();
+            setOptions(options);
+
+            // -no-output-to-fs has no effect unless -nooutput is given too.
+            // Both come first, so that -w can override the output width
+            // chosen by -nooutput.
+            List<String> argv = new ArrayList<>(args.size() + 2);
+            argv.add("-no-output-to-fs");
+            argv.add("-nooutput");
+            argv.addAll(args);
+            options.parseCommandLineWithoutSources(argv.toArray(new String[argv.size()]));
+            if (options.post_compiler != null)
+                throw new UsageError("An external post-compiler cannot be used in memory");
+
+            SilentErrorQueue eq = new SilentErrorQueue(options.error_count, extInfo.compilerName());
+            String[] exts = extInfo.fileExtensions();
+            for (FileSource source : sources) {
+                if (!hasExtension(source.name(), exts)) {
+                    eq.enqueue(
+                            ErrorInfo.IO_ERROR,
+                            "Source \""
+                                    + source.name()
+                                    + "\" does not have any of the extensions "
+                                    + Arrays.toString(exts)
+                                    + ".");
+                    return new Output(
+                            false,
+                            eq.getErrors(),
+                            Collections.<String, String>emptyMap(),
+                            Collections.<String, byte[]>emptyMap());
+                }
+            }
+
+            Compiler compiler = new Compiler(extInfo, eq);
+            boolean okay = compiler.compile(new ArrayList<FileSource>(sources));
+            if (okay && !compiler.outputFiles().isEmpty()) {
+                okay = new Main().invokePostCompiler(options, compiler, eq) && !eq.hasErrors();
+            }
+
+            Map<String, String> javaFiles = new LinkedHashMap<>();
+            Map<String, byte[]> classFiles = new LinkedHashMap<>();
+            try {
+                for (JavaFileObject jfo : compiler.outputFiles()) {
+                    javaFiles.put(relativePath(jfo), jfo.getCharContent(true).toString());
+                }
+                FileManager fm = extInfo.extFileManager();
+                if (fm instanceof ExtFileManager) {
+                    for (Map.Entry<String, JavaFileObject> e :
+                            ((ExtFileManager) fm).memoryFiles(options.class_output).entrySet()) {
+                        classFiles.put(e.getKey(), ExtFileManager.getBytes(e.getValue()));
+                    }
+                }
+            } catch (IOException e) {
+                throw new InternalCompilerError("Error reading output kept in memory", e);
+            }
+
+            return new Output(okay, eq.getErrors(), javaFiles, classFiles);
+        } finally {
+            exit(previous);
+        }
+    }
+
+    private static boolean hasExtension(String name, String[] exts) {
+        for (String ext : exts) {
+            if (name.endsWith("." + ext)) return true;
+        }
+        return false;
+    }
+
+    /** The path of a file kept in memory, relative to its location. */
+    private static String relativePath(FileObject fo) {
+        String path = fo.toUri().getPath();
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    /** The output of a compilation in memory. */
+    public static class Output {
+        protected final boolean succeeded;
+        protected final List<ErrorInfo> errors;
+        protected final Map<String, String> javaFiles;
+        protected final Map<String, byte[]> classFiles;
+
+        protected Output(
+                boolean succeeded,
+                List<ErrorInfo> errors,
+                Map<String, String> javaFiles,
+                Map<String, byte[]> classFiles) {
+            this.succeeded = succeeded;
+            this.errors = Collections.unmodifiableList(errors);
+            this.javaFiles = Collections.unmodifiableMap(javaFiles);
+            this.classFiles = Collections.unmodifiableMap(classFiles);
+        }
+
+        /** Did the compilation succeed? */
+        public boolean succeeded() {
+            return succeeded;
+        }
+
+        /** The errors and warnings reported, in the order reported. */
+        public List<ErrorInfo> errors() {
+            return errors;
+        }
+
+        /**
+         * The generated Java code, keyed by the path of each output file
+         * relative to the output directory.
+         */
+        public Map<String, String> javaFiles() {
+            return javaFiles;
+        }
+
+        /**
+         * The class files produced by the post-compiler, keyed by path
+         * relative to the class output directory.
+         */
+        public Map<String, byte[]> classFiles() {
+            return classFiles;
+        }
+    }
+}
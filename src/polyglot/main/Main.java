@@ -48,6 +48,7 @@ import javax.tools.FileObject;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaCompiler.CompilationTask;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
 
 import polyglot.filemanager.FileManager;
@@ -149,7 +150,7 @@ public class Main {
         // Allow all objects to get access to the Options object. This hack
         // should
         // be fixed somehow. XXX###@@@
-        Options.global = options;
+        CompilationSession.current().setOptions(options);
         try {
             argv = args.toArray(new String[0]);
             options.parseCommandLine(argv, source);
@@ -163,7 +164,13 @@ public class Main {
         }
 
         if (eq == null) {
-            eq = new StdErrorQueue(System.err, options.error_count, ext.compilerName());
+            eq =
+                    new StdErrorQueue(
+                            System.err,
+                            options.error_count,
+                            ext.compilerName(),
+                            options.sort_errors,
+                            options.json_errors);
         }
 
         Compiler compiler = new Compiler(ext, eq);
@@ -185,7 +192,13 @@ public class Main {
         long start_time = System.currentTimeMillis();
 
         /* Now call javac or jikes, if necessary. */
-        if (!invokePostCompiler(options, compiler, eq)) {
+        boolean postCompiled = invokePostCompiler(options, compiler, eq);
+
+        // The compiler flushed the queue before the post-compiler ran, and
+        // a queue that sorts errors displays them only when flushed.
+        eq.flush();
+
+        if (!postCompiled) {
             throw new TerminationException(1);
         }
 
@@ -214,8 +227,46 @@ public class Main {
         return postCompilerArgs;
     }
 
+    /**
+     * Return the output files the post-compiler must compile.  An output
+     * file left untouched because its content was unchanged is left out if
+     * its class file in the class output directory is at least as new as
+     * it.  The post-compiler still finds such a class, on the class path if
+     * it is up to date, or else by compiling its source again.
+     */
+    protected Collection<JavaFileObject> postCompilerFiles(Options options, Compiler compiler) {
+        Collection<JavaFileObject> unchanged = compiler.unchangedOutputFiles();
+        if (unchanged.isEmpty()) return compiler.outputFiles();
+
+        List<JavaFileObject> files = new ArrayList<>(compiler.outputFiles().size());
+        for (JavaFileObject jfo : compiler.outputFiles()) {
+            if (!unchanged.contains(jfo) || !hasCurrentClassFile(options, jfo)) files.add(jfo);
+        }
+        return files;
+    }
+
+    /**
+     * Does the class output directory hold a class file for output file
+     * {@code jfo} that is at least as new as {@code jfo}?
+     */
+    protected boolean hasCurrentClassFile(Options options, JavaFileObject jfo) {
+        File sourceDir = options.sourceOutputDirectory();
+        File classDir = options.classOutputDirectory();
+        if (sourceDir == null || classDir == null) return false;
+
+        String source = new File(jfo.toUri()).getAbsolutePath();
+        String prefix = sourceDir.getAbsolutePath() + File.separator;
+        if (!source.startsWith(prefix) || !source.endsWith(".java")) return false;
+        String relative = source.substring(prefix.length(), source.length() - ".java".length());
+        File classFile = new File(classDir, relative + ".class");
+        return classFile.isFile() && classFile.lastModified() >= jfo.getLastModified();
+    }
+
     protected boolean invokePostCompiler(Options options, Compiler compiler, ErrorQueue eq) {
         if (!options.output_source_only && !options.output_stdout) {
+            Collection<JavaFileObject> files = postCompilerFiles(options, compiler);
+            if (files.isEmpty() && !compiler.outputFiles().isEmpty()) return true;
+            boolean skipped = files.size() < compiler.outputFiles().size();
             try {
                 if (options.post_compiler == null) {
                     List<String> postCompilerArgs = getSystemJavacArgs(options);
@@ -223,14 +274,19 @@ public class Main {
                     Writer javac_err = new OutputStreamWriter(err);
                     compiler.sourceExtension().configureFileManagerForPostCompiler();
                     FileManager fileManager = compiler.sourceExtension().extFileManager();
+                    if (skipped) {
+                        // Find the classes of the skipped files in the
+                        // class output directory.
+                        List<File> classpath = new ArrayList<>();
+                        Iterable<? extends File> cp =
+                                fileManager.getLocation(StandardLocation.CLASS_PATH);
+                        if (cp != null) for (File f : cp) classpath.add(f);
+                        classpath.add(options.classOutputDirectory());
+                        fileManager.setLocation(StandardLocation.CLASS_PATH, classpath);
+                    }
                     CompilationTask task =
                             javaCompiler.getTask(
-                                    javac_err,
-                                    fileManager,
-                                    null,
-                                    postCompilerArgs,
-                                    null,
-                                    compiler.outputFiles());
+                                    javac_err, fileManager, null, postCompilerArgs, null, files);
 
                     task.call();
                     String error = err.toString();
@@ -245,26 +301,26 @@ public class Main {
                     if (options.post_compiler_opts != null) {
                         QuotedStringTokenizer st =
                                 new QuotedStringTokenizer(options.post_compiler_opts);
-                        javacCmd =
-                                new String
-                                        [st.countTokens()
-                                                + options_size
-                                                + compiler.outputFiles().size()];
+                        javacCmd = new String[st.countTokens() + options_size + files.size()];
                         javacCmd[j++] = options.post_compiler;
                         while (st.hasMoreTokens()) javacCmd[j++] = st.nextToken();
                     } else {
-                        javacCmd = new String[options_size + compiler.outputFiles().size()];
+                        javacCmd = new String[options_size + files.size()];
                         javacCmd[j++] = options.post_compiler;
                     }
                     javacCmd[j++] = "-classpath";
-                    javacCmd[j++] = options.constructPostCompilerClasspath();
+                    javacCmd[j++] =
+                            skipped
+                                    ? options.constructPostCompilerClasspath()
+                                            + options.classOutputDirectory().getAbsolutePath()
+                                    : options.constructPostCompilerClasspath();
                     if (options.classOutputLocation() != null) {
                         javacCmd[j++] = "-d";
                         javacCmd[j++] = options.classOutputDirectory().getPath();
                     }
                     if (options.generate_debugging_info) javacCmd[j++] = "-g";
 
-                    for (JavaFileObject jfo : compiler.outputFiles()) {
+                    for (JavaFileObject jfo : files) {
                         URI jfoURI = jfo.toUri();
                         // XXX: the JavaCompiler API spec says toURI() must be absolute,
                         //      but OSX does not put a scheme component on files.
@@ -56,6 +56,7 @@ import polyglot.main.OptFlag.IntFlag;
 import polyglot.main.OptFlag.Kind;
 import polyglot.main.OptFlag.PathFlag;
 import polyglot.main.OptFlag.Switch;
+import polyglot.util.CacheMetrics;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.Pair;
 
@@ -66,8 +67,19 @@ public class Options {
     /**
      * An annoying hack to allow objects to get their hands on the Options
      * object. This should be fixed. XXX###@@@
+     *
+     * @deprecated These are only the options of the default
+     * {@code CompilationSession}; use {@link #global()}.
      */
-    public static Options global;
+    @Deprecated public static Options global;
+
+    /**
+     * Return the options of the compiler running in the current
+     * {@code CompilationSession}.
+     */
+    public static Options global() {
+        return CompilationSession.current().options();
+    }
 
     /**
      * Back pointer to the extension that owns this options
@@ -78,6 +90,8 @@ public class Options {
      * Fields for storing values for options.
      */
     public int error_count;
+    public boolean sort_errors;
+    public boolean json_errors;
     private File source_output_directory;
     private File class_output_directory;
     public final List<File> sourcepath_directories = new ArrayList<>();
@@ -106,6 +120,18 @@ public class Options {
     public int output_width;
     public boolean fully_qualified_names;
 
+    /**
+     * The number of threads output files are written on while compilation
+     * continues, or 0 to write each file as soon as it is generated.
+     */
+    public int output_threads;
+
+    /**
+     * Leave output files whose text has not changed untouched, and
+     * post-compile only the changed ones?
+     */
+    public boolean skip_unchanged_output;
+
     /** Inject type information in serialized form into output file? */
     public boolean serialize_type_info;
 
@@ -133,9 +159,28 @@ public class Options {
      */
     public boolean merge_strings;
 
+    /**
+     * Heap budget in megabytes.  If positive, the ASTs of idle jobs are
+     * written to disk when the heap in use exceeds the budget.
+     */
+    public int heap_budget;
+
+    /** File to write a JSON profile of goals, jobs and resolvers to, or null. */
+    public File profile_file;
+
+    /** File to write a Chrome trace of the passes run to, or null. */
+    public File trace_file;
+
     public boolean classpath_given;
     public boolean bootclasspath_given;
 
+    /**
+     * Are the source files named on the command line?  They are not when
+     * the sources are given to the compiler directly, as by
+     * {@code CompilationSession.compile}.
+     */
+    protected boolean sources_on_command_line = true;
+
     protected final Set<OptFlag<?>> flags;
     protected final List<OptFlag.Arg<?>> arguments;
 
@@ -331,9 +376,24 @@ public class Options {
 
         flags.add(new IntFlag("-errors", "<num>", "set the maximum number of errors", 100));
 
+        flags.add(
+                new Switch(
+                        "-sort-errors",
+                        "report errors at the end of compilation, sorted by file and line"));
+
+        flags.add(new Switch("-json-errors", "report errors as JSON objects, one per line"));
+
         flags.add(
                 new IntFlag("-w", "<num>", "set the maximum width of the .java output files", 80));
 
+        flags.add(
+                new IntFlag(
+                        "-output-threads",
+                        "<num>",
+                        "write output files on <num> threads while compilation continues,"
+                                + " or as they are generated if <num> is 0",
+                        Math.min(4, Runtime.getRuntime().availableProcessors())));
+
         flags.add(
                 new OptFlag<String>(
                         "-postcompiler",
@@ -463,6 +523,45 @@ public class Options {
 
         flags.add(new Switch("-no-output-to-fs", "keep .java files in memory if possible"));
 
+        flags.add(
+                new Switch(
+                        "-skip-unchanged-output",
+                        "leave output files whose text is unchanged untouched, and"
+                                + " post-compile only the changed ones"));
+
+        flags.add(
+                new OptFlag<File>(
+                        "-profile",
+                        "<file>",
+                        "write per-goal and per-job times, allocation, and resolver"
+                                + " and cache hit rates to <file> as JSON") {
+                    @Override
+                    public Arg<File> handle(String[] args, int index) {
+                        return createArg(index + 1, new File(args[index]));
+                    }
+                });
+
+        flags.add(
+                new OptFlag<File>(
+                        "-trace",
+                        "<file>",
+                        "write a trace of the passes run to <file> in Chrome trace format") {
+                    @Override
+                    public Arg<File> handle(String[] args, int index) {
+                        return createArg(index + 1, new File(args[index]));
+                    }
+                });
+
+        flags.add(new Switch("-jmx", "publish cache hit-rate metrics as JMX MBeans"));
+
+        flags.add(
+                new IntFlag(
+                        "-heap-budget",
+                        "<MB>",
+                        "write the ASTs of idle source files to disk when more than <MB>"
+                                + " megabytes of heap are in use",
+                        0));
+
         flags.add(
                 new PathFlag<File>(
                         "-method-filter",
@@ -536,6 +635,20 @@ public class Options {
         postApplyArgs();
     }
 
+    /**
+     * Parse a command line that names no source files, for a compiler whose
+     * sources are given to it directly.
+     *
+     * @throws UsageError
+     *             if the usage is incorrect or a source file is named.
+     */
+    public final void parseCommandLineWithoutSources(String args[]) throws UsageError {
+        sources_on_command_line = false;
+        Set<String> source = new HashSet<>();
+        parseCommandLine(args, source);
+        if (!source.isEmpty()) throw new UsageError("Unexpected source files: " + source);
+    }
+
     /**
      * Process a list of arguments
      *
@@ -567,7 +680,7 @@ public class Options {
             throw new UsageError("No command line arguments given");
         }
 
-        if (!OptFlag.hasSourceArg(arguments)) {
+        if (sources_on_command_line && !OptFlag.hasSourceArg(arguments)) {
             throw new UsageError("must specify at least one source file");
         }
     }
@@ -686,8 +799,14 @@ public class Options {
             setOutputOnly((Boolean) arg.value());
         } else if (ids.contains("-errors")) {
             setErrorCount((Integer) arg.value());
+        } else if (ids.contains("-sort-errors")) {
+            sort_errors = (Boolean) arg.value();
+        } else if (ids.contains("-json-errors")) {
+            json_errors = (Boolean) arg.value();
         } else if (ids.contains("-w")) {
             setOutputWidth((Integer) arg.value());
+        } else if (ids.contains("-output-threads")) {
+            output_threads = (Integer) arg.value();
         } else if (ids.contains("-postcompiler")) {
             setPostCompiler((String) arg.value());
         } else if (ids.contains("-postopts")) {
@@ -724,6 +843,16 @@ public class Options {
             print_args = (Boolean) arg.value();
         } else if (ids.contains("-no-output-to-fs")) {
             noOutputToFS = (Boolean) arg.value();
+        } else if (ids.contains("-skip-unchanged-output")) {
+            skip_unchanged_output = (Boolean) arg.value();
+        } else if (ids.contains("-profile")) {
+            profile_file = (File) arg.value();
+        } else if (ids.contains("-trace")) {
+            trace_file = (File) arg.value();
+        } else if (ids.contains("-heap-budget")) {
+            heap_budget = (Integer) arg.value();
+        } else if (ids.contains("-jmx")) {
+            if ((Boolean) arg.value()) CacheMetrics.registerMBeans();
         } else if (ids.contains("-method-filter")) {
             setMemberFilter(this.<List<File>, File>sccast(arg.value(), File.class));
         } else throw new UnhandledArgument(arg);
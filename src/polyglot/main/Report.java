@@ -26,6 +26,7 @@
 
 package polyglot.main;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -42,31 +43,56 @@ import polyglot.util.SimpleErrorQueue;
 public class Report {
     /** A collection of string names of topics which can be used with the
      * -report command-line switch */
-    public static final Collection<String> topics = new LinkedHashSet<>();
+    public static final Collection<String> topics =
+            Collections.synchronizedSet(new LinkedHashSet<String>());
 
     /** A collection of string names of topics which we should always check
-     * if we should report. */
+     * if we should report.  This is the stack of the default
+     * {@code CompilationSession}; other sessions have their own. */
     public static final Stack<String> should_report = new Stack<>();
 
     /**
-     * The topics that the user has selected to report, mapped to the level
-     * they want to report them to.
+     * The topics that the user has selected to report in the default
+     * {@code CompilationSession}, mapped to the level they want to report
+     * them to.
      */
     protected static final Map<String, Integer> reportTopics = new HashMap<>();
 
-    /** Error queue to which to write messages. */
-    protected static ErrorQueue eq;
-
     /**
-     * Indicates if there is no reporting at all.
+     * Indicates if no session has selected any topic at all.
      * The normal case is that we do not report anything, so for efficiency
      * reasons, since {@code should_report} is called so often, we'll use
-     * this flag to bypass a lot of the checking. When the options are processed,
-     * this flag should be changed.
+     * this flag to bypass the lookup of the current session.
+     */
+    protected static volatile boolean noReporting = true;
+
+    /**
+     * The reporting state of a {@code CompilationSession}.
      */
-    protected static boolean noReporting = true;
+    static class State {
+        final Stack<String> should_report;
+        final Map<String, Integer> reportTopics;
+
+        /** Error queue to which to write messages. */
+        ErrorQueue eq;
+
+        /** Indicates if there is no reporting at all in this session. */
+        boolean noReporting = true;
+
+        State() {
+            this(new Stack<String>(), new HashMap<String, Integer>());
+            should_report.push(verbose);
+        }
+
+        State(Stack<String> should_report, Map<String, Integer> reportTopics) {
+            this.should_report = should_report;
+            this.reportTopics = reportTopics;
+        }
+    }
 
     /** Report topics understood by the base compiler. */
+    public static final String cache = "cache";
+
     public static final String cfg = "cfg";
 
     public static final String context = "context";
@@ -86,6 +112,7 @@ public class Report {
     public static final String debug = "debug";
 
     static {
+        topics.add(cache);
         topics.add(cfg);
         topics.add(context);
         topics.add(dataflow);
@@ -101,7 +128,7 @@ public class Report {
         topics.add(verbose);
         topics.add(debug);
 
-        pushTopic(verbose);
+        should_report.push(verbose);
     }
 
     /**
@@ -121,24 +148,15 @@ public class Report {
      */
     public static boolean should_report(String[] topics, int level) {
         if (noReporting) return false;
-        synchronized (should_report) {
-            for (String topic : should_report) {
-                if (level(topic) >= level) return true;
-            }
-        }
-        if (topics != null) {
-            for (String topic : topics) {
-                if (level(topic) >= level) return true;
-            }
-        }
-        return false;
+        return should_report(topics == null ? null : Arrays.asList(topics), level);
     }
 
     public static void pushTopic(String topic) {
-        should_report.push(topic);
+        state().should_report.push(topic);
     }
 
     public static void popTopic() {
+        Stack<String> should_report = state().should_report;
         if (should_report.isEmpty()) return;
         should_report.pop();
     }
@@ -150,48 +168,61 @@ public class Report {
      */
     public static boolean should_report(Collection<String> topics, int level) {
         if (noReporting) return false;
-        synchronized (should_report) {
-            for (String topic : should_report) {
-                if (level(topic) >= level) return true;
-            }
+        State state = state();
+        if (state.noReporting) return false;
+        for (String topic : state.should_report) {
+            if (level(state, topic) >= level) return true;
         }
         if (topics != null) {
             for (String topic : topics) {
-                if (level(topic) >= level) return true;
+                if (level(state, topic) >= level) return true;
             }
         }
         return false;
     }
 
     public static void addTopic(String topic, int level) {
-        Integer i = reportTopics.get(topic);
+        State state = state();
+        Integer i = state.reportTopics.get(topic);
         if (i == null || i.intValue() < level) {
-            reportTopics.put(topic, level);
+            state.reportTopics.put(topic, level);
         }
+        state.noReporting = false;
         noReporting = false;
     }
 
     public static void setTopic(String topic, int level) {
+        Map<String, Integer> reportTopics = state().reportTopics;
         if (reportTopics.containsKey(topic)) reportTopics.put(topic, level);
     }
 
     /** Get the error queue, possibly creating it if not set. */
     public static ErrorQueue getQueue() {
-        if (eq == null) {
-            eq = new SimpleErrorQueue();
+        State state = state();
+        if (state.eq == null) {
+            state.eq = new SimpleErrorQueue();
         }
-        return eq;
+        return state.eq;
     }
 
     /** Set the error queue. */
     public static void setQueue(ErrorQueue eq) {
-        Report.eq = eq;
+        state().eq = eq;
     }
 
     public static int level(String name) {
-        Object i = reportTopics.get(name);
+        return level(state(), name);
+    }
+
+    private static int level(State state, String name) {
+        Integer i = state.reportTopics.get(name);
         if (i == null) return 0;
-        else return ((Integer) i).intValue();
+        else return i.intValue();
+    }
+
+    /** The reporting state of the current session. */
+    private static State state() {
+        return CompilationSession.current().report();
     }
 
     /** This is the standard way to report debugging information in the
@@ -31,7 +31,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import java_cup.runtime.ComplexSymbolFactory;
+import java_cup.runtime.RecyclingSymbolFactory;
 import java_cup.runtime.Symbol;
 import polyglot.ast.AmbExpr;
 import polyglot.ast.AmbPrefix;
@@ -81,7 +81,7 @@ public abstract class BaseParser extends java_cup.runtime.lr_parser {
     }
 
     public BaseParser(Lexer l, TypeSystem t, NodeFactory n, ErrorQueue q) {
-        super(new ComplexSymbolFactory());
+        super(new RecyclingSymbolFactory());
         lexer = l;
         eq = q;
         ts = t;
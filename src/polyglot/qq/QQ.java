@@ -45,6 +45,7 @@ import polyglot.types.Type;
 import polyglot.types.TypeSystem;
 import polyglot.util.ErrorQueue;
 import polyglot.util.Position;
+import polyglot.util.SilentErrorQueue;
 
 /**
  * Java language quasiquoter.  This class contains methods for parsing strings
@@ -279,42 +280,38 @@ public class QQ {
             pos = Position.compilerGenerated(3);
         }
 
-        polyglot.lex.Lexer lexer = lexer(fmt, pos, subst);
-        QQParser grm = parser(lexer, ts, nf, eq);
-
         if (Report.should_report(polyglot.frontend.Topics.qq, 1)) {
             Report.report(1, "qq: " + fmt);
             Report.report(1, "subst: " + subst);
         }
 
-        try {
-            java_cup.runtime.Symbol sym;
-
-            switch (kind) {
-                case EXPR:
-                    sym = grm.qq_expr();
-                    break;
-                case STMT:
-                    sym = grm.qq_stmt();
-                    break;
-                case TYPE:
-                    sym = grm.qq_type();
-                    break;
-                case MEMB:
-                    sym = grm.qq_member();
-                    break;
-                case DECL:
-                    sym = grm.qq_decl();
-                    break;
-                case FILE:
-                    sym = grm.qq_file();
-                    break;
-                default:
-                    throw new QQError("bad quasi-quoting kind: " + kind, pos);
+        Object key = Template.key(getClass(), kind, fmt, subst);
+
+        if (key != null) {
+            TemplateCache cache = ext.qqTemplates();
+            Template t = cache.get(key);
+            if (t == null) {
+                t = template(kind, fmt, pos, subst);
+                cache.put(key, t);
+                if (!t.isInstantiable() && Report.should_report(polyglot.frontend.Topics.qq, 2))
+                    Report.report(2, "qq: not instantiable: " + fmt);
+            }
+            if (t.isInstantiable()) {
+                String file = pos.toString() + ": quasiquote(" + fmt + ")";
+                Node n = t.instantiate(nf, pos.path(), file, subst);
+                if (Report.should_report(polyglot.frontend.Topics.qq, 1))
+                    Report.report(1, "result: " + n);
+                return n;
             }
+        }
+
+        polyglot.lex.Lexer lexer = lexer(fmt, pos, subst);
+        QQParser grm = parser(lexer, ts, nf, eq);
+
+        try {
+            Node n = runParser(grm, kind, pos);
 
-            if (sym != null && sym.value instanceof Node) {
-                Node n = (Node) sym.value;
+            if (n != null) {
                 if (Report.should_report(polyglot.frontend.Topics.qq, 1))
                     Report.report(1, "result: " + n);
                 return n;
@@ -330,4 +327,65 @@ public class QQ {
             throw new QQError("Unable to parse: \"" + fmt + "\"; " + e.getMessage(), pos);
         }
     }
+
+    /**
+     * Parse {@code fmt} with placeholders for the substitutions
+     * {@code subst} into a template.  If the format string does not parse
+     * into a skeleton with holes for the substitutions, the template
+     * returned is not instantiable, and the format string will be reparsed
+     * on every use.
+     */
+    protected Template template(int kind, String fmt, Position pos, Object... subst) {
+        Object[] placeholders = Template.placeholders(fmt, subst);
+        if (placeholders == null) return new Template();
+
+        // Errors are reported when the format string is reparsed.
+        ErrorQueue eq = new SilentErrorQueue(1, "qq");
+
+        try {
+            polyglot.lex.Lexer lexer = lexer(fmt, pos, placeholders);
+            QQParser grm = parser(lexer, ext.typeSystem(), ext.nodeFactory(), eq);
+            Node n = runParser(grm, kind, pos);
+            if (n == null || eq.hasErrors()) return new Template();
+            return Template.create(ext.nodeFactory(), n, lexer.file(), placeholders);
+        } catch (Exception e) {
+            return new Template();
+        }
+    }
+
+    /**
+     * Run {@code grm} to parse an AST node of the given kind.  Returns null
+     * if the parser does not produce a node.
+     */
+    protected Node runParser(QQParser grm, int kind, Position pos) throws Exception {
+        java_cup.runtime.Symbol sym;
+
+        switch (kind) {
+            case EXPR:
+                sym = grm.qq_expr();
+                break;
+            case STMT:
+                sym = grm.qq_stmt();
+                break;
+            case TYPE:
+                sym = grm.qq_type();
+                break;
+            case MEMB:
+                sym = grm.qq_member();
+                break;
+            case DECL:
+                sym = grm.qq_decl();
+                break;
+            case FILE:
+                sym = grm.qq_file();
+                break;
+            default:
+                throw new QQError("bad quasi-quoting kind: " + kind, pos);
+        }
+
+        if (sym != null && sym.value instanceof Node) {
+            return (Node) sym.value;
+        }
+        return null;
+    }
 }
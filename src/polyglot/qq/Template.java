@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.qq;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import polyglot.ast.Id;
+import polyglot.ast.Node;
+import polyglot.ast.NodeFactory;
+import polyglot.util.Position;
+import polyglot.visit.NodeVisitor;
+
+/**
+ * A quasiquoting format string that has been parsed once into an AST
+ * skeleton with holes for the substitutions.  Instantiating the template
+ * copies the skeleton, filling the holes with the substitutions, rather
+ * than lexing and parsing the format string again.
+ *
+ * <p>
+ * The skeleton is parsed from the format string with placeholders for the
+ * substitutions: a copy of each substituted node, and a fresh identifier
+ * for each substituted name.  Since the parser may inspect the class of a
+ * substituted node, a template is only reused for substitutions of the same
+ * classes, and for lists of the same length.  If the parser does anything
+ * but place each placeholder in the AST exactly once, for example when it
+ * folds a substituted literal or turns a name into a package, the template
+ * is not instantiable and the format string is parsed on every use.
+ */
+public class Template {
+    /** The prefix of the identifiers used as placeholders for names. */
+    protected static final String NAME_PLACEHOLDER = "qq$hole$";
+
+    /** The parsed skeleton, or null if the template is not instantiable. */
+    protected final Node skeleton;
+
+    /**
+     * The file name of the positions in the skeleton, which are replaced in
+     * each instance.
+     */
+    protected final String file;
+
+    /**
+     * Map from the placeholder nodes in the skeleton to the substitutions
+     * they stand for.
+     */
+    protected final Map<Node, Hole> holes;
+
+    /**
+     * Map from the placeholder names in the skeleton to the substitutions
+     * they stand for.
+     */
+    protected final Map<String, Hole> names;
+
+    protected Template(Node skeleton, String file, Map<Node, Hole> holes, Map<String, Hole> names) {
+        this.skeleton = skeleton;
+        this.file = file;
+        this.holes = holes;
+        this.names = names;
+    }
+
+    /** A template that cannot be instantiated. */
+    protected Template() {
+        this(null, null, null, null);
+    }
+
+    /** Can the template be instantiated, rather than reparsed? */
+    public boolean isInstantiable() {
+        return skeleton != null;
+    }
+
+    /**
+     * Return the key under which a template for the given parse is cached,
+     * or null if the substitutions are not all names, nodes, and lists of
+     * nodes.
+     */
+    public static Object key(Class<?> qq, int kind, String fmt, Object... subst) {
+        Object[] shape = new Object[subst.length + 3];
+        shape[0] = qq;
+        shape[1] = kind;
+        shape[2] = fmt;
+        for (int i = 0; i < subst.length; i++) {
+            Object o = subst[i];
+            if (o instanceof String || o instanceof Node) {
+                shape[i + 3] = o.getClass();
+            } else if (o instanceof List) {
+                List<?> l = (List<?>) o;
+                Class<?>[] elems = new Class<?>[l.size()];
+                for (int j = 0; j < elems.length; j++) {
+                    Object e = l.get(j);
+                    if (!(e instanceof Node)) return null;
+                    elems[j] = e.getClass();
+                }
+                shape[i + 3] = elems;
+            } else {
+                return null;
+            }
+        }
+        return new Key(shape);
+    }
+
+    /**
+     * Return placeholders for the substitutions {@code subst}, to parse the
+     * skeleton of a template from, or null if the format string could
+     * contain a placeholder name.
+     */
+    public static Object[] placeholders(String fmt, Object... subst) {
+        if (fmt.contains(NAME_PLACEHOLDER)) return null;
+
+        Object[] placeholders = new Object[subst.length];
+        for (int i = 0; i < subst.length; i++) {
+            Object o = subst[i];
+            if (o instanceof String) {
+                placeholders[i] = NAME_PLACEHOLDER + i;
+            } else if (o instanceof Node) {
+                placeholders[i] = ((Node) o).copy();
+            } else {
+                List<?> l = (List<?>) o;
+                Node[] elems = new Node[l.size()];
+                for (int j = 0; j < elems.length; j++) {
+                    elems[j] = ((Node) l.get(j)).copy();
+                }
+                placeholders[i] = Arrays.asList(elems);
+            }
+        }
+        return placeholders;
+    }
+
+    /**
+     * Create a template from {@code skeleton}, which was parsed with the
+     * substitutions {@code placeholders} and whose positions are in
+     * {@code file}.
+     */
+    public static Template create(
+            NodeFactory nf, Node skeleton, String file, Object... placeholders) {
+        final Map<Node, Hole> holes = new IdentityHashMap<>();
+        final Map<String, Hole> names = new HashMap<>();
+
+        for (int i = 0; i < placeholders.length; i++) {
+            Object o = placeholders[i];
+            if (o instanceof String) {
+                names.put((String) o, new Hole(i, -1));
+            } else if (o instanceof Node) {
+                holes.put((Node) o, new Hole(i, -1));
+            } else {
+                List<?> l = (List<?>) o;
+                for (int j = 0; j < l.size(); j++) {
+                    holes.put((Node) l.get(j), new Hole(i, j));
+                }
+            }
+        }
+
+        // Check that each placeholder occurs exactly once in the skeleton.
+        final Map<Object, Boolean> seen = new IdentityHashMap<>();
+        final boolean[] ok = {true};
+        skeleton.visit(
+                new NodeVisitor(nf.lang()) {
+                    @Override
+                    public Node override(Node n) {
+                        if (holes.containsKey(n)) {
+                            if (seen.put(n, Boolean.TRUE) != null) ok[0] = false;
+                            return n;
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public Node leave(Node old, Node n, NodeVisitor v) {
+                        if (n instanceof Id) {
+                            Hole h = names.get(((Id) n).id());
+                            if (h != null && seen.put(h, Boolean.TRUE) != null) ok[0] = false;
+                        }
+                        return n;
+                    }
+                });
+
+        if (!ok[0] || seen.size() != holes.size() + names.size()) {
+            return new Template();
+        }
+
+        return new Template(skeleton, file, holes, names);
+    }
+
+    /**
+     * Create an instance of the template by copying the skeleton and filling
+     * its holes with {@code subst}.  The positions of the copied nodes are in
+     * {@code file} and {@code path}.
+     */
+    public Node instantiate(
+            NodeFactory nf, final String path, final String file, final Object... subst) {
+        return skeleton.visit(
+                new NodeVisitor(nf.lang()) {
+                    @Override
+                    public Node override(Node n) {
+                        Hole h = holes.get(n);
+                        if (h != null) {
+                            return h.fill(subst);
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public Node leave(Node old, Node n, NodeVisitor v) {
+                        if (n instanceof Id) {
+                            Hole h = names.get(((Id) n).id());
+                            if (h != null) {
+                                n = ((Id) n).id((String) h.fill(subst));
+                            }
+                        }
+                        Position p = n.position();
+                        if (p != null && Template.this.file.equals(p.file())) {
+                            p =
+                                    new Position(
+                                            path,
+                                            file,
+                                            p.line(),
+                                            p.column(),
+                                            p.endLine(),
+                                            p.endColumn(),
+                                            p.offset(),
+                                            p.endOffset());
+                        }
+                        // Always copy, so that instances share no nodes.
+                        return n == old ? n.copy().position(p) : n.position(p);
+                    }
+                });
+    }
+
+    /** A substitution: an argument, or an element of a list argument. */
+    protected static class Hole {
+        protected final int arg;
+        protected final int elem;
+
+        protected Hole(int arg, int elem) {
+            this.arg = arg;
+            this.elem = elem;
+        }
+
+        @SuppressWarnings("unchecked")
+        protected <T> T fill(Object[] subst) {
+            Object o = subst[arg];
+            if (elem >= 0) o = ((List<?>) o).get(elem);
+            return (T) o;
+        }
+    }
+
+    protected static class Key {
+        protected final Object[] shape;
+        protected final int hash;
+
+        protected Key(Object[] shape) {
+            this.shape = shape;
+            this.hash = Arrays.deepHashCode(shape);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.deepEquals(shape, ((Key) o).shape);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.translate;
+
+import polyglot.ast.Block;
+import polyglot.ast.Node;
+import polyglot.ast.NodeFactory;
+import polyglot.frontend.Job;
+import polyglot.translate.ext.ElidedBodyExt;
+import polyglot.types.SemanticException;
+import polyglot.types.TypeSystem;
+import polyglot.visit.AmbiguityRemover;
+import polyglot.visit.ContextVisitor;
+import polyglot.visit.NodeVisitor;
+import polyglot.visit.TypeBuilder;
+import polyglot.visit.TypeChecker;
+
+/**
+ * Puts the method and constructor bodies elided from a translated AST back
+ * in place of their stubs, once the AST has been checked.  The restored
+ * bodies go through type building, disambiguation and type checking, so
+ * that they are as complete as the rest of the AST.  Only the flow checks
+ * are not run on them again: reachability, exceptions, exit paths,
+ * definite assignment, constructor calls and forward references.
+ */
+public class ElidedBodyRestorer extends ContextVisitor {
+    public ElidedBodyRestorer(Job job, TypeSystem ts, NodeFactory nf) {
+        super(job, ts, nf);
+    }
+
+    @Override
+    public Node override(Node parent, Node n) {
+        JLOutputExtensionInfo extInfo = (JLOutputExtensionInfo) job.extensionInfo();
+        // Nothing to restore: skip the traversal.
+        if (!extInfo.bodiesElided()) return n;
+        return super.override(parent, n);
+    }
+
+    @Override
+    protected Node leaveCall(Node parent, Node old, Node n, NodeVisitor v)
+            throws SemanticException {
+        Block body = ElidedBodyExt.body(n);
+        if (body == null) return n;
+
+        TypeBuilder tb = new TypeBuilder(job, ts, nf).pushContext(context()).pushCode();
+        body = (Block) body.visit(tb);
+
+        // A missing dependency leaves the stub in place for the next run.
+        AmbiguityRemover ar = new AmbiguityRemover(job, ts, nf);
+        ar = (AmbiguityRemover) ar.rethrowMissingDependencies(true).context(context());
+        body = ar.visitEdge(parent, body);
+
+        TypeChecker tc = new TypeChecker(job, ts, nf);
+        tc = (TypeChecker) tc.rethrowMissingDependencies(true).context(context());
+        return tc.visitEdge(parent, body);
+    }
+}
@@ -28,6 +28,8 @@ package polyglot.translate;
 import java.util.Collections;
 import java.util.List;
 
+import polyglot.ast.Block;
+import polyglot.frontend.CyclicDependencyException;
 import polyglot.frontend.EmptyPass;
 import polyglot.frontend.ExtensionInfo;
 import polyglot.frontend.JLExtensionInfo;
@@ -37,9 +39,11 @@ import polyglot.frontend.Pass;
 import polyglot.frontend.Scheduler;
 import polyglot.frontend.goals.Goal;
 import polyglot.frontend.goals.SourceFileGoal;
+import polyglot.frontend.goals.VisitorGoal;
 import polyglot.main.OptFlag.Arg;
 import polyglot.main.Options;
 import polyglot.main.UsageError;
+import polyglot.translate.ext.ElidedBodyExt;
 import polyglot.util.InternalCompilerError;
 
 /**
@@ -53,10 +57,41 @@ import polyglot.util.InternalCompilerError;
 public class JLOutputExtensionInfo extends JLExtensionInfo {
     protected final ExtensionInfo parent;
 
+    /**
+     * True once a method or constructor body has been left out of a
+     * translated AST because it need not be checked again.
+     */
+    protected volatile boolean bodiesElided;
+
     public JLOutputExtensionInfo(ExtensionInfo parent) {
         this.parent = parent;
     }
 
+    /**
+     * Return {@code stub} carrying {@code body}, which it replaces.  The
+     * stub is checked in place of the body, and the body is restored and
+     * checked before code is generated.
+     *
+     * The body is carried by the stub's extension object, so elision works
+     * only for languages whose nodes have no extension objects of their
+     * own.  For any other language, {@code body} itself is returned, and
+     * every body is checked in full.
+     */
+    public Block elideBody(Block stub, Block body) {
+        if (stub.ext() != null) {
+            // Only languages without extension objects of their own have
+            // room for the body on the stub, so keep the body in place.
+            return body;
+        }
+        bodiesElided = true;
+        return (Block) stub.ext(new ElidedBodyExt(body));
+    }
+
+    /** True if some body has been replaced by a stub. */
+    public boolean bodiesElided() {
+        return bodiesElided;
+    }
+
     @Override
     public Scheduler createScheduler() {
         return new JLOutputScheduler(this);
@@ -105,5 +140,34 @@ public class JLOutputExtensionInfo extends JLExtensionInfo {
                         }
                     });
         }
+
+        @Override
+        public Goal CodeGenerated(Job job) {
+            Goal g = super.CodeGenerated(job);
+            try {
+                g.addPrerequisiteGoal(BodiesRestored(job), this);
+            } catch (CyclicDependencyException e) {
+                throw new InternalCompilerError(e);
+            }
+            return g;
+        }
+
+        /**
+         * Put back and check the bodies elided from the AST of {@code job}.
+         */
+        public Goal BodiesRestored(Job job) {
+            Goal g =
+                    internGoal(
+                            new VisitorGoal(
+                                    job,
+                                    new ElidedBodyRestorer(
+                                            job, extInfo.typeSystem(), extInfo.nodeFactory())));
+            try {
+                g.addPrerequisiteGoal(Serialized(job), this);
+            } catch (CyclicDependencyException e) {
+                throw new InternalCompilerError(e);
+            }
+            return g;
+        }
     }
 }
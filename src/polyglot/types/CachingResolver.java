@@ -43,6 +43,15 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
     private Map<String, CachedResult> cache;
     private boolean cacheNotFound;
 
+    /** Number of calls to find. */
+    private long lookups;
+
+    /** Number of calls to find answered from the cache with a type object. */
+    private long hits;
+
+    /** Number of calls to find answered from the cache with a cached failure. */
+    private long negativeHits;
+
     protected static class CachedResult {
         protected static final class Success extends CachedResult {
             final Named named;
@@ -126,8 +135,12 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
         if (shouldReport(2)) Report.report(2, "CachingResolver: find: " + name);
 
         CachedResult cached = cache.get(name);
+        lookups++;
 
-        if (cached instanceof CachedResult.Error) throw ((CachedResult.Error) cached).exc;
+        if (cached instanceof CachedResult.Error) {
+            negativeHits++;
+            throw ((CachedResult.Error) cached).exc;
+        }
 
         Named q = cached == null ? null : ((CachedResult.Success) cached).named;
 
@@ -155,12 +168,28 @@ public class CachingResolver implements Resolver, Copy<CachingResolver> {
 
             if (shouldReport(3)) Report.report(3, "CachingResolver: loaded: " + name);
         } else {
+            hits++;
             if (shouldReport(3)) Report.report(3, "CachingResolver: cached: " + name);
         }
 
         return q;
     }
 
+    /** The number of names looked up with find. */
+    public long lookups() {
+        return lookups;
+    }
+
+    /** The number of names found in the cache. */
+    public long hits() {
+        return hits;
+    }
+
+    /** The number of names whose absence was found in the cache. */
+    public long negativeHits() {
+        return negativeHits;
+    }
+
     /**
      * Check if a type object is in the cache, returning null if not.
      * @param name The name to search for.
@@ -407,7 +407,7 @@ public abstract class ClassType_c extends ReferenceType_c implements ClassType {
             }
 
             // Use the short name if it is unique.
-            if (c != null && !Options.global.fully_qualified_names) {
+            if (c != null && !Options.global().fully_qualified_names) {
                 try {
                     Named x = c.find(name());
 
@@ -426,7 +426,7 @@ public abstract class ClassType_c extends ReferenceType_c implements ClassType {
             }
 
             // Use the short name if it is unique.
-            if (c != null && !Options.global.fully_qualified_names) {
+            if (c != null && !Options.global().fully_qualified_names) {
                 try {
                     Named x = c.find(name());
 
@@ -26,13 +26,22 @@
 
 package polyglot.types;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import polyglot.util.Copy;
 import polyglot.util.InternalCompilerError;
@@ -43,23 +52,64 @@ import polyglot.util.SerialVersionUID;
  * {@code Flags} is an immutable set of class, method, or field modifiers.
  * We represent package scope as the absence of private, public and protected
  * scope modifiers.
+ *
+ * Each flag is given a bit of a {@code long} when it is created, so a set
+ * of flags is a bit mask.  Flags without a source position are interned:
+ * there is one such object for each set of flags.
  */
 public class Flags implements Serializable, Copy<Flags> {
-    private static final long serialVersionUID = SerialVersionUID.generate();
+    /**
+     * The serialVersionUID generated for the representation of flags as a
+     * set of names, kept so that encoded class types remain readable.
+     */
+    private static final long serialVersionUID = 4418999482630203699L;
+
+    /**
+     * The serialized form: the names of the flags, sorted by a
+     * FlagComparator, and the position.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("flags", Set.class), new ObjectStreamField("position", Position.class)
+    };
+
+    /** The names of the flags with each bit. */
+    private static final String[] names = new String[Long.SIZE];
+
+    /** The bit of each flag name. */
+    private static final Map<String, Integer> bits = new HashMap<>();
+
+    /** The bits of the flags in the order they are printed. */
+    private static final List<Integer> printOrder = new ArrayList<>();
+
+    /** A snapshot of printOrder, replaced whenever it changes. */
+    private static volatile int[] order = new int[0];
+
+    /** The index in printOrder of each bit, replaced along with order. */
+    private static volatile int[] rank = new int[Long.SIZE];
+
+    /** The names created by createFlag, rather than only read from a stream. */
+    private static final Set<String> created = new HashSet<>();
+
+    /** The interned flags without a source position, by bit mask. */
+    private static final Map<Long, Flags> interned = new ConcurrentHashMap<>();
+
+    /** The bit mask of the flags in the set. */
+    protected transient long mask;
 
-    protected Set<String> flags;
-    protected Position position;
+    protected transient Position position;
 
     protected static class FlagComparator implements Comparator<String>, Serializable {
         private static final long serialVersionUID = SerialVersionUID.generate();
         protected static final FlagComparator instance = new FlagComparator();
-        protected static Map<String, Integer> ordering = new HashMap<>();
-        protected static Map<Integer, String> revOrdering = new HashMap<>();
 
         @Override
         public int compare(String o1, String o2) {
-            if (ordering.containsKey(o1) && ordering.containsKey(o2))
-                return ordering.get(o1) - ordering.get(o2);
+            Integer b1, b2;
+            synchronized (Flags.class) {
+                b1 = bits.get(o1);
+                b2 = bits.get(o2);
+            }
+            if (b1 != null && b2 != null) return rank[b1] - rank[b2];
             return o1.compareTo(o2);
         }
 
@@ -73,7 +123,7 @@ public class Flags implements Serializable, Copy<Flags> {
         }
     }
 
-    public static final Flags NONE = new Flags();
+    public static final Flags NONE = intern(0);
     public static final Flags PUBLIC = createFlag("public", null);
     public static final Flags PROTECTED = createFlag("protected", null);
     public static final Flags PRIVATE = createFlag("private", null);
@@ -102,50 +152,109 @@ public class Flags implements Serializable, Copy<Flags> {
     public static Flags createFlag(String name, Flags after) {
         addToOrder(name, after);
 
-        return new Flags(name);
+        return intern(bitOf(name));
     }
 
-    public static void addToOrder(String name, Flags after) {
-        Map<String, Integer> ordering = FlagComparator.ordering;
-        Map<Integer, String> revOrdering = FlagComparator.revOrdering;
-        if (ordering.containsKey(name))
-            throw new InternalCompilerError("Flag " + name + " already added.");
+    public static synchronized void addToOrder(String name, Flags after) {
+        if (!created.add(name)) throw new InternalCompilerError("Flag " + name + " already added.");
+
+        // The flag may already have a bit if it was read from a stream
+        // before it was created.
+        Integer bit = register(name);
+        printOrder.remove(bit);
 
         int index;
-        if (after == null) index = ordering.size() + 1;
+        if (after == null) index = printOrder.size();
         else {
             index = 0;
-            for (String s : after.flags) {
-                int si = ordering.get(s);
-                if (si > index) index = si;
+            for (int i = 0; i < printOrder.size(); i++) {
+                if ((after.mask & 1L << printOrder.get(i)) != 0) index = i + 1;
             }
-            // shift indices of existing flags
-            for (int i = ordering.size(); i > index; i--) {
-                String s = revOrdering.get(i);
-                ordering.put(s, i + 1);
-                revOrdering.put(i + 1, s);
-            }
-            index++;
         }
-        ordering.put(name, index);
-        revOrdering.put(index, name);
+        printOrder.add(index, bit);
+        publishOrder();
+    }
+
+    /** Publish a snapshot of printOrder for readers that do not lock. */
+    private static void publishOrder() {
+        int[] o = new int[printOrder.size()];
+        int[] r = new int[Long.SIZE];
+        for (int i = 0; i < o.length; i++) {
+            o[i] = printOrder.get(i);
+            r[o[i]] = i;
+        }
+        rank = r;
+        order = o;
+    }
+
+    /** Return the bit of the flag {@code name}, assigning one if needed. */
+    private static synchronized Integer register(String name) {
+        Integer bit = bits.get(name);
+        if (bit == null) {
+            if (bits.size() == Long.SIZE)
+                throw new InternalCompilerError("Cannot create more than " + Long.SIZE + " flags.");
+            bit = bits.size();
+            bits.put(name, bit);
+            names[bit] = name;
+            printOrder.add(bit);
+            publishOrder();
+        }
+        return bit;
+    }
+
+    /** Return the bit mask of the flag {@code name}. */
+    private static long bitOf(String name) {
+        return 1L << register(name);
+    }
+
+    /** Return the interned flags without a position for {@code mask}. */
+    protected static Flags intern(long mask) {
+        Flags f = interned.get(mask);
+        if (f == null) {
+            f = new Flags(mask, Position.COMPILER_GENERATED);
+            Flags old = interned.putIfAbsent(mask, f);
+            if (old != null) f = old;
+        }
+        return f;
+    }
+
+    /**
+     * Return flags for {@code mask} with a compiler-generated position:
+     * the interned flags, unless compiler-generated positions are precise.
+     */
+    protected static Flags generated(long mask) {
+        Position pos = Position.compilerGenerated(Position.CALLER + 1);
+        if (pos == Position.COMPILER_GENERATED) return intern(mask);
+        return new Flags(mask, pos);
     }
 
     /**
      * Effects: returns a new access flags object with no access flags set.
      */
     protected Flags() {
-        this.flags = new TreeSet<>(FlagComparator.instance);
-        position = Position.compilerGenerated();
+        this(0, Position.compilerGenerated());
     }
 
     protected Flags(String name) {
-        this();
-        flags.add(name);
+        this(bitOf(name), Position.compilerGenerated());
     }
 
+    protected Flags(long mask, Position position) {
+        this.mask = mask;
+        this.position = position;
+    }
+
+    /** Return the names of the flags, in the order they are printed. */
     public Set<String> flags() {
-        return this.flags;
+        return Collections.unmodifiableSet(names());
+    }
+
+    protected TreeSet<String> names() {
+        TreeSet<String> result = new TreeSet<>(FlagComparator.instance);
+        for (long m = mask; m != 0; m &= m - 1) {
+            result.add(names[Long.numberOfTrailingZeros(m)]);
+        }
+        return result;
     }
 
     public Position position() {
@@ -182,61 +291,46 @@ public class Flags implements Serializable, Copy<Flags> {
      * Create new flags with the flags in {@code other} also set.
      */
     public Flags set(Flags other) {
-        Flags f = new Flags();
-        f.flags.addAll(this.flags);
-        f.flags.addAll(other.flags);
+        long m = mask | other.mask;
+        if (position == Position.COMPILER_GENERATED
+                && other.position == Position.COMPILER_GENERATED)
+            return m == mask ? this : intern(m);
 
         Position start = Position.first(position, other.position);
         Position end = Position.last(position, other.position);
 
         if (start == null || end == null) {
-            f.position = Position.compilerGenerated();
-        } else {
-            f.position = new Position(start, end);
+            return generated(m);
         }
-
-        return f;
+        return new Flags(m, new Position(start, end));
     }
 
     /**
      * Create new flags with the flags in {@code other} cleared.
      */
     public Flags clear(Flags other) {
-        Flags f = new Flags();
-        f.flags.addAll(this.flags);
-        f.flags.removeAll(other.flags);
-        f.position = Position.compilerGenerated();
-        return f;
+        return generated(mask & ~other.mask);
     }
 
     /**
      * Create new flags with only flags in {@code other} set.
      */
     public Flags retain(Flags other) {
-        Flags f = new Flags();
-        f.flags.addAll(this.flags);
-        f.flags.retainAll(other.flags);
-        f.position = Position.compilerGenerated();
-        return f;
+        return generated(mask & other.mask);
     }
 
     /**
      * Check if <i>any</i> flags in {@code other} are set.
      */
     public boolean intersects(Flags other) {
-        for (String name : this.flags) {
-            if (other.flags.contains(name)) {
-                return true;
-            }
-        }
-        return false;
+        return (mask & other.mask) != 0;
     }
 
     /**
      * Check if <i>all</i> flags in {@code other} are set.
      */
     public boolean contains(Flags other) {
-        return this.flags.containsAll(other.flags);
+        return (mask & other.mask) == other.mask;
     }
 
     /**
@@ -561,11 +655,15 @@ public class Flags implements Serializable, Copy<Flags> {
      * Return "" if no flags set, or toString() + " " if some flags are set.
      */
     public String translate() {
-        StringBuffer sb = new StringBuffer();
+        if (mask == 0) return "";
+
+        StringBuilder sb = new StringBuilder();
 
-        for (String s : this.flags) {
-            sb.append(s);
-            sb.append(" ");
+        for (int bit : order) {
+            if ((mask & 1L << bit) != 0) {
+                sb.append(names[bit]);
+                sb.append(" ");
+            }
         }
 
         return sb.toString();
@@ -573,16 +671,16 @@ public class Flags implements Serializable, Copy<Flags> {
 
     @Override
     public int hashCode() {
-        return flags.hashCode();
+        return Long.hashCode(mask);
     }
 
     @Override
     public boolean equals(Object o) {
-        return o instanceof Flags && flags.equals(((Flags) o).flags);
+        return o instanceof Flags && mask == ((Flags) o).mask;
     }
 
     public boolean isEmpty() {
-        return flags.isEmpty();
+        return mask == 0;
     }
 
     public int toModifiers() {
@@ -603,4 +701,29 @@ public class Flags implements Serializable, Copy<Flags> {
 
         return modifiers;
     }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("flags", names());
+        fields.put("position", position);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        @SuppressWarnings("unchecked")
+        Set<String> flags = (Set<String>) fields.get("flags", null);
+        position = (Position) fields.get("position", null);
+        mask = 0;
+        if (flags != null) {
+            for (String name : flags) {
+                mask |= bitOf(name);
+            }
+        }
+    }
+
+    private Object readResolve() {
+        if (position == null || position.isCompilerGenerated()) return intern(mask);
+        return this;
+    }
 }
@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.StringTokenizer;
 
 import polyglot.main.Report;
+import polyglot.util.CacheMetrics;
 import polyglot.util.CollectionUtil;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.Position;
@@ -52,6 +53,19 @@ public class ImportTable implements Resolver {
     protected List<String> typeOnDemandImports;
     /** Map from names to classes found, or to the NOT_FOUND object. */
     protected Map<String, Named> map;
+
+    protected final CacheMetrics mapMetrics = CacheMetrics.get("ImportTable.map");
+    /**
+     * Map from names found in our package, through the type imports on
+     * demand or in the unnamed package, to classes found.  The map is
+     * shared with the import tables of other sources with the same package
+     * and imports on demand; null until the first lookup.  Names that were
+     * not found are not shared, since a class entered into the system
+     * resolver later may be found by another source.
+     */
+    protected Map<String, Named> sharedMap;
+
+    protected final CacheMetrics sharedMapMetrics = CacheMetrics.get("ImportTable.sharedMap");
     /** List of class imports which will be lazily added to the table at the
      * next lookup. */
     protected List<String> lazyImports;
@@ -180,6 +194,7 @@ public class ImportTable implements Resolver {
         }
 
         typeOnDemandImports.add(pkgOrTypeName);
+        sharedMap = null;
     }
 
     /**
@@ -211,9 +226,11 @@ public class ImportTable implements Resolver {
         Named res = map.get(name);
 
         if (res != null) {
+            mapMetrics.hit();
             return res;
         }
 
+        mapMetrics.miss();
         Named t = ts.systemResolver().find(name);
         map.put(name, t);
         return t;
@@ -240,10 +257,26 @@ public class ImportTable implements Resolver {
 
         if (res != null) {
             if (res == NOT_FOUND) {
+                mapMetrics.negativeHit();
                 throw new NoClassException(name, sourcePos);
             }
+            mapMetrics.hit();
+            return res;
+        }
+
+        mapMetrics.miss();
+
+        // Another source with the same package and imports on demand may
+        // have resolved the name already.  Single-type imports are only in
+        // our own map, so they still take precedence.
+        if (sharedMap == null) sharedMap = ts.importResolutions(pkg, typeOnDemandImports);
+        res = sharedMap.get(name);
+        if (res != null) {
+            map.put(name, res);
+            sharedMapMetrics.hit();
             return res;
         }
+        sharedMapMetrics.miss();
 
         // check if the current package defines it.
         // If so, this takes priority over the package imports (or
@@ -257,6 +290,7 @@ public class ImportTable implements Resolver {
 
             // Memoize the result.
             map.put(name, res);
+            sharedMap.put(name, res);
             return res;
         }
 
@@ -308,6 +342,7 @@ public class ImportTable implements Resolver {
             if (Report.should_report(TOPICS, 3))
                 Report.report(3, this + ".find(" + name + "): found as " + resolved.fullName());
             map.put(name, resolved);
+            sharedMap.put(name, resolved);
             return resolved;
         } catch (NoClassException e) {
             // memoize the no class exception
@@ -33,6 +33,7 @@ import java.util.Map;
 
 import polyglot.frontend.ExtensionInfo;
 import polyglot.main.Report;
+import polyglot.util.CacheMetrics;
 import polyglot.util.CollectionUtil;
 import polyglot.util.Pair;
 import polyglot.util.StringUtil;
@@ -49,6 +50,9 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
     protected SystemResolver previous;
     protected Collection<Pair<String, Named>> justAdded;
 
+    /** Hit-rate counters for the package cache. */
+    protected CacheMetrics packageMetrics;
+
     /**
      * Create a caching resolver.
      * @param inner The resolver whose results this resolver caches.
@@ -59,6 +63,7 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
         this.packageCache = new HashMap<>();
         this.previous = null;
         this.justAdded = new LinkedList<>();
+        this.packageMetrics = CacheMetrics.get("SystemResolver.packageCache");
     }
 
     public SystemResolver previous() {
@@ -118,8 +123,11 @@ public class SystemResolver extends CachingResolver implements TopLevelResolver
     public boolean packageExists(String name) {
         Boolean b = packageCache.get(name);
         if (b != null) {
+            if (b) packageMetrics.hit();
+            else packageMetrics.negativeHit();
             return b;
         } else {
+            packageMetrics.miss();
             String prefix = StringUtil.getPackageComponent(name);
 
             if (packageCache.containsKey(prefix) && !packageCache.get(prefix)) {
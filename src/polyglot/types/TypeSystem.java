@@ -29,6 +29,7 @@ package polyglot.types;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import polyglot.frontend.ExtensionInfo;
@@ -110,6 +111,17 @@ public interface TypeSystem {
      */
     List<String> defaultPackageImports();
 
+    /**
+     * Return the map from short names to the classes they resolve to,
+     * shared by the import tables of all sources in package {@code pkg}
+     * with the type-import-on-demand declarations
+     * {@code typeOnDemandImports}.  The order of the imports
+     * does not matter.  The map is safe for concurrent use.
+     * @param pkg The package of the sources, or null for the unnamed package.
+     * @param typeOnDemandImports The names imported on demand.
+     */
+    Map<String, Named> importResolutions(Package pkg, Collection<String> typeOnDemandImports);
+
     /**
      * Returns true if the package named {@code name} exists.
      */
@@ -244,6 +256,17 @@ public interface TypeSystem {
      */
     boolean equals(TypeObject type1, TypeObject type2);
 
+    /**
+     * Return the canonical instance of a type object: the first object
+     * interned that is equal to {@code t}, or {@code t} itself if there is
+     * none.  Interning is only suitable for type objects that are not
+     * mutated once created, since their equality must not change.  Equality
+     * ignores positions, so the canonical instance may have the position of
+     * another occurrence of the type; the position of a type that may be
+     * interned must not be used to report errors.
+     */
+    <T extends TypeObject> T intern(T t);
+
     /**
      * Returns true iff type1 and type2 are equivalent.
      * This is usually the same as equals(type1, type2), but may
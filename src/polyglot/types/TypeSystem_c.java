@@ -26,6 +26,7 @@
 
 package polyglot.types;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -38,6 +39,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import polyglot.ast.JLang_c;
 import polyglot.frontend.ExtensionInfo;
@@ -45,6 +48,7 @@ import polyglot.frontend.Source;
 import polyglot.main.Report;
 import polyglot.types.reflect.ClassFile;
 import polyglot.types.reflect.ClassFileLazyClassInitializer;
+import polyglot.util.CacheMetrics;
 import polyglot.util.Copy;
 import polyglot.util.InternalCompilerError;
 import polyglot.util.Position;
@@ -188,6 +192,28 @@ public class TypeSystem_c implements TypeSystem {
         return new ImportTable(this, pkg);
     }
 
+    /**
+     * Maps shared by import tables, keyed by the package name followed by
+     * the sorted type-import-on-demand declarations.
+     */
+    protected final Map<String, Map<String, Named>> importResolutions = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<String, Named> importResolutions(
+            Package pkg, Collection<String> typeOnDemandImports) {
+        List<String> imports = new ArrayList<>(typeOnDemandImports);
+        Collections.sort(imports);
+        StringBuilder key = new StringBuilder(pkg == null ? "" : pkg.fullName());
+        for (String s : imports) key.append(';').append(s);
+        Map<String, Named> m = importResolutions.get(key.toString());
+        if (m == null) {
+            m = new ConcurrentHashMap<>();
+            Map<String, Named> old = importResolutions.putIfAbsent(key.toString(), m);
+            if (old != null) m = old;
+        }
+        return m;
+    }
+
     @Override
     public boolean packageExists(String name) {
         return systemResolver.packageExists(name);
@@ -408,10 +434,39 @@ public class TypeSystem_c implements TypeSystem {
         return type1.equalsImpl(type2);
     }
 
+    /**
+     * Canonical instances of interned type objects.  The table holds its
+     * keys and values weakly, so a canonical instance is dropped once the
+     * compiler no longer refers to it.
+     */
+    protected final Map<TypeObject, WeakReference<TypeObject>> internTable =
+            Collections.synchronizedMap(new WeakHashMap<TypeObject, WeakReference<TypeObject>>());
+
+    protected final CacheMetrics internMetrics = CacheMetrics.get("TypeSystem_c.internTable");
+
+    @Override
+    public <T extends TypeObject> T intern(T t) {
+        if (t == null) return null;
+        synchronized (internTable) {
+            WeakReference<TypeObject> ref = internTable.get(t);
+            TypeObject canonical = ref == null ? null : ref.get();
+            if (canonical != null && canonical.getClass() == t.getClass()) {
+                internMetrics.hit();
+                @SuppressWarnings("unchecked")
+                T result = (T) canonical;
+                return result;
+            }
+            internMetrics.miss();
+            internTable.put(t, new WeakReference<TypeObject>(t));
+            return t;
+        }
+    }
+
     @Override
     public boolean typeEquals(Type type1, Type type2) {
         assert_(type1);
         assert_(type2);
+        if (type1 == type2) return true;
         return type1.typeEqualsImpl(type2);
     }
 
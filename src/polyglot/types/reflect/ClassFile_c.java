@@ -40,6 +40,7 @@ import javax.tools.FileObject;
 
 import polyglot.frontend.ExtensionInfo;
 import polyglot.types.SemanticException;
+import polyglot.util.CacheMetrics;
 
 /**
  * ClassFile represents a Java classfile as it is found on disk. The classfile
@@ -68,6 +69,8 @@ public class ClassFile_c implements ClassFile {
 
     protected Map<String, JLCInfo> jlcInfoCache = new HashMap<>();
 
+    protected final CacheMetrics jlcInfoMetrics = CacheMetrics.get("ClassFile_c.jlcInfoCache");
+
     protected static Collection<String> verbose;
 
     static {
@@ -108,9 +111,11 @@ public class ClassFile_c implements ClassFile {
         JLCInfo jlc = jlcInfoCache.get(typeSystemKey);
 
         if (jlc != null) {
+            jlcInfoMetrics.hit();
             return jlc;
         }
 
+        jlcInfoMetrics.miss();
         jlc = new JLCInfo();
         jlcInfoCache.put(typeSystemKey, jlc);
 
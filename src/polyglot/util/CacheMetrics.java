@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.util;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import polyglot.main.CompilationSession;
+import polyglot.main.Report;
+
+/**
+ * Hit-rate counters for one of the compiler's caches.
+ *
+ * Metrics are kept in a registry owned by the current
+ * {@code CompilationSession}, keyed by the name of the cache, so that
+ * caches with many instances (e.g., one import table per source file)
+ * report into a single set of counters, while compilers run in different
+ * sessions do not.  A lookup is counted as a hit if the cache had an entry
+ * for the key, as a negative hit if the cache had recorded that the key
+ * does not exist, and as a miss otherwise.
+ *
+ * The registry is dumped at the end of compilation with
+ * {@code -report cache=1}, included in the {@code -profile} output, and
+ * can be published over JMX with {@link #registerMBeans()} by hosts that
+ * keep the compiler resident.
+ */
+public class CacheMetrics implements CacheMetricsMXBean {
+    /** The cache metrics of a {@code CompilationSession}. */
+    public static class Registry {
+        /** The name of the session, used to tell its MBeans apart. */
+        protected final String session;
+
+        /** All cache metrics created so far, in creation order. */
+        protected final Map<String, CacheMetrics> metrics = new LinkedHashMap<>();
+
+        /** The MBean server metrics are published to, or null if not published. */
+        protected MBeanServer mbeanServer;
+
+        public Registry(String session) {
+            this.session = session;
+        }
+
+        /**
+         * Return the metrics for the cache named {@code name}, creating them
+         * if needed.
+         */
+        public synchronized CacheMetrics get(String name) {
+            CacheMetrics m = metrics.get(name);
+            if (m == null) {
+                m = new CacheMetrics(name);
+                metrics.put(name, m);
+                if (mbeanServer != null) register(m);
+            }
+            return m;
+        }
+
+        /** Return a snapshot of all the registered metrics. */
+        public synchronized List<CacheMetrics> all() {
+            return new ArrayList<>(metrics.values());
+        }
+
+        /**
+         * Publish all current and future cache metrics to the platform MBean
+         * server, under the domain "polyglot".
+         */
+        public synchronized void registerMBeans() {
+            if (mbeanServer != null) return;
+            mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            for (CacheMetrics m : metrics.values()) register(m);
+        }
+
+        protected void register(CacheMetrics m) {
+            try {
+                ObjectName on =
+                        new ObjectName(
+                                "polyglot:type=CacheMetrics,session="
+                                        + ObjectName.quote(session)
+                                        + ",name="
+                                        + ObjectName.quote(m.name));
+                if (!mbeanServer.isRegistered(on)) mbeanServer.registerMBean(m, on);
+            } catch (JMException e) {
+                throw new InternalCompilerError("Could not register cache metrics " + m.name, e);
+            }
+        }
+    }
+
+    protected final String name;
+    protected final LongAdder hits = new LongAdder();
+    protected final LongAdder negativeHits = new LongAdder();
+    protected final LongAdder misses = new LongAdder();
+    protected final LongAdder evictions = new LongAdder();
+
+    /** Supplies the current size of a cache with a single instance, or null. */
+    protected IntSupplier size;
+
+    protected CacheMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Return the metrics for the cache named {@code name} in the current
+     * session, creating them if needed.
+     */
+    public static CacheMetrics get(String name) {
+        return CompilationSession.current().cacheMetrics().get(name);
+    }
+
+    /** Return a snapshot of all the metrics of the current session. */
+    public static List<CacheMetrics> all() {
+        return CompilationSession.current().cacheMetrics().all();
+    }
+
+    /**
+     * Publish all current and future cache metrics of the current session
+     * to the platform MBean server, under the domain "polyglot".
+     */
+    public static void registerMBeans() {
+        CompilationSession.current().cacheMetrics().registerMBeans();
+    }
+
+    /** Report all the metrics of the current session on the "cache" report topic. */
+    public static void reportAll() {
+        Report.report(1, "\nCache metrics");
+        Report.report(1, "Lookups Hits NegHits Misses Size Evictions HitRatio Cache");
+        Report.report(1, "------- ---- ------- ------ ---- --------- -------- -----");
+        for (CacheMetrics m : all()) {
+            long size = m.getSize();
+            Report.report(
+                    1,
+                    m.getLookups()
+                            + " "
+                            + m.getHits()
+                            + " "
+                            + m.getNegativeHits()
+                            + " "
+                            + m.getMisses()
+                            + " "
+                            + (size < 0 ? "-" : String.valueOf(size))
+                            + " "
+                            + m.getEvictions()
+                            + " "
+                            + String.format("%.3f", m.getHitRatio())
+                            + " "
+                            + m.name);
+        }
+    }
+
+    /** Write all the metrics of the current session as a JSON array. */
+    public static void exportAll(JsonWriter w) throws IOException {
+        w.beginArray();
+        for (CacheMetrics m : all()) {
+            w.beginObject();
+            w.member("name", m.name);
+            w.member("lookups", m.getLookups());
+            w.member("hits", m.getHits());
+            w.member("negativeHits", m.getNegativeHits());
+            w.member("misses", m.getMisses());
+            long size = m.getSize();
+            if (size >= 0) w.member("size", size);
+            w.member("evictions", m.getEvictions());
+            w.member("hitRatio", m.getHitRatio());
+            w.endObject();
+        }
+        w.endArray();
+    }
+
+    /**
+     * Set the function used to compute the size of the cache.  This is
+     * only meaningful for caches with a single instance in a session; the
+     * size of other caches is unknown.
+     */
+    public void setSize(IntSupplier size) {
+        this.size = size;
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void negativeHit() {
+        negativeHits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    /** Record that {@code n} entries were removed from the cache. */
+    public void evict(int n) {
+        evictions.add(n);
+    }
+
+    /** Reset all counters. */
+    public void reset() {
+        hits.reset();
+        negativeHits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getLookups() {
+        return hits.sum() + negativeHits.sum() + misses.sum();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getNegativeHits() {
+        return negativeHits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** The number of entries in the cache, or -1 if it is unknown. */
+    @Override
+    public long getSize() {
+        return size != null ? size.getAsInt() : -1;
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long lookups = getLookups();
+        if (lookups == 0) return 0;
+        return (double) (hits.sum() + negativeHits.sum()) / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + getLookups() + " lookups, " + getHitRatio() + " hit ratio";
+    }
+}
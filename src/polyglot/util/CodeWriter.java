@@ -27,6 +27,8 @@
 package polyglot.util;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
 
 /**
  * A {@code CodeWriter} is a pretty-printing engine. It formats
@@ -183,4 +185,19 @@ public abstract class CodeWriter implements AutoCloseable {
      */
     @Override
     public abstract String toString();
+
+    private static final char[] SPACES = new char[80];
+
+    static {
+        Arrays.fill(SPACES, ' ');
+    }
+
+    /** Write {@code n} spaces to {@code w} in bulk. */
+    static void spaces(PrintWriter w, int n) {
+        while (n > 0) {
+            int k = Math.min(n, SPACES.length);
+            w.write(SPACES, 0, k);
+            n -= k;
+        }
+    }
 }
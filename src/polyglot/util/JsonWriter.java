@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A minimal streaming JSON writer, used for the machine-readable reports
+ * the compiler produces.  Commas between members and elements are inserted
+ * automatically; the caller is responsible for balancing begin and end
+ * calls.
+ */
+public class JsonWriter {
+    protected final Writer out;
+
+    /**
+     * Whether the value about to be written is the first one in the
+     * innermost open object or array.
+     */
+    protected boolean first = true;
+
+    /** Whether a member name has just been written. */
+    protected boolean afterName = false;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        separate();
+        out.write('{');
+        first = true;
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        out.write('}');
+        first = false;
+        return this;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        separate();
+        out.write('[');
+        first = true;
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        out.write(']');
+        first = false;
+        return this;
+    }
+
+    /** Write the name of the next member of the current object. */
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        string(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String s) throws IOException {
+        separate();
+        if (s == null) out.write("null");
+        else string(s);
+        first = false;
+        return this;
+    }
+
+    public JsonWriter value(long n) throws IOException {
+        separate();
+        out.write(Long.toString(n));
+        first = false;
+        return this;
+    }
+
+    public JsonWriter value(double d) throws IOException {
+        separate();
+        if (Double.isNaN(d) || Double.isInfinite(d)) out.write("null");
+        else out.write(Double.toString(d));
+        first = false;
+        return this;
+    }
+
+    public JsonWriter value(boolean b) throws IOException {
+        separate();
+        out.write(b ? "true" : "false");
+        first = false;
+        return this;
+    }
+
+    /** Convenience method to write a member with a string value. */
+    public JsonWriter member(String name, String value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /** Convenience method to write a member with a numeric value. */
+    public JsonWriter member(String name, long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /** Convenience method to write a member with a numeric value. */
+    public JsonWriter member(String name, double value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /** Convenience method to write a member with a boolean value. */
+    public JsonWriter member(String name, boolean value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    protected void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (!first) out.write(',');
+        first = false;
+    }
+
+    protected void string(String s) throws IOException {
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        String hex = Integer.toHexString(c);
+                        out.write("\\u");
+                        for (int j = hex.length(); j < 4; j++) out.write('0');
+                        out.write(hex);
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The contents of a source file together with the offset at which each
+ * line starts, so that any line can be retrieved without rescanning the
+ * file.  Lines are terminated by {@code \n}, {@code \r}, or {@code \r\n},
+ * as for {@link java.io.LineNumberReader}.
+ */
+public class LineIndex {
+    protected final String text;
+
+    /** lineStarts[i] is the offset of the first character of line i+1. */
+    protected final int[] lineStarts;
+
+    protected final int lineCount;
+
+    public LineIndex(String text) {
+        this.text = text;
+
+        int[] starts = new int[64];
+        int n = 0;
+        int len = text.length();
+        int i = 0;
+        while (i < len) {
+            if (n == starts.length) {
+                int[] a = new int[n * 2];
+                System.arraycopy(starts, 0, a, 0, n);
+                starts = a;
+            }
+            starts[n++] = i;
+            while (i < len) {
+                char c = text.charAt(i++);
+                if (c == '\n') break;
+                if (c == '\r') {
+                    if (i < len && text.charAt(i) == '\n') i++;
+                    break;
+                }
+            }
+        }
+        this.lineStarts = starts;
+        this.lineCount = n;
+    }
+
+    /** Read the entire contents of {@code r} and index its lines. */
+    public static LineIndex read(Reader r) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[8192];
+        int n;
+        while ((n = r.read(buf)) > 0) {
+            sb.append(buf, 0, n);
+        }
+        return new LineIndex(sb.toString());
+    }
+
+    /** The number of lines in the file. */
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Line {@code line} of the file, counting from 1, without its line
+     * terminator, or null if there is no such line.
+     */
+    public String line(int line) {
+        if (line < 1 || line > lineCount) return null;
+        int start = lineStarts[line - 1];
+        int end = line < lineCount ? lineStarts[line] : text.length();
+        while (end > start && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return text.substring(start, end);
+    }
+}
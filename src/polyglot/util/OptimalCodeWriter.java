@@ -893,7 +893,7 @@ class AllowBreak extends OCItem {
         } else {
             // Break.
             o.println();
-            for (int i = 0; i < lmargin + indent; i++) o.print(" ");
+            CodeWriter.spaces(o, lmargin + indent);
             return lmargin + indent;
         }
     }
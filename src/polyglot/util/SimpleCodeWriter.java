@@ -124,9 +124,7 @@ public class SimpleCodeWriter extends CodeWriter {
     }
 
     private void spaces(int n) {
-        for (int i = 0; i < n; i++) {
-            output.print(' ');
-        }
+        CodeWriter.spaces(output, n);
     }
 
     @Override
@@ -28,24 +28,168 @@ package polyglot.util;
 
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.io.PrintStream;
 import java.io.Reader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 /**
  * A {@code StdErrorQueue} handles outputting error messages.
+ *
+ * Errors are either displayed as they are reported, or, if the queue is
+ * sorted, collected and displayed ordered by file and line when the queue
+ * is flushed.  Source excerpts are taken from a line index of each file,
+ * so a file is read at most once however many errors it has.  Errors may
+ * be displayed as text or as JSON objects, one per line.
  */
 public class StdErrorQueue extends AbstractErrorQueue {
+    /** The maximum number of source files whose line index is cached. */
+    protected static final int MAX_CACHED_SOURCES = 8;
+
     private PrintStream err;
 
+    /** Whether errors are held back and displayed sorted when flushed. */
+    protected final boolean sorted;
+
+    /** Whether errors are displayed as JSON rather than text. */
+    protected final boolean json;
+
+    /** Errors not yet displayed, if the queue is sorted. */
+    protected List<ErrorInfo> pending;
+
+    /** Line indices of recently displayed source files, keyed by path. */
+    protected Map<String, LineIndex> sources;
+
     public StdErrorQueue(PrintStream err, int limit, String name) {
+        this(err, limit, name, false, false);
+    }
+
+    public StdErrorQueue(PrintStream err, int limit, String name, boolean sorted, boolean json) {
         super(limit, name);
         this.err = err;
+        this.sorted = sorted;
+        this.json = json;
+        this.pending = new ArrayList<>();
+        this.sources =
+                new LinkedHashMap<String, LineIndex>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, LineIndex> eldest) {
+                        return size() > MAX_CACHED_SOURCES;
+                    }
+                };
     }
 
     @Override
     public void displayError(ErrorInfo e) {
+        if (sorted) {
+            pending.add(e);
+        } else if (json) {
+            printJson(e);
+        } else {
+            printError(e);
+        }
+    }
+
+    /**
+     * Display the pending errors, grouped by file and ordered by position
+     * within each file.  Errors without a file come first.
+     */
+    protected void displayPending() {
+        if (pending.isEmpty()) return;
+
+        List<ErrorInfo> errors = pending;
+        pending = new ArrayList<>();
+
+        // The sort is stable, so errors at the same position stay in the
+        // order they were reported.
+        Collections.sort(
+                errors,
+                new Comparator<ErrorInfo>() {
+                    @Override
+                    public int compare(ErrorInfo e1, ErrorInfo e2) {
+                        Position p1 = e1.getPosition();
+                        Position p2 = e2.getPosition();
+                        String f1 = p1 != null ? p1.path() : null;
+                        String f2 = p2 != null ? p2.path() : null;
+                        if (f1 == null || f2 == null) {
+                            return f1 == null ? (f2 == null ? 0 : -1) : 1;
+                        }
+                        int c = f1.compareTo(f2);
+                        if (c != 0) return c;
+                        c = Integer.compare(p1.line(), p2.line());
+                        if (c != 0) return c;
+                        return Integer.compare(p1.column(), p2.column());
+                    }
+                });
+
+        String lastPath = null;
+        for (ErrorInfo e : errors) {
+            Position pos = e.getPosition();
+            String path = pos != null ? pos.path() : null;
+            if (lastPath != null && !lastPath.equals(path)) {
+                // Each file is visited once, so its lines are no longer needed.
+                sources.remove(lastPath);
+            }
+            lastPath = path;
+
+            if (json) {
+                printJson(e);
+            } else {
+                printError(e);
+            }
+        }
+        if (lastPath != null) {
+            sources.remove(lastPath);
+        }
+    }
+
+    /** Display {@code e} as a JSON object on a single line. */
+    protected void printJson(ErrorInfo e) {
+        StringWriter sw = new StringWriter();
+        JsonWriter w = new JsonWriter(sw);
+        try {
+            w.beginObject();
+            w.member("kind", e.getErrorString());
+            w.member("message", e.getMessage());
+
+            Position pos = e.getPosition();
+            if (pos != null) {
+                if (pos.file() != null) w.member("file", pos.file());
+                if (pos.path() != null) w.member("path", pos.path());
+                if (pos.line() != Position.UNKNOWN) {
+                    w.member("line", pos.line());
+                    w.member("endLine", pos.endLine());
+                }
+                if (pos.column() != Position.UNKNOWN) {
+                    w.member("column", pos.column());
+                    if (pos.endColumn() != Position.END_UNUSED) {
+                        w.member("endColumn", pos.endColumn());
+                    }
+                }
+
+                String source = null;
+                try {
+                    LineIndex index = lines(pos);
+                    if (index != null) source = index.line(pos.line());
+                } catch (IOException ex) {
+                }
+                if (source != null) w.member("source", source);
+            }
+            w.endObject();
+        } catch (IOException ex) {
+            throw new InternalCompilerError(ex);
+        }
+        err.println(sw.toString());
+    }
+
+    /** Display {@code e} as text, followed by the source it refers to. */
+    protected void printError(ErrorInfo e) {
         String message =
                 e.getErrorKind() != ErrorInfo.DEBUG
                         ? e.getMessage()
@@ -166,9 +310,23 @@ public class StdErrorQueue extends AbstractErrorQueue {
 
     @Override
     protected void tooManyErrors(ErrorInfo lastError) {
+        displayPending();
+
         Position position = lastError.getPosition();
+        String message = "Too many errors.  Aborting compilation.";
+        if (json) {
+            ErrorInfo abort =
+                    new ErrorInfo(
+                            lastError.getErrorKind(),
+                            message,
+                            position != null
+                                    ? new Position(position.path(), position.file())
+                                    : null);
+            printJson(abort);
+            return;
+        }
         String prefix = position != null ? (position.file() + ": ") : "";
-        err.println(prefix + "Too many errors.  Aborting compilation.");
+        err.println(prefix + message);
     }
 
     protected Reader reader(Position pos) throws IOException {
@@ -178,53 +336,64 @@ public class StdErrorQueue extends AbstractErrorQueue {
         return null;
     }
 
+    /**
+     * The line index of the file {@code pos} refers to, or null if the
+     * position has no file or line.  The file is read through
+     * {@link #reader(Position)} the first time it is needed.
+     */
+    protected LineIndex lines(Position pos) throws IOException {
+        if (pos.path() == null || pos.line() == Position.UNKNOWN) return null;
+
+        LineIndex index = sources.get(pos.path());
+        if (index == null) {
+            try (Reader r = reader(pos)) {
+                if (r == null) return null;
+                index = LineIndex.read(r);
+            }
+            sources.put(pos.path(), index);
+        }
+        return index;
+    }
+
     private void showError(Position pos) {
-        try (Reader r = reader(pos)) {
-            if (r == null) return;
+        LineIndex index;
+        try {
+            index = lines(pos);
+        } catch (IOException e) {
+            return;
+        }
+        if (index == null) return;
 
-            try (LineNumberReader reader = new LineNumberReader(r)) {
+        String s = index.line(pos.line());
 
-                String s = reader.readLine();
-                while (s != null && reader.getLineNumber() < pos.line()) {
-                    s = reader.readLine();
+        if (s != null) {
+            err.println(s);
+            showErrorIndicator(pos, pos.line(), s);
+
+            if (pos.endLine() != pos.line()
+                    && pos.endLine() != Position.UNKNOWN
+                    && pos.endLine() != Position.END_UNUSED) {
+
+                // if there is more than two lines,
+                // print some ellipsis.
+                if (pos.endLine() - pos.line() > 1) {
+                    // add some whitespace first
+                    for (int j = 0; j < s.length() && Character.isWhitespace(s.charAt(j)); j++) {
+                        err.print(s.charAt(j));
+                    }
+                    err.println("...");
                 }
 
+                // s is now the last line of the error.
+                s = index.line(pos.endLine());
                 if (s != null) {
                     err.println(s);
-                    showErrorIndicator(pos, reader.getLineNumber(), s);
-
-                    if (pos.endLine() != pos.line()
-                            && pos.endLine() != Position.UNKNOWN
-                            && pos.endLine() != Position.END_UNUSED) {
-
-                        // if there is more than two lines,
-                        // print some ellipsis.
-                        if (pos.endLine() - pos.line() > 1) {
-                            // add some whitespace first
-                            for (int j = 0;
-                                    j < s.length() && Character.isWhitespace(s.charAt(j));
-                                    j++) {
-                                err.print(s.charAt(j));
-                            }
-                            err.println("...");
-                        }
-
-                        while (reader.getLineNumber() < pos.endLine()) {
-                            s = reader.readLine();
-                        }
-
-                        // s is now the last line of the error.
-                        if (s != null) {
-                            err.println(s);
-                            showErrorIndicator(pos, reader.getLineNumber(), s);
-                        }
-                    }
+                    showErrorIndicator(pos, pos.endLine(), s);
                 }
             }
-
-            err.println();
-        } catch (IOException e) {
         }
+
+        err.println();
     }
 
     protected void showErrorIndicator(Position pos, int lineNum, String s) {
@@ -275,7 +444,8 @@ public class StdErrorQueue extends AbstractErrorQueue {
 
     @Override
     public void flush() {
-        if (!flushed) {
+        displayPending();
+        if (!flushed && !json) {
             if (errorCount() > 0) {
                 err.println(errorCount() + " error" + (errorCount() > 1 ? "s." : "."));
             }
@@ -33,8 +33,17 @@ import java.io.Writer;
 /**
  * Output stream for writing unicode.  Non-ASCII Unicode characters
  * are escaped.
+ *
+ * Characters up to 0xFF are passed through in runs, and each other
+ * character is written as a backslash-u escape of four hex digits taken
+ * from a table, so that writing allocates nothing.
  */
 public class UnicodeWriter extends FilterWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** The escape being written. */
+    private final char[] escape = {'\\', 'u', '0', '0', '0', '0'};
+
     public UnicodeWriter(Writer out) {
         super(out);
     }
@@ -42,27 +51,52 @@ public class UnicodeWriter extends FilterWriter {
     @Override
     public void write(int c) throws IOException {
         if (c <= 0xFF) {
-            super.write(c);
+            out.write(c);
+        } else if (c <= 0xFFFF) {
+            writeEscape((char) c);
         } else {
-            String s = String.valueOf(Integer.toHexString(c));
-            super.write('\\');
-            super.write('u');
-            for (int i = s.length(); i < 4; i++) {
-                super.write('0');
-            }
-            write(s);
+            String s = Integer.toHexString(c);
+            out.write('\\');
+            out.write('u');
+            out.write(s);
         }
     }
 
     @Override
     public void write(char[] cbuf, int off, int len) throws IOException {
-        for (int i = 0; i < len; i++) {
-            write(cbuf[i + off]);
+        int start = off;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            char c = cbuf[i];
+            if (c > 0xFF) {
+                if (i > start) out.write(cbuf, start, i - start);
+                writeEscape(c);
+                start = i + 1;
+            }
         }
+        if (end > start) out.write(cbuf, start, end - start);
     }
 
     @Override
     public void write(String str, int off, int len) throws IOException {
-        write(str.toCharArray(), off, len);
+        int start = off;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            char c = str.charAt(i);
+            if (c > 0xFF) {
+                if (i > start) out.write(str, start, i - start);
+                writeEscape(c);
+                start = i + 1;
+            }
+        }
+        if (end > start) out.write(str, start, end - start);
+    }
+
+    private void writeEscape(char c) throws IOException {
+        escape[2] = HEX[c >>> 12];
+        escape[3] = HEX[c >>> 8 & 0xF];
+        escape[4] = HEX[c >>> 4 & 0xF];
+        escape[5] = HEX[c & 0xF];
+        out.write(escape, 0, escape.length);
     }
 }
@@ -26,18 +26,18 @@
 
 package polyglot.util;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /** A unique identifier generator. */
 public class UniqueID {
-    private static int count = 0;
-    private static int icount = 0;
+    private static final AtomicInteger count = new AtomicInteger();
+    private static final AtomicInteger icount = new AtomicInteger();
 
     public static String newID(String s) {
-        String uid = s + "$" + count;
-        count++;
-        return uid;
+        return s + "$" + count.getAndIncrement();
     }
 
     public static int newIntID() {
-        return icount++;
+        return icount.getAndIncrement();
     }
 }
@@ -30,6 +30,7 @@ import java.util.HashSet;
 
 import polyglot.frontend.Compiler;
 import polyglot.frontend.ExtensionInfo;
+import polyglot.main.CompilationSession;
 import polyglot.main.Options;
 import polyglot.main.UsageError;
 import polyglot.types.SemanticException;
@@ -92,7 +93,7 @@ public class Main {
             // now try to establish the type system correctly.
             Options options = extInfo.getOptions();
 
-            Options.global = options;
+            CompilationSession.current().setOptions(options);
 
             configureOptions(options);
 
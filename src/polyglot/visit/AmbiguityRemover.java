@@ -86,6 +86,9 @@ public class AmbiguityRemover extends DisambiguationDriver {
             }
         }
 
+        Node skipped = skipCompleted(n);
+        if (skipped != null) return skipped;
+
         try {
             if (Report.should_report(Report.visit, 2))
                 Report.report(
@@ -229,6 +232,50 @@ public class AmbiguityRemover extends DisambiguationDriver {
                         + "Node.disambiguateOverride(Node, AmbiguityRemover).");
     }
 
+    @Override
+    protected boolean skipsCompleted() {
+        return true;
+    }
+
+    /**
+     * A subtree is complete once every node this visitor would visit in it
+     * has been disambiguated.
+     */
+    @Override
+    protected boolean isComplete(Node n) {
+        CompletionChecker cc = new CompletionChecker(lang());
+        n.visit(cc);
+        return !cc.amb;
+    }
+
+    protected class CompletionChecker extends NodeVisitor {
+        public boolean amb;
+
+        public CompletionChecker(JLang lang) {
+            super(lang);
+        }
+
+        @Override
+        public Node override(Node parent, Node n) {
+            if (amb) {
+                return n;
+            }
+            if (parent != null && (!visitBodies || !visitSigs) && parent instanceof ClassMember) {
+                if (parent instanceof FieldDecl && ((FieldDecl) parent).init() == n) {
+                    return n;
+                }
+                if (parent instanceof CodeDecl && ((CodeDecl) parent).body() == n) {
+                    return n;
+                }
+            }
+            if (!n.isDisambiguated()) {
+                amb = true;
+                return n;
+            }
+            return null;
+        }
+    }
+
     public boolean isASTDisambiguated(Node n) {
         return astAmbiguityCount(lang(), n) == 0;
     }
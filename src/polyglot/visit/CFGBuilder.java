@@ -29,6 +29,7 @@ package polyglot.visit;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import polyglot.ast.Assert;
 import polyglot.ast.Block;
@@ -340,12 +341,12 @@ public class CFGBuilder<FlowItem extends DataFlow.Item> implements Copy<CFGBuild
         edge(last_peer, exitPeer(), FlowGraph.EDGE_KEY_OTHER);
     }
 
-    protected static int counter = 0;
+    protected static final AtomicInteger counter = new AtomicInteger();
 
     /** Visit the AST, constructing the CFG. */
     public void visitGraph() {
         String name = StringUtil.getShortNameComponent(df.getClass().getName());
-        name += counter++;
+        name += counter.getAndIncrement();
 
         if (Report.should_report(Report.cfg, 2)) {
             String rootName = "";
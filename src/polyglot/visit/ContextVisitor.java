@@ -26,6 +26,11 @@
 
 package polyglot.visit;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import polyglot.ast.ClassMember;
 import polyglot.ast.Node;
 import polyglot.ast.NodeFactory;
 import polyglot.frontend.Job;
@@ -71,6 +76,18 @@ public class ContextVisitor extends ErrorHandlingVisitor {
     /** The current context of this visitor. */
     protected Context context;
 
+    /**
+     * Class members that earlier runs of this visitor left complete, and
+     * that later runs for the same goal therefore skip.  Shared by the
+     * copies of the visitor, and null unless {@link #skipsCompleted()}.
+     * The job is pinned while the set is not empty, since the members are
+     * kept by identity.
+     */
+    protected Set<Node> completed;
+
+    /** The number of times the visitor has been begun. */
+    protected int runs;
+
     public ContextVisitor(Job job, TypeSystem ts, NodeFactory nf) {
         super(job, ts, nf);
         this.outer = null;
@@ -90,9 +107,74 @@ public class ContextVisitor extends ErrorHandlingVisitor {
     public NodeVisitor begin() {
         context = ts.createContext();
         outer = null;
+        runs++;
+        if (completed == null && skipsCompleted()) {
+            completed = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        }
         return super.begin();
     }
 
+    @Override
+    public void finish(Node ast) {
+        if (completed != null && !completed.isEmpty()) {
+            // Nothing is left to resume once a run reaches its goal.
+            Goal g = job.extensionInfo().scheduler().currentGoal();
+            if (g == null || g.state() == Goal.RUNNING) {
+                completed.clear();
+                job.unpin();
+            }
+        }
+        super.finish(ast);
+    }
+
+    /**
+     * Should a rerun of this visitor for the same goal skip the class
+     * members that an earlier run left complete?  Visitors that say so
+     * define {@link #isComplete(Node)}.
+     */
+    protected boolean skipsCompleted() {
+        return false;
+    }
+
+    /**
+     * Is the subtree {@code n} complete, so that visiting it again would
+     * not change it?
+     */
+    protected boolean isComplete(Node n) {
+        return false;
+    }
+
+    /**
+     * If an earlier run of this visitor left {@code n} complete, add its
+     * declarations to the context and return it, so the caller can skip it.
+     * Otherwise return null.
+     */
+    protected Node skipCompleted(Node n) {
+        if (completed == null || prune || !completed.contains(n)) return null;
+        if (Report.should_report(Report.frontend, 3))
+            Report.report(3, this + " skipping completed " + n);
+        job.extensionInfo().getStats().accumPassTimes("total completed members skipped", 1, 1);
+        addDecls(n);
+        return n;
+    }
+
+    /**
+     * Remember the class member {@code n} if it is complete and the goal is
+     * known to need another run: either this run is already a rerun, or the
+     * goal has been found unreachable during this run.
+     */
+    protected void recordCompleted(Node n) {
+        if (completed == null || !(n instanceof ClassMember)) return;
+        if (runs == 1) {
+            Goal g = job.extensionInfo().scheduler().currentGoal();
+            if (g == null || g.state() != Goal.UNREACHABLE_THIS_RUN) return;
+        }
+        if (isComplete(n)) {
+            if (completed.isEmpty()) job.pin();
+            completed.add(n);
+        }
+    }
+
     /** Returns the context for this visitor.
      *
      *  @return Returns the context that is currently in use by this visitor.
@@ -117,6 +199,9 @@ public class ContextVisitor extends ErrorHandlingVisitor {
 
     @Override
     public Node override(Node parent, Node n) {
+        Node skipped = skipCompleted(n);
+        if (skipped != null) return skipped;
+
         try {
             if (Report.should_report(Report.visit, 2))
                 Report.report(2, ">> " + this + "::override " + n);
@@ -245,6 +330,7 @@ public class ContextVisitor extends ErrorHandlingVisitor {
         try {
             Node m = super.leave(parent, old, n, v);
             this.addDecls(old, m);
+            recordCompleted(m);
             return m;
         } catch (MissingDependencyException e) {
             if (Report.should_report(Report.frontend, 3)) e.printStackTrace();
@@ -35,6 +35,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import polyglot.ast.Binary;
 import polyglot.ast.CodeDecl;
@@ -1497,7 +1498,7 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends ErrorHand
         public abstract BoolItem<FlowItem> handleExpression(Expr expr, FlowItem startingItem);
     }
 
-    protected static int flowCounter = 0;
+    protected static final AtomicInteger flowCounter = new AtomicInteger();
 
     /**
      * Dump a flow graph, labeling edges with their flows, to aid in the
@@ -1505,7 +1506,7 @@ public abstract class DataFlow<FlowItem extends DataFlow.Item> extends ErrorHand
      */
     protected void dumpFlowGraph(FlowGraph<FlowItem> graph, Term root) {
         String name = StringUtil.getShortNameComponent(this.getClass().getName());
-        name += flowCounter++;
+        name += flowCounter.getAndIncrement();
 
         String rootName = "";
         if (graph.root() instanceof CodeNode) {
@@ -48,6 +48,9 @@ public class ErrorHandlingVisitor extends HaltingVisitor {
     protected TypeSystem ts;
     protected NodeFactory nf;
 
+    /** The queue errors are reported to, or null for the compiler's queue. */
+    protected ErrorQueue errorQueue;
+
     public ErrorHandlingVisitor(Job job, TypeSystem ts, NodeFactory nf) {
         super(nf.lang());
         this.job = job;
@@ -78,9 +81,24 @@ public class ErrorHandlingVisitor extends HaltingVisitor {
      * @see polyglot.util.ErrorQueue
      */
     public ErrorQueue errorQueue() {
+        if (errorQueue != null) return errorQueue;
         return job().compiler().errorQueue();
     }
 
+    /**
+     * Return a copy of this visitor that reports errors to {@code eq}
+     * instead of the compiler's queue, for example to check a subtree
+     * without reporting its errors.
+     */
+    public ErrorHandlingVisitor errorQueue(ErrorQueue eq) {
+        if (eq == this.errorQueue) {
+            return this;
+        }
+        ErrorHandlingVisitor v = (ErrorHandlingVisitor) this.copy();
+        v.errorQueue = eq;
+        return v;
+    }
+
     /**
      * Returns true if some errors have been reported, even if cleared.
      */
@@ -30,6 +30,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import polyglot.ast.ArrayInit;
 import polyglot.ast.Assign;
@@ -138,10 +139,10 @@ public class FlattenVisitor extends NodeVisitor {
         return null;
     }
 
-    protected static int count = 0;
+    protected static final AtomicInteger count = new AtomicInteger();
 
     protected static String newID() {
-        return "flat$$$" + count++;
+        return "flat$$$" + count.getAndIncrement();
     }
 
     protected Set<Term> noFlatten = new HashSet<>();
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.visit;
+
+import java.util.List;
+
+import polyglot.ast.Node;
+
+/**
+ * A visitor that runs several visitors in a single traversal of the AST.
+ * On the way down, each node is entered by every visitor in order; on the
+ * way up, each visitor in turn leaves the result of the previous one.  The
+ * visitors must be {@link FusibleVisitor fusible} for the result to be the
+ * same as running them one after the other.
+ *
+ * <p>
+ * If any visitor overrides the traversal of a subtree, the visitors visit
+ * that subtree one after the other instead.
+ */
+public class FusedVisitor extends NodeVisitor {
+    protected NodeVisitor[] visitors;
+
+    public FusedVisitor(List<? extends NodeVisitor> visitors) {
+        this(visitors.toArray(new NodeVisitor[visitors.size()]));
+    }
+
+    protected FusedVisitor(NodeVisitor[] visitors) {
+        super(visitors[0].lang());
+        this.visitors = visitors;
+    }
+
+    /** The visitors being run, in the order they leave each node. */
+    public NodeVisitor[] visitors() {
+        return visitors.clone();
+    }
+
+    protected FusedVisitor visitors(NodeVisitor[] visitors) {
+        FusedVisitor v = (FusedVisitor) copy();
+        v.visitors = visitors;
+        return v;
+    }
+
+    @Override
+    public NodeVisitor begin() {
+        NodeVisitor[] vs = new NodeVisitor[visitors.length];
+        for (int i = 0; i < visitors.length; i++) {
+            vs[i] = visitors[i].begin();
+            if (vs[i] == null) return null;
+        }
+        return visitors(vs);
+    }
+
+    @Override
+    public void finish(Node ast) {
+        for (NodeVisitor v : visitors) {
+            v.finish(ast);
+        }
+    }
+
+    @Override
+    public Node override(Node parent, Node n) {
+        for (int i = 0; i < visitors.length; i++) {
+            Node m = visitors[i].override(parent, n);
+            if (m != null) {
+                // Fall back to visiting the subtree with each visitor in
+                // turn, reusing the override we already have.
+                Node result = n;
+                for (int j = 0; j < visitors.length; j++) {
+                    if (j == i && result == n) {
+                        result = m;
+                    } else {
+                        result = visitors[j].visitEdge(parent, result);
+                    }
+                }
+                return result;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public NodeVisitor enter(Node parent, Node n) {
+        NodeVisitor[] vs = null;
+        for (int i = 0; i < visitors.length; i++) {
+            NodeVisitor v = visitors[i].enter(parent, n);
+            if (v != visitors[i] && vs == null) {
+                vs = visitors.clone();
+            }
+            if (vs != null) vs[i] = v;
+        }
+        return vs == null ? this : visitors(vs);
+    }
+
+    @Override
+    public Node leave(Node parent, Node old, Node n, NodeVisitor v) {
+        NodeVisitor[] children = ((FusedVisitor) v).visitors;
+        for (int i = 0; i < visitors.length; i++) {
+            n = visitors[i].leave(parent, old, n, children[i]);
+        }
+        return n;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Fused(");
+        for (int i = 0; i < visitors.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(visitors[i]);
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+}
@@ -58,6 +58,9 @@ public class TypeChecker extends DisambiguationDriver {
 
     @Override
     public Node override(Node parent, Node n) {
+        Node skipped = skipCompleted(n);
+        if (skipped != null) return skipped;
+
         try {
             if (Report.should_report(Report.visit, 2))
                 Report.report(2, ">> " + this + "::override " + n);
@@ -112,6 +115,42 @@ public class TypeChecker extends DisambiguationDriver {
         return v;
     }
 
+    @Override
+    protected boolean skipsCompleted() {
+        return true;
+    }
+
+    /**
+     * A subtree is complete once all its nodes have been disambiguated and
+     * type checked.
+     */
+    @Override
+    protected boolean isComplete(Node n) {
+        CompletionChecker cc = new CompletionChecker(lang());
+        n.visit(cc);
+        return !cc.amb;
+    }
+
+    protected static class CompletionChecker extends NodeVisitor {
+        public boolean amb;
+
+        public CompletionChecker(JLang lang) {
+            super(lang);
+        }
+
+        @Override
+        public Node override(Node n) {
+            if (amb) {
+                return n;
+            }
+            if (!n.isDisambiguated() || !n.isTypeChecked()) {
+                amb = true;
+                return n;
+            }
+            return null;
+        }
+    }
+
     protected static class AmbChecker extends NodeVisitor {
         public boolean amb;
 
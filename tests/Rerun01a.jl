@@ -0,0 +1,10 @@
+// Type checking Rerun01a needs the signatures of Rerun01c, which are
+// not resolved the first time, so it is checked again.  The members left
+// complete by the first run are skipped; the others must be checked in
+// full the second time.
+class Rerun01a {
+    int a1() { return 1; }
+    Rerun01b b;
+    int a2() { return b.c.x; }
+    boolean a3() { return new Rerun01c().y; }
+}
@@ -0,0 +1,5 @@
+class Rerun01b {
+    Rerun01c c;
+    Rerun01a a;
+    int b1() { return a.a1(); }
+}
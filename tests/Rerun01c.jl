@@ -0,0 +1,5 @@
+class Rerun01c {
+    int x = new Rerun01a().a1();
+    int y;
+    Rerun01b b;
+}
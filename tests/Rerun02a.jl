@@ -0,0 +1,10 @@
+// Type checking Rerun02a needs the signatures of Rerun02c, which are
+// not resolved the first time, so it is checked again.  The members left
+// complete by the first run are skipped; the others must be checked in
+// full the second time.
+class Rerun02a {
+    int a1() { return 1; }
+    Rerun02b b;
+    int a2() { return b.c.x; }
+    int a3() { return new Rerun02c().y; }
+}
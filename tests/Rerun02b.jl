@@ -0,0 +1,5 @@
+class Rerun02b {
+    Rerun02c c;
+    Rerun02a a;
+    int b1() { return a.a1(); }
+}
@@ -0,0 +1,5 @@
+class Rerun02c {
+    int x = new Rerun02a().a1();
+    int y;
+    Rerun02b b;
+}
@@ -0,0 +1,50 @@
+import java.util.Collections;
+import java.util.List;
+
+import polyglot.frontend.JLExtensionInfo;
+import polyglot.frontend.MemorySource;
+import polyglot.main.CompilationSession;
+import polyglot.util.CacheMetrics;
+
+/**
+ * Checks that the cache metrics of a compilation session count only the
+ * lookups of the compilers run in that session, and that the size of a
+ * cache of the session is its number of entries.
+ */
+public class CacheMetricsCheck {
+    public static void main(String[] args) throws Exception {
+        CompilationSession first = new CompilationSession();
+        CompilationSession second = new CompilationSession();
+
+        MemorySource source = new MemorySource("C.jl", "class C { java.util.List l; }");
+        CompilationSession.Output output =
+                first.compile(
+                        new JLExtensionInfo(),
+                        Collections.singletonList("-c"),
+                        Collections.singletonList(source));
+        if (!output.succeeded()) throw new AssertionError("C.jl failed to compile");
+
+        long lookups = lookups(first.cacheMetrics().all());
+        if (lookups == 0) throw new AssertionError("no lookups counted in the compiling session");
+        if (lookups(second.cacheMetrics().all()) != 0)
+            throw new AssertionError("lookups counted in another session");
+
+        // The runtime classes found are kept in the session, each after a
+        // miss; the classes not found are not.
+        CacheMetrics platformClasses = first.cacheMetrics().get("ExtFileManager.platformClasses");
+        if (platformClasses.getSize() <= 0
+                || platformClasses.getSize() > platformClasses.getMisses())
+            throw new AssertionError(
+                    "ExtFileManager.platformClasses has size "
+                            + platformClasses.getSize()
+                            + " after "
+                            + platformClasses.getMisses()
+                            + " misses");
+    }
+
+    static long lookups(List<CacheMetrics> metrics) {
+        long lookups = 0;
+        for (CacheMetrics m : metrics) lookups += m.getLookups();
+        return lookups;
+    }
+}
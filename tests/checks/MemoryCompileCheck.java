@@ -0,0 +1,144 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import polyglot.frontend.JLExtensionInfo;
+import polyglot.frontend.MemorySource;
+import polyglot.main.CompilationSession;
+import polyglot.util.CacheMetrics;
+import polyglot.util.ErrorInfo;
+
+/**
+ * Checks that compiling sources held in memory twice in one session gives
+ * each compilation its own output and errors: the generated files of one
+ * compilation are neither returned by nor visible to the next, while the
+ * session's cache of runtime classes is reused rather than grown.  Also
+ * checks that memory sources are encoded in UTF-8 whether they are given as
+ * text or as bytes.
+ */
+public class MemoryCompileCheck {
+    static final List<String> ARGS = Collections.emptyList();
+
+    public static void main(String[] args) throws Exception {
+        CompilationSession session = new CompilationSession();
+        CacheMetrics platformClasses = session.cacheMetrics().get("ExtFileManager.platformClasses");
+
+        // The first compilation: two classes, one using the other.
+        CompilationSession.Output first =
+                session.compile(
+                        new JLExtensionInfo(),
+                        ARGS,
+                        Arrays.asList(
+                                new MemorySource(
+                                        "p/A.jl",
+                                        "package p; public class A { B b = new B(); String s; }"),
+                                new MemorySource(
+                                        "p/B.jl", "package p; public class B { Object o; }")));
+        check(first.succeeded(), "first compilation failed: " + messages(first));
+        check(first.errors().isEmpty(), "first compilation reported " + messages(first));
+        same("java files", set("p/A.java", "p/B.java"), first.javaFiles().keySet());
+        same("class files", set("p/A.class", "p/B.class"), first.classFiles().keySet());
+        check(
+                first.javaFiles().get("p/A.java").contains("class A"),
+                "p/A.java is " + first.javaFiles().get("p/A.java"));
+        long runtimeClasses = platformClasses.getSize();
+        long hits = platformClasses.getHits();
+        check(runtimeClasses > 0, "no runtime classes cached");
+
+        // The second compilation changes A and drops B, which was only
+        // ever kept in memory by the first compilation.
+        CompilationSession.Output second =
+                session.compile(
+                        new JLExtensionInfo(),
+                        ARGS,
+                        Collections.singletonList(
+                                new MemorySource(
+                                        "p/A.jl", "package p; public class A { B b; String s; }")));
+        check(!second.succeeded(), "B was found in the output of the first compilation");
+        check(second.errors().size() == 1, "second compilation reported " + messages(second));
+        ErrorInfo error = second.errors().get(0);
+        check(
+                error.getErrorKind() == ErrorInfo.SEMANTIC_ERROR
+                        && error.getMessage().contains("\"B\""),
+                "second compilation reported " + messages(second));
+        check(second.javaFiles().isEmpty(), "second compilation output " + second.javaFiles());
+        check(second.classFiles().isEmpty(), "second compilation output " + second.classFiles());
+
+        // The third compilation succeeds again, with only its own output.
+        CompilationSession.Output third =
+                session.compile(
+                        new JLExtensionInfo(),
+                        ARGS,
+                        Collections.singletonList(
+                                new MemorySource(
+                                        "p/A.jl", "package p; public class A { String s; }")));
+        check(third.succeeded(), "third compilation failed: " + messages(third));
+        same("java files", set("p/A.java"), third.javaFiles().keySet());
+        same("class files", set("p/A.class"), third.classFiles().keySet());
+        check(
+                !third.javaFiles().get("p/A.java").contains("B b"),
+                "p/A.java is " + third.javaFiles().get("p/A.java"));
+
+        // The runtime classes found by the first compilation are reused.
+        check(platformClasses.getHits() > hits, "runtime classes were not reused");
+        check(
+                platformClasses.getSize() == runtimeClasses,
+                "runtime classes cached grew from "
+                        + runtimeClasses
+                        + " to "
+                        + platformClasses.getSize());
+
+        // Sources are encoded in UTF-8 whether they are given as text or
+        // as bytes.
+        String text = "class U { String s = \"\u00e9\u20ac\"; }";
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        MemorySource fromText = new MemorySource("U.jl", text);
+        MemorySource fromBytes = new MemorySource("U.jl", ByteBuffer.wrap(utf8));
+        check(Arrays.equals(bytes(fromText), utf8), "text is not encoded in UTF-8");
+        check(
+                text.equals(fromBytes.getCharContent(true).toString()),
+                "bytes are not decoded as UTF-8: " + fromBytes.getCharContent(true));
+        try (Reader r = fromBytes.openReader(true)) {
+            StringBuilder sb = new StringBuilder();
+            for (int c; (c = r.read()) != -1; ) sb.append((char) c);
+            check(text.equals(sb.toString()), "bytes are not read as UTF-8: " + sb);
+        }
+    }
+
+    static byte[] bytes(MemorySource source) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = source.openInputStream()) {
+            byte[] buf = new byte[4096];
+            for (int n; (n = in.read(buf)) != -1; ) out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    static void same(String what, Set<String> expected, Set<String> actual) {
+        check(expected.equals(actual), what + " are " + actual + ", not " + expected);
+    }
+
+    static Set<String> set(String... elements) {
+        return new HashSet<>(Arrays.asList(elements));
+    }
+
+    static String messages(CompilationSession.Output output) {
+        StringBuilder sb = new StringBuilder();
+        for (ErrorInfo e : output.errors()) {
+            sb.append(e.getErrorString()).append(": ").append(e.getMessage()).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,46 @@
+import polyglot.frontend.ExtensionInfo;
+import polyglot.frontend.JLExtensionInfo;
+import polyglot.pth.polyglot.CheckPrograms;
+import polyglot.types.Flags;
+import polyglot.types.ImportTable;
+import polyglot.types.Named;
+import polyglot.types.NoClassException;
+import polyglot.types.ParsedClassType;
+import polyglot.types.TypeSystem;
+
+/**
+ * Checks that the import tables of sources with the same imports do not
+ * share a failed lookup: a type that one source could not see yet must
+ * still be found from another source once it has been entered.
+ */
+public class SharedImportsCheck {
+    public static void main(String[] args) throws Exception {
+        CheckPrograms.withCompiler(new JLExtensionInfo(), SharedImportsCheck::check);
+    }
+
+    static void check(ExtensionInfo extInfo) throws Exception {
+        TypeSystem ts = extInfo.typeSystem();
+
+        ImportTable first = ts.importTable("First.jl", null);
+        first.addTypeOnDemandImport("java.util");
+        ImportTable second = ts.importTable("Second.jl", null);
+        second.addTypeOnDemandImport("java.util");
+
+        try {
+            first.find("SharedImportsLater");
+            throw new AssertionError("SharedImportsLater found before it was entered");
+        } catch (NoClassException e) {
+            // Expected: the class does not exist yet.
+        }
+
+        ParsedClassType later = ts.createClassType();
+        later.name("SharedImportsLater");
+        later.flags(Flags.PUBLIC);
+        later.kind(ParsedClassType.TOP_LEVEL);
+        ts.systemResolver().addNamed(later.fullName(), later);
+
+        Named found = second.find("SharedImportsLater");
+        if (found != later)
+            throw new AssertionError("SharedImportsLater resolved to " + found + ", not " + later);
+    }
+}
@@ -0,0 +1,53 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import polyglot.main.CompilationSession;
+import polyglot.main.Main;
+import polyglot.pth.polyglot.CheckPrograms;
+import polyglot.util.StdErrorQueue;
+
+/**
+ * Checks that a queue that sorts errors still displays the errors of the
+ * post-compiler, which are reported after the compiler has flushed the
+ * queue for the last time.
+ */
+public class SortedErrorsCheck {
+    public static void main(String[] args) throws Exception {
+        File dir = Files.createTempDirectory("sorted-errors").toFile();
+        CompilationSession previous = CompilationSession.enter(new CompilationSession());
+        try {
+            File source = new File(dir, "X.jl");
+            Files.write(source.toPath(), "class X { }".getBytes(StandardCharsets.UTF_8));
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            PrintStream err = new PrintStream(bytes, true, "UTF-8");
+            StdErrorQueue eq = new StdErrorQueue(err, 100, "jlc", true, false);
+            try {
+                new Main()
+                        .start(
+                                new String[] {
+                                    "-sort-errors",
+                                    "-postcompiler",
+                                    new File(dir, "nonexistent-javac").getPath(),
+                                    "-d",
+                                    dir.getPath(),
+                                    source.getPath()
+                                },
+                                eq);
+                throw new AssertionError("the missing post-compiler did not fail the compilation");
+            } catch (Main.TerminationException e) {
+                // Expected: the post-compiler cannot be run.
+            }
+
+            String output = bytes.toString("UTF-8");
+            if (!output.contains("Cannot run program"))
+                throw new AssertionError("errors displayed are \"" + output + "\"");
+        } finally {
+            CompilationSession.exit(previous);
+            CheckPrograms.delete(dir);
+        }
+    }
+}
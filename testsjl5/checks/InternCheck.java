@@ -0,0 +1,145 @@
+import java.util.Collections;
+import java.util.Map;
+
+import polyglot.ext.jl5.JL5ExtensionInfo;
+import polyglot.ext.jl5.types.JL5ParsedClassType;
+import polyglot.ext.jl5.types.JL5Subst;
+import polyglot.ext.jl5.types.JL5SubstClassType_c;
+import polyglot.ext.jl5.types.JL5TypeSystem;
+import polyglot.ext.jl5.types.TypeVariable;
+import polyglot.ext.jl5.types.WildCardType_c;
+import polyglot.frontend.ExtensionInfo;
+import polyglot.pth.polyglot.CheckPrograms;
+import polyglot.types.ReferenceType;
+import polyglot.types.Type;
+import polyglot.util.Position;
+
+/**
+ * Checks that structurally equal substitutions, substituted class types and
+ * wildcards are interned to the same object and that different ones are
+ * not, and that types created without being interned still compare equal
+ * to the interned ones.
+ */
+public class InternCheck {
+    static JL5TypeSystem ts;
+
+    public static void main(String[] args) throws Exception {
+        CheckPrograms.withCompiler(new JL5ExtensionInfo(), InternCheck::check);
+    }
+
+    static void check(ExtensionInfo extInfo) throws Exception {
+        ts = (JL5TypeSystem) extInfo.typeSystem();
+        Position pos = Position.compilerGenerated();
+
+        JL5ParsedClassType list = (JL5ParsedClassType) ts.typeForName("java.util.List");
+        TypeVariable e = list.typeVariables().get(0);
+        ReferenceType string = ts.String();
+        ReferenceType integer = (ReferenceType) ts.typeForName("java.lang.Integer");
+
+        JL5ParsedClassType set = (JL5ParsedClassType) ts.typeForName("java.util.Set");
+        JL5ParsedClassType map = (JL5ParsedClassType) ts.typeForName("java.util.Map");
+
+        // Substitutions.
+        JL5Subst toString1 = subst(e, string);
+        JL5Subst toString2 = subst(e, string);
+        same("List<E := String> substitution", toString1, toString2);
+        distinct("E := String and E := Integer", toString1, subst(e, integer));
+
+        // Substituted class types.
+        Type listOfString1 = ts.instantiate(pos, list, string);
+        Type listOfString2 = ts.instantiate(pos, list, string);
+        Type listOfInteger = ts.instantiate(pos, list, integer);
+        same("List<String>", listOfString1, listOfString2);
+        same("List<String> substituted", listOfString1, toString2.substType(list));
+        distinct("List<String> and List<Integer>", listOfString1, listOfInteger);
+        distinct("List<String> and Set<String>", listOfString1, ts.instantiate(pos, set, string));
+        same(
+                "Map<String, Integer>",
+                ts.instantiate(pos, map, string, integer),
+                ts.instantiate(pos, map, string, integer));
+        distinct(
+                "Map<String, Integer> and Map<Integer, String>",
+                ts.instantiate(pos, map, string, integer),
+                ts.instantiate(pos, map, integer, string));
+        same(
+                "List<List<String>>",
+                ts.instantiate(pos, list, (ReferenceType) listOfString1),
+                ts.instantiate(pos, list, (ReferenceType) listOfString2));
+        distinct(
+                "List<List<String>> and List<List<Integer>>",
+                ts.instantiate(pos, list, (ReferenceType) listOfString1),
+                ts.instantiate(pos, list, (ReferenceType) listOfInteger));
+
+        // The position of a substituted class type is that of its base, so
+        // sharing it does not change the position of any instantiation.
+        Position elsewhere = new Position(null, "Elsewhere.jl5", 7, 3);
+        Type listOfStringElsewhere = ts.instantiate(elsewhere, list, string);
+        same("List<String> instantiated elsewhere", listOfString1, listOfStringElsewhere);
+        if (listOfStringElsewhere.position() != list.position())
+            throw new AssertionError(
+                    "List<String> is at " + listOfStringElsewhere.position() + ", not at List");
+
+        // Wildcards.
+        Type extendsString1 = ts.wildCardType(pos, string, null);
+        Type extendsString2 = ts.wildCardType(pos, string, null);
+        Type superInteger1 = ts.wildCardType(pos, null, integer);
+        Type superInteger2 = ts.wildCardType(pos, null, integer);
+        Type unbounded1 = ts.wildCardType(pos);
+        Type unbounded2 = ts.wildCardType(pos, ts.Object(), null);
+        same("? extends String", extendsString1, extendsString2);
+        same("? super Integer", superInteger1, superInteger2);
+        same("?", unbounded1, unbounded2);
+        distinct("? extends String and ? super Integer", extendsString1, superInteger1);
+        distinct("? extends String and ?", extendsString1, unbounded1);
+        distinct(
+                "? extends String and ? super String",
+                extendsString1,
+                ts.wildCardType(pos, null, string));
+        distinct(
+                "? extends List<String> and ? extends List<Integer>",
+                ts.wildCardType(pos, (ReferenceType) listOfString1, null),
+                ts.wildCardType(pos, (ReferenceType) listOfInteger, null));
+        distinct(
+                "List<? extends String> and List<? super String>",
+                ts.instantiate(pos, list, (ReferenceType) extendsString1),
+                ts.instantiate(pos, list, ts.wildCardType(pos, null, string)));
+
+        // Types created without being interned are equal to the interned
+        // ones without being the same object, until they are interned.
+        Type freshListOfString = new JL5SubstClassType_c(ts, pos, list, subst(e, string));
+        Type freshExtendsString = new WildCardType_c(ts, pos, string, null);
+        equal("List<String>", listOfString1, freshListOfString, true);
+        equal("List<Integer> and List<String>", listOfInteger, freshListOfString, false);
+        equal("? extends String", extendsString1, freshExtendsString, true);
+        equal("? super Integer and ? extends String", superInteger1, freshExtendsString, false);
+        same(
+                "List<String>[] of a type not interned",
+                ts.arrayOf(listOfString1),
+                ts.arrayOf(freshListOfString));
+        same("List<String> interned later", listOfString1, ts.intern(freshListOfString));
+        same("? extends String interned later", extendsString1, ts.intern(freshExtendsString));
+    }
+
+    static JL5Subst subst(TypeVariable tv, ReferenceType t) {
+        Map<TypeVariable, ReferenceType> m = Collections.singletonMap(tv, t);
+        return (JL5Subst) ts.subst(m);
+    }
+
+    static void same(String what, Object o1, Object o2) {
+        if (o1 != o2) throw new AssertionError(what + " interned to different objects");
+    }
+
+    static void distinct(String what, Object o1, Object o2) {
+        if (o1 == o2) throw new AssertionError(what + " interned together");
+    }
+
+    /**
+     * Check that {@code t1} and {@code t2}, which are different objects, are
+     * equal types if and only if {@code expected}.
+     */
+    static void equal(String what, Type t1, Type t2, boolean expected) {
+        distinct(what, t1, t2);
+        if (ts.typeEquals(t1, t2) != expected || ts.typeEquals(t2, t1) != expected)
+            throw new AssertionError(what + (expected ? " are not" : " are") + " equal types");
+    }
+}
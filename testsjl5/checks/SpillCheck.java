@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import polyglot.ext.jl5.JL5ExtensionInfo;
+import polyglot.ext.jl5.JL5Scheduler;
+import polyglot.frontend.ExtensionInfo;
+import polyglot.frontend.Job;
+import polyglot.frontend.MemorySource;
+import polyglot.frontend.Scheduler;
+import polyglot.main.CompilationSession;
+import polyglot.translate.JLOutputExtensionInfo;
+import polyglot.util.ErrorInfo;
+
+/**
+ * Checks that spilling ASTs to disk does not change the output: each group
+ * of sources is compiled once normally and once with every idle AST
+ * spilled after every pass, and the generated code must be the same, as
+ * must be whether unchanged method bodies were left out of the checks of
+ * the translated code.
+ */
+public class SpillCheck {
+    static final String[][] GROUPS = {
+        {"Access02.jl5"},
+        {"Access04A.jl5", "Access04B.jl5"},
+        {"Anonymous02.jl5"},
+        {"Anonymous03.jl5"},
+        {"Generics34.jl5"},
+        {"InnerClass01.jl5"},
+        {"InnerClass16.jl5"},
+        {"VarArgs09.jl5"},
+    };
+
+    static final List<String> ARGS =
+            Arrays.asList(
+                    "-c",
+                    "-classpath",
+                    "java-out",
+                    "-removeJava5isms",
+                    "-incremental524checks",
+                    "-enumImplClass",
+                    "MyEnum",
+                    "-assert",
+                    "-noserial",
+                    "-morepermissiveinference");
+
+    /** The number of ASTs spilled so far. */
+    static int spills;
+
+    public static void main(String[] args) throws Exception {
+        for (String[] group : GROUPS) {
+            JL5ExtensionInfo normal = new JL5ExtensionInfo();
+            CompilationSession.Output expected =
+                    new CompilationSession().compile(normal, ARGS, sources(group));
+            int before = spills;
+            JL5ExtensionInfo spilling = new SpillingExtensionInfo();
+            CompilationSession.Output actual =
+                    new CompilationSession().compile(spilling, ARGS, sources(group));
+            String name = Arrays.toString(group);
+            if (!expected.succeeded()) throw new AssertionError(name + ": " + messages(expected));
+            if (!actual.succeeded())
+                throw new AssertionError(name + " spilled: " + messages(actual));
+            if (spills == before) throw new AssertionError(name + ": no AST was spilled");
+            // Bodies are only elided while the members recorded before the
+            // removal of Java 5 features are still those of the AST.
+            if (bodiesElided(normal) != bodiesElided(spilling))
+                throw new AssertionError(name + ": bodies elided differently when spilled");
+            if (!expected.javaFiles().equals(actual.javaFiles())) {
+                throw new AssertionError(
+                        name
+                                + ": output differs when spilled:\n"
+                                + expected.javaFiles()
+                                + "\n"
+                                + actual.javaFiles());
+            }
+        }
+    }
+
+    static boolean bodiesElided(JL5ExtensionInfo extInfo) {
+        return ((JLOutputExtensionInfo) extInfo.outputExtensionInfo()).bodiesElided();
+    }
+
+    static List<String> messages(CompilationSession.Output output) {
+        List<String> messages = new ArrayList<>();
+        for (ErrorInfo e : output.errors()) {
+            messages.add(e.getErrorString() + ": " + e.getMessage());
+        }
+        return messages;
+    }
+
+    static Collection<MemorySource> sources(String[] files) throws IOException {
+        List<MemorySource> sources = new ArrayList<>();
+        for (String file : files) {
+            byte[] text = Files.readAllBytes(Paths.get(file));
+            sources.add(new MemorySource(file, new String(text, StandardCharsets.UTF_8)));
+        }
+        return sources;
+    }
+
+    /** Spill every idle AST that may be spilled, and count them. */
+    static void governMemory(Scheduler scheduler, Runnable govern) {
+        int before = spilled(scheduler);
+        govern.run();
+        spills += Math.max(0, spilled(scheduler) - before);
+    }
+
+    static int spilled(Scheduler scheduler) {
+        int n = 0;
+        for (Job job : scheduler.jobs()) {
+            if (job.isSpilled()) n++;
+        }
+        return n;
+    }
+
+    static class SpillingExtensionInfo extends JL5ExtensionInfo {
+        @Override
+        public Scheduler createScheduler() {
+            return new JL5Scheduler(this) {
+                @Override
+                protected long heapBudget() {
+                    return 1;
+                }
+
+                @Override
+                protected int residentJobs() {
+                    return 0;
+                }
+
+                @Override
+                protected void governMemory() {
+                    SpillCheck.governMemory(this, super::governMemory);
+                }
+            };
+        }
+
+        @Override
+        public ExtensionInfo outputExtensionInfo() {
+            if (outputExtensionInfo == null) {
+                outputExtensionInfo = new SpillingOutputExtensionInfo(this);
+            }
+            return outputExtensionInfo;
+        }
+    }
+
+    static class SpillingOutputExtensionInfo extends JLOutputExtensionInfo {
+        SpillingOutputExtensionInfo(ExtensionInfo parent) {
+            super(parent);
+        }
+
+        @Override
+        public Scheduler createScheduler() {
+            return new JLOutputScheduler(this) {
+                @Override
+                protected long heapBudget() {
+                    return 1;
+                }
+
+                @Override
+                protected int residentJobs() {
+                    return 0;
+                }
+
+                @Override
+                protected void governMemory() {
+                    SpillCheck.governMemory(this, super::governMemory);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+/**
+ * A benchmark measured by the harness.  The harness calls {@code setUp}
+ * once, then {@code run} repeatedly for the warmup and measurement
+ * iterations, and finally {@code tearDown}.
+ */
+public abstract class Benchmark {
+    protected final String name;
+
+    public Benchmark(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** Prepare the state used by every operation. */
+    public void setUp() throws Exception {}
+
+    /**
+     * Perform one operation.  The result should depend on the work done, so
+     * that the JIT cannot eliminate it; the harness consumes it.
+     */
+    public abstract Object run() throws Exception;
+
+    public void tearDown() throws Exception {}
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
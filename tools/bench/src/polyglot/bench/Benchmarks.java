@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The benchmarks known to the harness.
+ */
+public class Benchmarks {
+    protected static final String JL = "polyglot.frontend.JLExtensionInfo";
+    protected static final String JL5 = "polyglot.ext.jl5.JL5ExtensionInfo";
+    protected static final String JL8 = "polyglot.ext.jl8.JL8ExtensionInfo";
+
+    /**
+     * Return the benchmarks, with the corpora of the end-to-end benchmarks
+     * located relative to the Polyglot directory {@code root}.
+     */
+    public static List<Benchmark> all(File root) {
+        List<Benchmark> l = new ArrayList<>();
+
+        // End-to-end compilation of the test corpora and examples.
+        l.add(
+                new CompileBenchmark(
+                        "compile.tests",
+                        new File(root, "tests"),
+                        "jl",
+                        JL,
+                        "-assert",
+                        "-cp",
+                        new File(root, "tests/java-out").getPath()));
+        l.add(
+                new CompileBenchmark(
+                        "compile.testsjl5",
+                        new File(root, "testsjl5"),
+                        "jl5",
+                        JL5,
+                        "-assert",
+                        "-noserial",
+                        "-morepermissiveinference",
+                        "-classpath",
+                        new File(root, "testsjl5/java-out").getPath()));
+        // Removing Java 5 features, with the translation checked in full
+        // and with the flow checks of unchanged members skipped.
+        l.add(
+                new CompileBenchmark(
+                        "compile.testsjl5.removeJava5isms",
+                        new File(root, "testsjl5"),
+                        "jl5",
+                        JL5,
+                        "-assert",
+                        "-noserial",
+                        "-morepermissiveinference",
+                        "-removeJava5isms",
+                        "-classpath",
+                        new File(root, "testsjl5/java-out").getPath()));
+        l.add(
+                new CompileBenchmark(
+                        "compile.testsjl5.incremental524checks",
+                        new File(root, "testsjl5"),
+                        "jl5",
+                        JL5,
+                        "-assert",
+                        "-noserial",
+                        "-morepermissiveinference",
+                        "-removeJava5isms",
+                        "-incremental524checks",
+                        "-classpath",
+                        new File(root, "testsjl5/java-out").getPath()));
+        l.add(
+                new CompileBenchmark(
+                        "compile.testsjl8",
+                        new File(root, "testsjl8"),
+                        "jl8",
+                        JL8,
+                        "-assert",
+                        "-noserial",
+                        "-morepermissiveinference",
+                        "-classpath",
+                        new File(root, "testsjl8/java-out").getPath()));
+        l.add(
+                new CompileBenchmark(
+                        "compile.coffer",
+                        new File(root, "examples/coffer/tests"),
+                        "cof",
+                        "coffer.ExtensionInfo",
+                        "-assert"));
+        l.add(
+                new CompileBenchmark(
+                        "compile.pao",
+                        new File(root, "examples/pao/tests"),
+                        "pao",
+                        "pao.ExtensionInfo",
+                        "-assert"));
+
+        l.add(
+                new SessionCompileBenchmark(
+                        "compile.session.testsjl5",
+                        new File(root, "testsjl5"),
+                        "jl5",
+                        JL5,
+                        "-assert",
+                        "-noserial",
+                        "-morepermissiveinference",
+                        "-classpath",
+                        new File(root, "testsjl5/java-out").getPath()));
+
+        // Parsing alone, with the largest grammars.
+        l.add(new ParseBenchmark("parse.testsjl5", new File(root, "testsjl5"), "jl5", JL5));
+        l.add(new ParseBenchmark("parse.testsjl8", new File(root, "testsjl8"), "jl8", JL8));
+
+        // Micro-benchmarks.
+        l.add(new FindMethodBenchmark("types.findMethod", JL));
+        l.add(new SubtypeBenchmark("types.isSubtype", JL));
+        l.add(new InferenceBenchmark("types.inference", JL5));
+        l.add(new ClassFileBenchmark("types.classFile", JL));
+        l.add(new TypeEncoderBenchmark("types.encoder", JL));
+        l.add(new CodeWriterBenchmark("output.codeWriter"));
+        l.add(new UnicodeWriterBenchmark("output.unicodeWriter"));
+
+        return l;
+    }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+import java.io.StringWriter;
+
+import polyglot.util.CodeWriter;
+import polyglot.util.OptimalCodeWriter;
+
+/**
+ * Pretty-printing: formatting a document of nested calls, with breaks at
+ * several levels, in a narrow column with {@code OptimalCodeWriter}.
+ */
+public class CodeWriterBenchmark extends Benchmark {
+    protected static final int STATEMENTS = 200;
+    protected static final int ARGS = 6;
+
+    public CodeWriterBenchmark(String name) {
+        super(name);
+    }
+
+    @Override
+    public Object run() throws Exception {
+        StringWriter out = new StringWriter();
+        CodeWriter w = new OptimalCodeWriter(out, 72);
+        for (int i = 0; i < STATEMENTS; i++) {
+            w.begin(0);
+            w.write("result" + i);
+            w.write(" =");
+            w.allowBreak(4, " ");
+            w.write("receiver.method" + i + "(");
+            w.begin(0);
+            for (int j = 0; j < ARGS; j++) {
+                if (j > 0) {
+                    w.write(",");
+                    w.allowBreak(0, " ");
+                }
+                w.begin(2);
+                w.write("argument" + j);
+                w.allowBreak(2, 2, " ", 1);
+                w.write("+ " + i * j);
+                w.end();
+            }
+            w.end();
+            w.write(");");
+            w.end();
+            w.newline();
+        }
+        w.flush();
+        return out.getBuffer().length();
+    }
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import polyglot.main.Main.TerminationException;
+import polyglot.util.ErrorQueue;
+import polyglot.util.SilentErrorQueue;
+
+/**
+ * End-to-end benchmark: one operation compiles every source file of a
+ * corpus directory to Java, each file by a separate compiler invocation,
+ * as the test harness does.  Files that fail to compile are part of the
+ * corpus; their errors are discarded.
+ */
+public class CompileBenchmark extends Benchmark {
+    protected final File dir;
+    protected final String fileExtension;
+    protected final String extClass;
+    protected final List<String> args;
+
+    protected List<File> files;
+    protected File outputDir;
+
+    public CompileBenchmark(
+            String name, File dir, String fileExtension, String extClass, String... args) {
+        super(name);
+        this.dir = dir;
+        this.fileExtension = fileExtension;
+        this.extClass = extClass;
+        this.args = Arrays.asList(args);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        Class.forName(extClass);
+        File[] sources = dir.listFiles((d, n) -> n.endsWith("." + fileExtension));
+        if (sources == null || sources.length == 0)
+            throw new IllegalStateException("no ." + fileExtension + " files in " + dir);
+        Arrays.sort(sources);
+        files = Arrays.asList(sources);
+        outputDir = Files.createTempDirectory("polyglot-bench").toFile();
+    }
+
+    @Override
+    public Object run() throws Exception {
+        int errors = 0;
+        for (File f : files) {
+            List<String> cmdLine = new ArrayList<>();
+            cmdLine.add("-extclass");
+            cmdLine.add(extClass);
+            cmdLine.add("-c");
+            cmdLine.add("-d");
+            cmdLine.add(outputDir.getPath());
+            cmdLine.addAll(args);
+            cmdLine.add(f.getPath());
+            ErrorQueue eq = new SilentErrorQueue(100, name);
+            try {
+                new polyglot.main.Main().start(cmdLine.toArray(new String[cmdLine.size()]), eq);
+            } catch (TerminationException e) {
+            }
+            errors += eq.errorCount();
+        }
+        return errors;
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (outputDir != null) delete(outputDir);
+    }
+
+    protected static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null) for (File child : children) delete(child);
+        f.delete();
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import polyglot.types.ClassType;
+import polyglot.types.MethodInstance;
+import polyglot.types.Type;
+
+/**
+ * Method lookup: overload resolution of calls to methods of
+ * {@code java.lang.StringBuilder}, which has many overloads.
+ */
+public class FindMethodBenchmark extends TypeSystemBenchmark {
+    protected ClassType container;
+    protected List<String> names;
+    protected List<List<Type>> argTypes;
+
+    public FindMethodBenchmark(String name, String extClass) {
+        super(name, extClass);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        container = classType("java.lang.StringBuilder");
+        ClassType string = classType("java.lang.String");
+        names = Arrays.asList("append", "append", "append", "insert", "indexOf", "charAt");
+        argTypes =
+                Arrays.asList(
+                        Collections.<Type>singletonList(ts.Int()),
+                        Collections.<Type>singletonList(string),
+                        Collections.<Type>singletonList(ts.Object()),
+                        Arrays.<Type>asList(ts.Int(), ts.Char()),
+                        Collections.<Type>singletonList(string),
+                        Collections.<Type>singletonList(ts.Short()));
+    }
+
+    @Override
+    public Object run() throws Exception {
+        MethodInstance mi = null;
+        for (int i = 0; i < names.size(); i++)
+            mi = ts.findMethod(container, names.get(i), argTypes.get(i), container, true);
+        return mi;
+    }
+}
@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Main program for the Polyglot benchmark harness.
+ *
+ * Each benchmark is run for a number of warmup iterations followed by a
+ * number of measurement iterations of fixed duration.  The harness reports
+ * the throughput of each benchmark and the number of bytes it allocates per
+ * operation.  Results can be saved and compared against a saved baseline,
+ * in which case the harness exits with a nonzero status if any benchmark
+ * regressed by more than the threshold.
+ */
+public class Main {
+    /** Sink for the results of benchmark operations. */
+    protected static volatile Object sink;
+
+    protected List<String> filters = new ArrayList<>();
+    protected int warmupIterations = 3;
+    protected int iterations = 5;
+    protected long iterationMillis = 1000;
+    protected String outputFile = null;
+    protected String baselineFile = null;
+    protected double threshold = 0.05;
+    protected File root = new File(".");
+    protected boolean list = false;
+
+    public static void main(String[] args) {
+        System.exit(new Main().start(args));
+    }
+
+    public int start(String[] args) {
+        try {
+            parseCommandLine(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+
+        List<Benchmark> benchmarks = new ArrayList<>();
+        for (Benchmark b : Benchmarks.all(root)) if (matchFilter(b)) benchmarks.add(b);
+
+        if (list) {
+            for (Benchmark b : benchmarks) System.out.println(b.name());
+            return 0;
+        }
+
+        List<Result> results = new ArrayList<>();
+        System.out.println(
+                String.format("%-32s %14s %10s %14s", "benchmark", "ops/s", "error", "B/op"));
+        for (Benchmark b : benchmarks) {
+            Result r;
+            try {
+                r = measure(b);
+            } catch (Exception e) {
+                System.out.println(String.format("%-32s skipped: %s", b.name(), e));
+                continue;
+            }
+            System.out.println(
+                    String.format(
+                            "%-32s %14.3f %10.3f %14.0f",
+                            r.name, r.opsPerSecond, r.error, r.bytesPerOp));
+            results.add(r);
+        }
+
+        try {
+            if (outputFile != null) write(results, new File(outputFile));
+            if (baselineFile != null) {
+                Map<String, Result> baseline = read(new File(baselineFile));
+                if (!compare(baseline, results)) return 1;
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+        return 0;
+    }
+
+    protected boolean matchFilter(Benchmark b) {
+        if (filters.isEmpty()) return true;
+        for (String filter : filters)
+            if (Pattern.compile(filter).matcher(b.name()).find()) return true;
+        return false;
+    }
+
+    /** Run the warmup and measurement iterations of {@code b}. */
+    protected Result measure(Benchmark b) throws Exception {
+        b.setUp();
+        try {
+            for (int i = 0; i < warmupIterations; i++) iteration(b);
+
+            double[] throughput = new double[iterations];
+            long ops = 0;
+            long bytes = 0;
+            for (int i = 0; i < iterations; i++) {
+                long[] it = iteration(b);
+                throughput[i] = it[0] * 1e9 / it[1];
+                ops += it[0];
+                bytes = bytes < 0 || it[2] < 0 ? -1 : bytes + it[2];
+            }
+
+            double mean = 0;
+            for (double t : throughput) mean += t;
+            mean /= iterations;
+            double variance = 0;
+            for (double t : throughput) variance += (t - mean) * (t - mean);
+            double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+
+            return new Result(b.name(), mean, error, bytes < 0 ? Double.NaN : (double) bytes / ops);
+        } finally {
+            b.tearDown();
+        }
+    }
+
+    /**
+     * Run one iteration of {@code b}, returning the number of operations,
+     * the elapsed time in nanoseconds, and the number of bytes allocated,
+     * or -1 if the VM does not measure allocation.
+     */
+    protected long[] iteration(Benchmark b) throws Exception {
+        long deadline = iterationMillis * 1000000L;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        long ops = 0;
+        long elapsed;
+        do {
+            sink = b.run();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < deadline);
+        long bytes = allocated < 0 ? -1 : allocatedBytes() - allocated;
+        return new long[] {ops, elapsed, bytes};
+    }
+
+    protected static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()
+                    && sunBean.isThreadAllocatedMemoryEnabled())
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    protected void write(List<Result> results, File file) throws IOException {
+        try (PrintWriter w = new PrintWriter(new FileWriter(file))) {
+            w.println("# benchmark\tops/s\terror\tB/op");
+            for (Result r : results) w.println(r);
+        }
+    }
+
+    protected Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        try (BufferedReader r = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                Result result = Result.parse(line);
+                results.put(result.name, result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compare {@code results} against {@code baseline}, returning false if
+     * the throughput of a benchmark dropped, or its allocation rose, by more
+     * than the threshold.
+     */
+    protected boolean compare(Map<String, Result> baseline, List<Result> results) {
+        boolean okay = true;
+        System.out.println();
+        System.out.println(
+                String.format("%-32s %10s %10s  %s", "benchmark", "ops/s", "B/op", "vs. baseline"));
+        for (Result r : results) {
+            Result base = baseline.get(r.name);
+            if (base == null) continue;
+            double throughput = r.opsPerSecond / base.opsPerSecond - 1;
+            double allocation = r.bytesPerOp / base.bytesPerOp - 1;
+            boolean regressed =
+                    throughput < -threshold || !Double.isNaN(allocation) && allocation > threshold;
+            System.out.println(
+                    String.format(
+                            "%-32s %+9.1f%% %+9.1f%%  %s",
+                            r.name,
+                            throughput * 100,
+                            allocation * 100,
+                            regressed ? "REGRESSION" : "ok"));
+            okay = okay && !regressed;
+        }
+        return okay;
+    }
+
+    protected void parseCommandLine(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-f") || arg.equals("-filter")) filters.add(stringArg(args, ++i));
+            else if (arg.equals("-wi")) warmupIterations = intArg(args, ++i, 0);
+            else if (arg.equals("-i")) iterations = intArg(args, ++i, 1);
+            else if (arg.equals("-time")) iterationMillis = intArg(args, ++i, 1);
+            else if (arg.equals("-o")) outputFile = stringArg(args, ++i);
+            else if (arg.equals("-compare")) baselineFile = stringArg(args, ++i);
+            else if (arg.equals("-threshold")) threshold = intArg(args, ++i, 0) / 100.0;
+            else if (arg.equals("-root")) root = new File(stringArg(args, ++i));
+            else if (arg.equals("-l") || arg.equals("-list")) list = true;
+            else if (arg.equals("-h") || arg.equals("-help")) {
+                usage();
+                System.exit(0);
+            } else
+                throw new IllegalArgumentException("Unknown switch: " + arg + "\nTry -h for help.");
+        }
+    }
+
+    protected static String stringArg(String[] args, int i) {
+        if (i >= args.length)
+            throw new IllegalArgumentException("Missing argument for " + args[i - 1]);
+        return args[i];
+    }
+
+    protected static int intArg(String[] args, int i, int min) {
+        String s = stringArg(args, i);
+        try {
+            int n = Integer.parseInt(s);
+            if (n >= min) return n;
+        } catch (NumberFormatException e) {
+        }
+        throw new IllegalArgumentException(
+                "Expected an integer of at least " + min + " for " + args[i - 1] + ", not " + s);
+    }
+
+    protected void usage() {
+        System.out.println("Polyglot benchmark harness");
+        System.out.println("Usage: bench [options]");
+        System.out.println("where options include:");
+        System.out.println(
+                "  -f, -filter <regexp>   only run the benchmarks whose names match regexp");
+        System.out.println("  -l, -list              list the benchmarks; don't run them");
+        System.out.println("  -wi <n>                number of warmup iterations (default 3)");
+        System.out.println("  -i <n>                 number of measurement iterations (default 5)");
+        System.out.println("  -time <ms>             duration of each iteration (default 1000)");
+        System.out.println("  -o <file>              save the results to file");
+        System.out.println("  -compare <file>        compare the results with those saved in file");
+        System.out.println(
+                "  -threshold <percent>   regression threshold for -compare (default 5)");
+        System.out.println("  -root <dir>            the Polyglot directory holding the corpora");
+    }
+}
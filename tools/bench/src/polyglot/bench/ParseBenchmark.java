@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import polyglot.frontend.FileSource;
+import polyglot.frontend.Parser;
+import polyglot.frontend.Source;
+import polyglot.util.ErrorQueue;
+import polyglot.util.SilentErrorQueue;
+
+/**
+ * Parsing: one operation lexes and parses every source file of a corpus
+ * directory with the parser of an extension.  The files are read once
+ * during setup, so the operation measures the lexer, the parse tables and
+ * AST construction only.
+ */
+public class ParseBenchmark extends TypeSystemBenchmark {
+    protected final File dir;
+    protected final String fileExtension;
+
+    protected List<FileSource> sources;
+    protected List<String> contents;
+
+    public ParseBenchmark(String name, File dir, String fileExtension, String extClass) {
+        super(name, extClass);
+        this.dir = dir;
+        this.fileExtension = fileExtension;
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        File[] files = dir.listFiles((d, n) -> n.endsWith("." + fileExtension));
+        if (files == null || files.length == 0)
+            throw new IllegalStateException("no ." + fileExtension + " files in " + dir);
+        Arrays.sort(files);
+        sources = new ArrayList<>();
+        contents = new ArrayList<>();
+        for (File f : files) {
+            sources.add(extInfo.sourceLoader().fileSource(f.getPath(), Source.Kind.USER_SPECIFIED));
+            contents.add(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public Object run() throws Exception {
+        int errors = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            ErrorQueue eq = new SilentErrorQueue(100, name);
+            Parser p = extInfo.parser(new StringReader(contents.get(i)), sources.get(i), eq);
+            p.parse();
+            errors += eq.errorCount();
+        }
+        return errors;
+    }
+}
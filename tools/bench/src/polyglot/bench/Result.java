@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+/**
+ * The measurements of one benchmark: mean throughput over the measurement
+ * iterations, its spread, and the number of bytes allocated per operation.
+ */
+public class Result {
+    public final String name;
+    public final double opsPerSecond;
+    public final double error;
+    public final double bytesPerOp;
+
+    public Result(String name, double opsPerSecond, double error, double bytesPerOp) {
+        this.name = name;
+        this.opsPerSecond = opsPerSecond;
+        this.error = error;
+        this.bytesPerOp = bytesPerOp;
+    }
+
+    /** Parse a line written by {@link #toString()}. */
+    public static Result parse(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length != 4)
+            throw new IllegalArgumentException("Malformed benchmark result: " + line);
+        return new Result(
+                fields[0],
+                Double.parseDouble(fields[1]),
+                Double.parseDouble(fields[2]),
+                Double.parseDouble(fields[3]));
+    }
+
+    @Override
+    public String toString() {
+        return name + "\t" + opsPerSecond + "\t" + error + "\t" + bytesPerOp;
+    }
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import polyglot.frontend.ExtensionInfo;
+import polyglot.frontend.MemorySource;
+import polyglot.main.CompilationSession;
+
+/**
+ * End-to-end benchmark of compilation in memory: one operation compiles
+ * every source file of a corpus directory to Java in a single
+ * {@code CompilationSession}, each file by a separate call, as a build tool
+ * using the session would.  The files are read once during setup.  Compare
+ * with the {@code CompileBenchmark} of the same corpus.
+ */
+public class SessionCompileBenchmark extends Benchmark {
+    protected final File dir;
+    protected final String fileExtension;
+    protected final String extClass;
+    protected final List<String> args;
+
+    protected List<MemorySource> sources;
+    protected CompilationSession session;
+
+    public SessionCompileBenchmark(
+            String name, File dir, String fileExtension, String extClass, String... args) {
+        super(name);
+        this.dir = dir;
+        this.fileExtension = fileExtension;
+        this.extClass = extClass;
+        this.args = new ArrayList<>();
+        this.args.add("-c");
+        this.args.addAll(Arrays.asList(args));
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        File[] files = dir.listFiles((d, n) -> n.endsWith("." + fileExtension));
+        if (files == null || files.length == 0)
+            throw new IllegalStateException("no ." + fileExtension + " files in " + dir);
+        Arrays.sort(files);
+        sources = new ArrayList<>();
+        for (File f : files) {
+            String text = new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+            sources.add(new MemorySource(f.getName(), text));
+        }
+        session = new CompilationSession();
+    }
+
+    @Override
+    public Object run() throws Exception {
+        int errors = 0;
+        for (MemorySource source : sources) {
+            ExtensionInfo extInfo =
+                    (ExtensionInfo) Class.forName(extClass).getDeclaredConstructor().newInstance();
+            errors +=
+                    session.compile(extInfo, args, Collections.singletonList(source))
+                            .errors()
+                            .size();
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import polyglot.types.Type;
+
+/**
+ * Subtyping queries between library classes, both ones that hold and ones
+ * that do not, including primitive widening.
+ */
+public class SubtypeBenchmark extends TypeSystemBenchmark {
+    protected List<Type> children;
+    protected List<Type> ancestors;
+
+    public SubtypeBenchmark(String name, String extClass) {
+        super(name, extClass);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        children = new ArrayList<>();
+        ancestors = new ArrayList<>();
+        pair(classType("java.util.ArrayList"), classType("java.util.Collection"));
+        pair(classType("java.util.HashMap"), ts.Object());
+        pair(classType("java.lang.String"), classType("java.lang.CharSequence"));
+        pair(classType("java.lang.Integer"), classType("java.lang.Number"));
+        pair(classType("java.util.ArrayList"), classType("java.util.Map"));
+        pair(classType("java.util.LinkedHashSet"), classType("java.util.SortedSet"));
+        pair(ts.arrayOf(classType("java.lang.String")), ts.arrayOf(ts.Object()));
+        pair(ts.Int(), ts.Long());
+    }
+
+    protected void pair(Type child, Type ancestor) {
+        children.add(child);
+        ancestors.add(ancestor);
+    }
+
+    @Override
+    public Object run() throws Exception {
+        int subtypes = 0;
+        for (int i = 0; i < children.size(); i++)
+            if (ts.isSubtype(children.get(i), ancestors.get(i))) subtypes++;
+        return subtypes;
+    }
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+import polyglot.types.ClassType;
+import polyglot.types.SystemResolver;
+import polyglot.util.TypeEncoder;
+
+/**
+ * Type serialization: encoding a class type as the encoders of
+ * {@code ClassSerializer} do, and decoding it again as
+ * {@code LoadedClassResolver} does.
+ */
+public class TypeEncoderBenchmark extends TypeSystemBenchmark {
+    protected ClassType type;
+    protected TypeEncoder te;
+
+    public TypeEncoderBenchmark(String name, String extClass) {
+        super(name, extClass);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        type = classType("java.util.ArrayList");
+        // Resolve the members so that they are encoded too.
+        type.methods();
+        type.fields();
+        type.constructors();
+        te = new TypeEncoder(ts);
+    }
+
+    @Override
+    public Object run() throws Exception {
+        String encoded = te.encode(type);
+        // Decode into a scratch system resolver, as LoadedClassResolver
+        // does, and discard the decoded types.
+        SystemResolver oldResolver = ts.saveSystemResolver();
+        try {
+            return te.decode(encoded, type.fullName());
+        } finally {
+            ts.restoreSystemResolver(oldResolver);
+        }
+    }
+}
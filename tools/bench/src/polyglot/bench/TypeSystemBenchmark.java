@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+
+import polyglot.frontend.Compiler;
+import polyglot.frontend.ExtensionInfo;
+import polyglot.main.CompilationSession;
+import polyglot.main.Options;
+import polyglot.types.ClassType;
+import polyglot.types.SemanticException;
+import polyglot.types.TypeSystem;
+import polyglot.util.SilentErrorQueue;
+
+/**
+ * A benchmark of the type system of an extension.  Setting up creates a
+ * compiler for the extension, as {@code polyglot.util.typedump.Main} does,
+ * and makes its type system available to the operations.
+ */
+public abstract class TypeSystemBenchmark extends Benchmark {
+    protected final String extClass;
+
+    protected ExtensionInfo extInfo;
+    protected TypeSystem ts;
+    protected File outputDir;
+
+    public TypeSystemBenchmark(String name, String extClass) {
+        super(name);
+        this.extClass = extClass;
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        extInfo = (ExtensionInfo) Class.forName(extClass).getDeclaredConstructor().newInstance();
+        outputDir = Files.createTempDirectory("polyglot-bench").toFile();
+        Options options = extInfo.getOptions();
+        CompilationSession.current().setOptions(options);
+        options.parseCommandLine(
+                new String[] {"-d", outputDir.getPath(), "Dummy"}, new HashSet<String>());
+        new Compiler(extInfo, new SilentErrorQueue(100, name));
+        ts = extInfo.typeSystem();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (outputDir != null) outputDir.delete();
+    }
+
+    protected ClassType classType(String name) throws SemanticException {
+        return (ClassType) ts.typeForName(name);
+    }
+}
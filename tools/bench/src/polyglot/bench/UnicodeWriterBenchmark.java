@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.bench;
+
+import java.io.StringWriter;
+import java.io.Writer;
+
+import polyglot.util.UnicodeWriter;
+
+/**
+ * Output escaping: writing generated code with occasional non-ASCII string
+ * constants through {@code UnicodeWriter}.
+ */
+public class UnicodeWriterBenchmark extends Benchmark {
+    protected static final int LINES = 5000;
+
+    protected final String[] lines;
+
+    public UnicodeWriterBenchmark(String name) {
+        super(name);
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            lines[i] =
+                    i % 10 == 0
+                            ? "        String s"
+                                    + i
+                                    + " = \"gr\u00fc\u00dfe \u03b1\u03b2\u03b3 "
+                                    + i
+                                    + "\";\n"
+                            : "        int x"
+                                    + i
+                                    + " = receiver.method"
+                                    + i
+                                    + "(argument, "
+                                    + i
+                                    + ");\n";
+        }
+    }
+
+    @Override
+    public Object run() throws Exception {
+        StringWriter out = new StringWriter(LINES * 64);
+        try (Writer w = new UnicodeWriter(out)) {
+            for (String line : lines) w.write(line);
+        }
+        return out.getBuffer().length();
+    }
+}
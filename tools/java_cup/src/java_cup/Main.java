@@ -2,10 +2,28 @@ package java_cup;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 import java_cup.runtime.ComplexSymbolFactory;
 import parser.StateItem;
@@ -40,6 +58,9 @@ import parser.UnifiedExample;
  *   <dd> number of conflicts expected/allowed [default 0]
  *   <dt> -compact_red
  *   <dd> compact tables by defaulting to most frequent reduce
+ *   <dt> -packed
+ *   <dd> pack the action and reduce-goto tables into comb vectors for
+ *        constant time lookup
  *   <dt> -max_actions #
  *   <dd> maximum number of actions per method in generated code
  *        (useful if javac complains about code size &gt;64K) [default 400]
@@ -68,6 +89,9 @@ import parser.UnifiedExample;
  *   <dt> -noscanner
  *   <dd> don't refer to java_cup.runtime.Scanner in the parser
  *        (for compatibility with old runtimes)
+ *   <dt> -cachedir dir
+ *   <dd> reuse the parser and symbol classes generated earlier from an
+ *        identical specification, kept in the given directory
  *   <dt> -version
  *   <dd> print version information for JavaCUP and halt.
  *   </dl>
@@ -137,6 +161,10 @@ public class Main {
      *  java_cup.runtime.Scanner for compatibility with old runtimes? */
     protected static boolean suppress_scanner = false;
 
+    /** User option -- directory in which generated classes are cached, keyed
+     *  by a hash of the specification, the options, and this CUP build. */
+    protected static File cache_dir = null;
+
     /*----------------------------------------------------------------------*/
     /* Timing data (not all of these time intervals are mutually exclusive) */
     /*----------------------------------------------------------------------*/
@@ -203,6 +231,24 @@ public class Main {
         emit.set_locations(locations);
         emit.set_xmlactions(xmlactions);
         emit.set_genericlabels(genericlabels);
+        /* reuse the output of an earlier run on the same specification */
+        String cache_key = null;
+        if (cache_dir != null
+                && !(opt_dump_grammar || opt_dump_states || opt_dump_tables || opt_do_debug)) {
+            cache_key = cache_key(argv);
+            if (cache_key != null && restore_from_cache(cache_key)) {
+                if (!no_summary)
+                    System.err.println(
+                            "Code for \""
+                                    + emit.parser_class_name
+                                    + ".java\" and \""
+                                    + emit.symbol_const_class_name
+                                    + ".java\" reused from "
+                                    + cache_dir);
+                return;
+            }
+        }
+
         /* open output set_xmlactionsfiles */
         if (print_progress) System.err.println("Opening files...");
         /* use a buffered version of standard input */
@@ -255,6 +301,10 @@ public class Main {
         if (print_progress) System.err.println("Closing files...");
         close_files();
 
+        /* remember the output for the next run on the same specification */
+        if (cache_key != null && did_output && ErrorManager.getManager().getErrorCount() == 0)
+            store_in_cache(cache_key);
+
         /* produce a summary if desired */
         if (!no_summary) emit_summary(did_output);
 
@@ -316,6 +366,7 @@ public class Main {
                         + "    -expect #      number of conflicts expected/allowed [default 0]\n"
                         + "    -compact_red   compact tables by defaulting to most frequent"
                         + " reduce\n"
+                        + "    -packed        pack the parse tables for constant time lookup\n"
                         + "    -max_actions   maximum number of actions per method in generated"
                         + " code\n"
                         + "                   (useful if javac complains about code size >64K)\n"
@@ -338,6 +389,8 @@ public class Main {
                         + "    -dump_states   produce a dump of parse state machine\n"
                         + "    -dump_tables   produce a dump of the parse tables\n"
                         + "    -dump          produce a dump of all of the above\n"
+                        + "    -cachedir name reuse classes generated from an identical"
+                        + " specification\n"
                         + "    -version       print the version information for CUP and exit\n"
                         + "    -noexamples    do not search for counterexamples in case of"
                         + " conflict\n"
@@ -372,6 +425,12 @@ public class Main {
                     usage("-destdir must have a name argument");
                 /* record the name */
                 Main.dest_dir = new java.io.File(argv[i]);
+            } else if (argv[i].equals("-cachedir")) {
+                /* must have an arg */
+                if (++i >= len || argv[i].startsWith("-") || argv[i].endsWith(".cup"))
+                    usage("-cachedir must have a name argument");
+                /* record the name */
+                cache_dir = new java.io.File(argv[i]);
             } else if (argv[i].equals("-parser")) {
                 /* must have an arg */
                 if (++i >= len || argv[i].startsWith("-") || argv[i].endsWith(".cup"))
@@ -414,6 +473,7 @@ public class Main {
                     usage("-max_actions must be followed by a decimal integer");
                 }
             } else if (argv[i].equals("-compact_red")) opt_compact_red = true;
+            else if (argv[i].equals("-packed")) emit.packed_tables = true;
             else if (argv[i].equals("-nosummary")) no_summary = true;
             else if (argv[i].equals("-nowarn")) emit.nowarn = true;
             else if (argv[i].equals("-dump_states")) opt_dump_states = true;
@@ -526,6 +586,153 @@ public class Main {
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+    /*-------*/
+    /* Cache */
+    /*-------*/
+
+    /** Compute the key under which the output for this run is cached: a hash
+     *  of the specification on standard input, the options that affect the
+     *  generated code, and the classes of this CUP implementation.  Standard
+     *  input is replaced by the bytes that were read.  Returns null if CUP is
+     *  not running from a jar file, since changes to its own classes could
+     *  then go unnoticed.
+     * @param argv the command line arguments.
+     */
+    protected static String cache_key(String argv[]) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+
+        if (!digest_implementation(md)) return null;
+
+        /* the options, except those that only say where files are */
+        for (int i = 0; i < argv.length; i++) {
+            if (argv[i].equals("-cachedir") || argv[i].equals("-destdir")) i++;
+            else if (i < argv.length - 1 || argv[i].startsWith("-"))
+                md.update((argv[i] + "\0").getBytes(StandardCharsets.UTF_8));
+        }
+
+        /* the specification itself */
+        ByteArrayOutputStream spec = new ByteArrayOutputStream();
+        InputStream in = System.in;
+        byte[] buf = new byte[8192];
+        for (int n = in.read(buf); n >= 0; n = in.read(buf)) spec.write(buf, 0, n);
+        in.close();
+        byte[] bytes = spec.toByteArray();
+        md.update(bytes);
+        System.setIn(new ByteArrayInputStream(bytes));
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : md.digest()) key.append(String.format("%02x", b & 0xff));
+        return key.toString();
+    }
+
+    /** Add the classes of this CUP implementation to a digest.  Only the
+     *  names and checksums of the entries of the jar file are used, so
+     *  rebuilding the jar without changing its classes does not invalidate
+     *  the cache.  Returns false if CUP is not running from a jar file.
+     * @param md the digest to update.
+     */
+    protected static boolean digest_implementation(MessageDigest md) throws IOException {
+        CodeSource src = Main.class.getProtectionDomain().getCodeSource();
+        if (src == null) return false;
+        File jar_file;
+        try {
+            jar_file = new File(src.getLocation().toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return false;
+        }
+        if (!jar_file.isFile()) return false;
+
+        Map<String, Long> classes = new TreeMap<>();
+        try (JarFile jar = new JarFile(jar_file)) {
+            for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+                JarEntry entry = e.nextElement();
+                if (entry.getName().endsWith(".class"))
+                    classes.put(entry.getName(), entry.getCrc());
+            }
+        }
+        md.update((version.title_str + "\0").getBytes(StandardCharsets.UTF_8));
+        for (Map.Entry<String, Long> e : classes.entrySet())
+            md.update((e.getKey() + "=" + e.getValue() + "\0").getBytes(StandardCharsets.UTF_8));
+        return true;
+    }
+
+    /** The file in which the cache keeps one of the generated classes.
+     * @param key   the cache key of this run.
+     * @param which "parser" or "symbols".
+     */
+    protected static Path cache_file(String key, String which) {
+        return new File(cache_dir, key + "." + which + ".java").toPath();
+    }
+
+    /** Copy the generated classes from the cache to the output files.
+     *  Returns false if they are not in the cache.
+     * @param key the cache key of this run.
+     */
+    protected static boolean restore_from_cache(String key) throws IOException {
+        Path parser = cache_file(key, "parser");
+        Path symbols = cache_file(key, "symbols");
+
+        /* the parser class is stored last, so it implies the symbol class */
+        if (!Files.isRegularFile(parser)) return false;
+
+        Files.copy(
+                symbols,
+                new File(dest_dir, emit.symbol_const_class_name + ".java").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(
+                parser,
+                new File(dest_dir, emit.parser_class_name + ".java").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /** Copy the generated classes to the cache.  Each file is written under
+     *  a temporary name and then renamed, so that concurrent runs sharing the
+     *  cache never see a partially written file.  Failing to update the cache
+     *  is not an error.
+     * @param key the cache key of this run.
+     */
+    protected static void store_in_cache(String key) {
+        try {
+            Files.createDirectories(cache_dir.toPath());
+            copy_into_cache(
+                    new File(dest_dir, emit.symbol_const_class_name + ".java").toPath(),
+                    cache_file(key, "symbols"));
+            copy_into_cache(
+                    new File(dest_dir, emit.parser_class_name + ".java").toPath(),
+                    cache_file(key, "parser"));
+        } catch (IOException e) {
+            if (!emit.nowarn)
+                System.err.println("Warning : Unable to update the cache: " + e.getMessage());
+        }
+    }
+
+    /** Copy one generated file into the cache, atomically replacing any
+     *  existing entry.
+     * @param from the generated file.
+     * @param to   the cache entry.
+     */
+    protected static void copy_into_cache(Path from, Path to) throws IOException {
+        Path tmp = Files.createTempFile(to.getParent(), "cup", ".tmp");
+        try {
+            Files.copy(from, tmp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(tmp, to, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, to, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
     /** Parse the grammar specification from standard input.  This produces
      *  sets of terminal, non-terminals, and productions which can be accessed
      *  via static variables of the respective classes, as well as the setting
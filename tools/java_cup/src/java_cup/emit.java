@@ -3,6 +3,8 @@ package java_cup;
 import java.io.PrintWriter;
 import java.util.Stack;
 
+import java_cup.runtime.PackedTable;
+
 /**
  * This class handles emitting generated code for the resulting parser.
  * The various parse tables must be constructed, etc. before calling any
@@ -180,6 +182,11 @@ public class emit {
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+    /** Do we emit the action and reduce-goto tables packed into comb vectors? */
+    public static boolean packed_tables = false;
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
     /** Count of the number on non-reduced productions found. */
     public static int not_reduced = 0;
 
@@ -260,6 +267,7 @@ public class emit {
         init_code = null;
         not_reduced = 0;
         num_conflicts = 0;
+        packed_tables = false;
         package_name = null;
         parser_class_name = "parser";
         parser_code = null;
@@ -815,6 +823,16 @@ public class emit {
         }
 
         /* finish off the init of the table */
+        if (do_packed_table(
+                out,
+                action_table,
+                parse_action_row.size(),
+                false,
+                "Parse-action table",
+                "action_table")) {
+            action_table_time = System.currentTimeMillis() - start_time;
+            return;
+        }
         out.println();
         out.println("  /** Parse-action table. */");
         out.println("  protected static final short[][] _action_table = ");
@@ -871,6 +889,17 @@ public class emit {
         }
 
         /* emit the table. */
+        if (do_packed_table(
+                out,
+                reduce_goto_table,
+                parse_reduce_row.size(),
+                true,
+                "{@code reduce_goto} table",
+                "reduce_table")) {
+            out.println();
+            goto_table_time = System.currentTimeMillis() - start_time;
+            return;
+        }
         out.println();
         out.println("  /** {@code reduce_goto} table. */");
         out.println("  protected static final short[][] _reduce_table = ");
@@ -888,6 +917,64 @@ public class emit {
         goto_table_time = System.currentTimeMillis() - start_time;
     }
 
+    /** Emit a table packed into comb vectors, if packed tables were
+     *  requested.  The generated parser overrides the packed accessor of
+     *  lr_parser, and rebuilds the unpacked rows only if they are asked for.
+     *  Returns false, having emitted nothing, if the table is to be emitted
+     *  unpacked.
+     * @param out     stream to produce output on.
+     * @param table   the table in the usual CUP format.
+     * @param width   the number of columns of the table.
+     * @param by_column pack the reduce-goto table by columns, rather than
+     *                the action table by rows?
+     * @param title   a description of the table for the generated comments.
+     * @param name    the name of the accessor for the unpacked table.
+     */
+    protected static boolean do_packed_table(
+            PrintWriter out,
+            short[][] table,
+            int width,
+            boolean by_column,
+            String title,
+            String name) {
+        if (!packed_tables) return false;
+
+        PackedTable packed;
+        try {
+            packed =
+                    by_column
+                            ? PackedTable.pack_by_column(table, width)
+                            : PackedTable.pack(table, width, (short) 0);
+        } catch (IllegalArgumentException e) {
+            /* too big to pack, so leave it as it is */
+            return false;
+        }
+
+        out.println();
+        out.println("  /** " + title + ", packed for constant time lookup. */");
+        out.println(
+                "  protected static final java_cup.runtime.PackedTable _packed_" + name + " = ");
+        out.print("    java_cup.runtime.PackedTable.unpack(");
+        do_table_as_string(out, packed.encode());
+        out.println(");");
+
+        /* do the public accessor methods */
+        out.println();
+        out.println("  /** Access to packed " + title + ". */");
+        out.println("  @Override");
+        out.println(
+                "  public java_cup.runtime.PackedTable packed_"
+                        + name
+                        + "() {return _packed_"
+                        + name
+                        + ";}");
+        out.println();
+        out.println("  /** Access to " + title + ". */");
+        out.println("  @Override");
+        out.println("  public short[][] " + name + "() {return _packed_" + name + ".rows();}");
+        return true;
+    }
+
     // print a string array encoding the given short[][] array.
     protected static void do_table_as_string(PrintWriter out, short[][] sa) {
         out.println("new String[] {");
@@ -1,5 +1,6 @@
 package java_cup;
 
+import java.util.ArrayDeque;
 import java.util.Stack;
 
 /** This class represents an LALR item. Each LALR item consists of
@@ -127,9 +128,21 @@ public class lalr_item extends lr_item_core {
             /* don't need to propagate again */
             needs_propagation = false;
 
-            /* propagate our lookahead into each item we are linked to */
-            for (int i = 0; i < propagate_items().size(); i++)
-                propagate_items().elementAt(i).propagate_lookaheads(lookahead());
+            /* walk the links with an explicit work list rather than recursing,
+            so long propagation chains cannot overflow the stack and each item
+            is revisited only when its lookahead actually grows */
+            ArrayDeque<lalr_item> work = new ArrayDeque<>();
+            work.push(this);
+            while (!work.isEmpty()) {
+                lalr_item itm = work.pop();
+                for (int i = 0; i < itm.propagate_items().size(); i++) {
+                    lalr_item to = itm.propagate_items().elementAt(i);
+                    if (to.lookahead().add(itm.lookahead()) || to.needs_propagation) {
+                        to.needs_propagation = false;
+                        work.push(to);
+                    }
+                }
+            }
         }
     }
 
@@ -1,5 +1,6 @@
 package java_cup;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Iterator;
 
@@ -222,7 +223,7 @@ public class lalr_item_set implements Iterable<lalr_item> {
      *  productions before it is called.
      */
     public void compute_closure() throws internal_error {
-        lalr_item_set consider;
+        ArrayDeque<lalr_item> consider;
         lalr_item itm, new_itm, add_itm;
         non_terminal nt;
         terminal_set new_lookaheads;
@@ -232,13 +233,14 @@ public class lalr_item_set implements Iterable<lalr_item> {
         /* invalidate cached hashcode */
         hashcode_cache = null;
 
-        /* each current element needs to be considered */
-        consider = new lalr_item_set(this);
+        /* each current element needs to be considered; a plain work list is
+        enough since every item is pushed at most once (when first added) */
+        consider = new ArrayDeque<>(_all.values());
 
         /* repeat this until there is nothing else to consider */
-        while (consider.size() > 0) {
+        while (!consider.isEmpty()) {
             /* get one item to consider */
-            itm = consider.get_one();
+            itm = consider.pop();
 
             /* do we have a dot before a non terminal */
             nt = itm.dot_before_nt();
@@ -263,7 +265,7 @@ public class lalr_item_set implements Iterable<lalr_item> {
                     /* was this was a new item*/
                     if (add_itm == new_itm) {
                         /* that may need further closure, consider it also */
-                        consider.add(new_itm);
+                        consider.push(new_itm);
                     }
                 }
             }
@@ -1,7 +1,9 @@
 package java_cup;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeSet;
@@ -292,7 +294,8 @@ public class lalr_state {
         lalr_state st, new_st;
         symbol_set outgoing;
         lalr_item new_itm, existing;
-        symbol sym, sym2;
+        symbol sym;
+        HashMap<String, List<lalr_item>> by_symbol;
 
         /* sanity check */
         if (start_prod == null)
@@ -325,13 +328,24 @@ public class lalr_state {
             /* remove a state from the work set */
             st = work_stack.pop();
 
-            /* gather up all the symbols that appear before dots */
+            /* gather up all the symbols that appear before dots, along with
+            the items that have each symbol before the dot, in a single pass
+            over the state rather than one pass per symbol */
             outgoing = new symbol_set();
+            by_symbol = new HashMap<>();
             for (lalr_item itm : st.items()) {
 
                 /* add the symbol before the dot (if any) to our collection */
                 sym = itm.symbol_after_dot();
-                if (sym != null) outgoing.add(sym);
+                if (sym != null) {
+                    outgoing.add(sym);
+                    List<lalr_item> l = by_symbol.get(sym.name());
+                    if (l == null) {
+                        l = new ArrayList<>();
+                        by_symbol.put(sym.name(), l);
+                    }
+                    l.add(itm);
+                }
             }
 
             /* now create a transition out for each individual symbol */
@@ -343,27 +357,23 @@ public class lalr_state {
                 /* gather up shifted versions of all the items that have this
                 symbol before the dot */
                 new_items = new lalr_item_set();
-                for (lalr_item itm : st.items()) {
-
-                    /* if this is the symbol we are working on now, add to set */
-                    sym2 = itm.symbol_after_dot();
-                    if (s.equals(sym2)) {
-                        /* add to the kernel of the new state */
-                        new_items.add(itm.shift());
+                for (lalr_item itm : by_symbol.get(s.name())) {
+                    /* add to the kernel of the new state */
+                    new_items.add(itm.shift());
 
-                        /* remember that itm has propagate link to it */
-                        linked_items.add(itm);
-                    }
+                    /* remember that itm has propagate link to it */
+                    linked_items.add(itm);
                 }
 
-                /* use new items as state kernel */
-                kernel = new lalr_item_set(new_items);
-
-                /* have we seen this one already? */
-                new_st = _all_kernels.get(kernel);
+                /* have we seen this one already?  The new items are still
+                just the kernel, so they can be used for the lookup directly */
+                new_st = _all_kernels.get(new_items);
 
                 /* if we haven't, build a new state out of the item set */
                 if (new_st == null) {
+                    /* copy the new items to form the kernel key */
+                    kernel = new lalr_item_set(new_items);
+
                     /* compute closure of the kernel for the full item set */
                     new_items.compute_closure();
 
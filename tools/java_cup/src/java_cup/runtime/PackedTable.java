@@ -0,0 +1,373 @@
+package java_cup.runtime;
+
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parse table (action or reduce-goto) packed into comb vectors, giving
+ * constant time lookup.
+ *
+ * The table is packed as a set of lines, which are either its rows (one
+ * per state) or its columns (one per symbol).  Identical lines are shared,
+ * so each line is first mapped to a distinct line.  The explicit entries
+ * of all distinct lines are then overlaid in a single value vector: each
+ * line is given its own displacement such that its entries land in slots
+ * that no other line uses, and a parallel check vector records the
+ * position within its line of the entry in each slot.  An entry is found
+ * by indexing the value vector with the line's displacement plus the
+ * position; if the check vector shows the slot holds an entry for another
+ * position (and so, displacements being distinct, for another line), the
+ * line's default is used instead.
+ *
+ * The action table is packed by rows, with the defaults of its rows.  The
+ * reduce-goto table is packed by columns, using the most frequent state of
+ * each column as its default, as yacc does: the parser never looks up an
+ * entry that is missing from the goto table, so any default will do.
+ *
+ * Packing is done by the parser generator, which embeds the packed form
+ * in the generated parser (see {@link #unpack(String[])}).
+ */
+public final class PackedTable {
+    /** Are the lines of the table its columns rather than its rows? */
+    protected final boolean by_column;
+
+    /** The number of positions in each line. */
+    protected final int width;
+
+    /** The distinct line used for each line of the table. */
+    protected final int[] line_of;
+
+    /** The displacement of each distinct line in the comb vectors. */
+    protected final int[] base;
+
+    /** The default value of each distinct line. */
+    protected final short[] deflt;
+
+    /** The position of the entry in each slot of the comb vectors, or -1. */
+    protected final short[] check;
+
+    /** The value in each slot of the comb vectors. */
+    protected final short[] value;
+
+    /** The table in the usual CUP format, built on demand. */
+    private volatile short[][] rows;
+
+    protected PackedTable(
+            boolean by_column,
+            int width,
+            int[] line_of,
+            int[] base,
+            short[] deflt,
+            short[] check,
+            short[] value) {
+        this.by_column = by_column;
+        this.width = width;
+        this.line_of = line_of;
+        this.base = base;
+        this.deflt = deflt;
+        this.check = check;
+        this.value = value;
+    }
+
+    /**
+     * Look up an entry of the table.
+     * @param state the state (row) of the entry.
+     * @param sym   the symbol (column) of the entry.
+     */
+    public short get(int state, int sym) {
+        int line, pos;
+        if (by_column) {
+            line = sym;
+            pos = state;
+        } else {
+            line = state;
+            pos = sym;
+        }
+        int r = line_of[line];
+        int i = base[r] + pos;
+        if (i < check.length && check[i] == pos) return value[i];
+        return deflt[r];
+    }
+
+    /**
+     * Does the table have an entry for the given state and symbol other
+     * than the default?
+     */
+    public boolean has_entry(int state, int sym) {
+        int line, pos;
+        if (by_column) {
+            line = sym;
+            pos = state;
+        } else {
+            line = state;
+            pos = sym;
+        }
+        int i = base[line_of[line]] + pos;
+        return i < check.length && check[i] == pos;
+    }
+
+    /** The number of states (rows) of the table. */
+    public int num_states() {
+        return by_column ? width : line_of.length;
+    }
+
+    /** The number of symbols (columns) of the table. */
+    public int num_symbols() {
+        return by_column ? line_of.length : width;
+    }
+
+    /**
+     * Return the table in the usual CUP format of (column, value) pairs
+     * terminated by a (-1, default) pair, for code that still wants the
+     * rows themselves.  For a table packed by columns, the rows have an
+     * entry wherever the column default applies, and -1 as their default.
+     */
+    public short[][] rows() {
+        short[][] result = rows;
+        if (result == null) {
+            result = new short[num_states()][];
+            short[] row = new short[2 * num_symbols() + 2];
+            for (int state = 0; state < result.length; state++) {
+                int n = 0;
+                for (int sym = 0; sym < num_symbols(); sym++) {
+                    if (by_column || has_entry(state, sym)) {
+                        row[n++] = (short) sym;
+                        row[n++] = get(state, sym);
+                    }
+                }
+                row[n++] = -1;
+                row[n++] = by_column ? -1 : deflt[line_of[state]];
+                result[state] = Arrays.copyOf(row, n);
+            }
+            rows = result;
+        }
+        return result;
+    }
+
+    /**
+     * Pack a table given in the usual CUP format by rows.
+     * @param table   rows of (column, value) pairs terminated by a
+     *                (-1, default) pair.
+     * @param width   the number of columns of the table.
+     * @param missing the default of a row without a terminating pair.
+     */
+    public static PackedTable pack(short[][] table, int width, short missing) {
+        return layout(false, table, width, missing);
+    }
+
+    /**
+     * Pack a table given in the usual CUP format by columns, replacing the
+     * most frequent value of each column by the column default.  Entries
+     * missing from the table read as the default of their column, so this
+     * is only suitable for tables whose missing entries are never looked
+     * up.
+     * @param table rows of (column, value) pairs terminated by a
+     *              (-1, default) pair.
+     * @param width the number of columns of the table.
+     */
+    public static PackedTable pack_by_column(short[][] table, int width) {
+        /* gather the entries of each column */
+        List<List<Short>> cols = new ArrayList<>();
+        for (int sym = 0; sym < width; sym++) cols.add(new ArrayList<Short>());
+        for (int state = 0; state < table.length; state++) {
+            short[] row = table[state];
+            if (row == null) continue;
+            for (int i = 0; i + 1 < row.length && row[i] != -1; i += 2) {
+                cols.get(row[i]).add((short) state);
+                cols.get(row[i]).add(row[i + 1]);
+            }
+        }
+
+        short[][] lines = new short[width][];
+        for (int sym = 0; sym < width; sym++) {
+            List<Short> col = cols.get(sym);
+
+            /* find the most frequent value, preferring the first seen */
+            Map<Short, Integer> counts = new HashMap<>();
+            short common = -1;
+            int most = 0;
+            for (int i = 1; i < col.size(); i += 2) {
+                Integer c = counts.get(col.get(i));
+                int count = c == null ? 1 : c + 1;
+                counts.put(col.get(i), count);
+                if (count > most) {
+                    most = count;
+                    common = col.get(i);
+                }
+            }
+
+            /* keep the other entries, and make the common value the default */
+            short[] line = new short[col.size() + 2];
+            int n = 0;
+            for (int i = 0; i < col.size(); i += 2) {
+                if (col.get(i + 1) != common) {
+                    line[n++] = col.get(i);
+                    line[n++] = col.get(i + 1);
+                }
+            }
+            line[n++] = -1;
+            line[n++] = common;
+            lines[sym] = Arrays.copyOf(line, n);
+        }
+
+        return layout(true, lines, table.length, (short) -1);
+    }
+
+    /**
+     * Share identical lines and overlay the distinct ones in comb vectors.
+     * @param by_column are the lines columns of the table?
+     * @param lines     lines of (position, value) pairs terminated by a
+     *                  (-1, default) pair.
+     * @param width     the number of positions in each line.
+     * @param missing   the default of a line without a terminating pair.
+     */
+    protected static PackedTable layout(
+            boolean by_column, short[][] lines, int width, short missing) {
+        if (width > Short.MAX_VALUE) throw new IllegalArgumentException("Table too wide to pack");
+
+        int[] line_of = new int[lines.length];
+        List<short[]> distinct = new ArrayList<>();
+        Map<ShortBuffer, Integer> index = new HashMap<>();
+        for (int l = 0; l < lines.length; l++) {
+            short[] line = lines[l] == null ? new short[0] : lines[l];
+            Integer r = index.get(ShortBuffer.wrap(line));
+            if (r == null) {
+                r = distinct.size();
+                distinct.add(line);
+                index.put(ShortBuffer.wrap(line), r);
+            }
+            line_of[l] = r;
+        }
+
+        int[] base = new int[distinct.size()];
+        short[] deflt = new short[distinct.size()];
+        Arrays.fill(deflt, missing);
+
+        /* place the lines with the most entries first, which leaves the
+        small lines to fill the gaps between them */
+        Integer[] order = new Integer[distinct.size()];
+        for (int r = 0; r < order.length; r++) order[r] = r;
+        Arrays.sort(order, (a, b) -> distinct.get(b).length - distinct.get(a).length);
+
+        BitSet used = new BitSet();
+        BitSet used_bases = new BitSet();
+        List<Integer> empty = new ArrayList<>();
+        short[] check = new short[0];
+        short[] value = new short[0];
+        int slots = 0;
+        int[] pos = new int[width];
+        for (int r : order) {
+            short[] line = distinct.get(r);
+
+            /* pick out the explicit entries and the default */
+            int n = 0;
+            for (int i = 0; i + 1 < line.length; i += 2) {
+                if (line[i] == -1) {
+                    deflt[r] = line[i + 1];
+                    break;
+                }
+                pos[n++] = line[i];
+            }
+            if (n == 0) {
+                empty.add(r);
+                continue;
+            }
+
+            /* find the first unused displacement where all entries land in
+            free slots */
+            int b = Math.max(0, used.nextClearBit(0) - pos[0]);
+            for (; ; b++) {
+                if (used_bases.get(b)) continue;
+                int j = 0;
+                while (j < n && !used.get(b + pos[j])) j++;
+                if (j == n) break;
+            }
+            base[r] = b;
+            used_bases.set(b);
+
+            /* grow the comb vectors to hold the line */
+            int end = b + pos[n - 1] + 1;
+            if (end > check.length) {
+                int size = Math.max(end, 2 * check.length);
+                int old = check.length;
+                check = Arrays.copyOf(check, size);
+                Arrays.fill(check, old, size, (short) -1);
+                value = Arrays.copyOf(value, size);
+            }
+            slots = Math.max(slots, end);
+
+            for (int i = 0, j = 0; j < n; i += 2, j++) {
+                used.set(b + pos[j]);
+                check[b + pos[j]] = (short) pos[j];
+                value[b + pos[j]] = line[i + 1];
+            }
+        }
+
+        /* lines without entries are displaced past the end of the vectors */
+        for (int r : empty) base[r] = slots;
+
+        return new PackedTable(
+                by_column,
+                width,
+                line_of,
+                base,
+                deflt,
+                Arrays.copyOf(check, slots),
+                Arrays.copyOf(value, slots));
+    }
+
+    /**
+     * Encode the table as arrays of shorts, for embedding in a generated
+     * parser with the same string encoding as the other tables.
+     */
+    public short[][] encode() {
+        short[] lines = new short[line_of.length];
+        for (int i = 0; i < lines.length; i++) lines[i] = (short) line_of[i];
+        short[] bases = new short[2 * base.length];
+        for (int i = 0; i < base.length; i++) {
+            bases[2 * i] = (short) (base[i] >>> 16);
+            bases[2 * i + 1] = (short) base[i];
+        }
+        short[] header = new short[] {(short) (by_column ? 1 : 0), (short) width};
+        return new short[][] {header, lines, bases, deflt, check, value};
+    }
+
+    /**
+     * Decode a table from the strings emitted for {@link #encode()} by the
+     * parser generator.  This reads the format of
+     * {@code lr_parser.unpackFromStrings}, but decodes straight into the
+     * arrays of the table.
+     */
+    public static PackedTable unpack(String[] sa) {
+        String s = sa.length == 1 ? sa[0] : String.join("", sa);
+        int[] n = new int[] {2};
+        short[] header = next(s, n);
+        short[] lines = next(s, n);
+        int[] line_of = new int[lines.length];
+        for (int i = 0; i < line_of.length; i++) line_of[i] = lines[i];
+        short[] bases = next(s, n);
+        int[] base = new int[bases.length / 2];
+        for (int i = 0; i < base.length; i++)
+            base[i] = (bases[2 * i] & 0xFFFF) << 16 | (bases[2 * i + 1] & 0xFFFF);
+        short[] deflt = next(s, n);
+        short[] check = next(s, n);
+        short[] value = next(s, n);
+        return new PackedTable(header[0] != 0, header[1], line_of, base, deflt, check, value);
+    }
+
+    /** Decode the next array from an encoded table, advancing n[0]. */
+    private static short[] next(String s, int[] n) {
+        int i = n[0];
+        int size = s.charAt(i) << 16 | s.charAt(i + 1);
+        i += 2;
+        short[] result = new short[size];
+        for (int j = 0; j < size; j++) result[j] = (short) (s.charAt(i++) - 2);
+        n[0] = i;
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package java_cup.runtime;
+
+/**
+ * A ComplexSymbolFactory that recycles the Symbols it hands out.
+ * When a parser is driven by this factory, the Symbols of a handle that
+ * has been reduced are returned to the factory by the parser and are
+ * reused for subsequent tokens and reductions.  This avoids allocating a
+ * fresh Symbol for every token and every reduction of a parse.
+ *
+ * Symbols created with explicit left and right Symbols or Locations are
+ * not drawn from the pool, since parsers that use them usually want the
+ * location information to outlive the parse.  They are, however, accepted
+ * back into the pool once the parser is done with them.
+ */
+public class RecyclingSymbolFactory extends ComplexSymbolFactory {
+    /** The default maximum number of free Symbols kept by the factory. */
+    protected static final int DEFAULT_POOL_SIZE = 256;
+
+    /** Free Symbols available for reuse. */
+    protected ComplexSymbol[] pool;
+
+    /** The number of valid entries in pool. */
+    protected int free;
+
+    public RecyclingSymbolFactory() {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    public RecyclingSymbolFactory(int poolSize) {
+        pool = new ComplexSymbol[poolSize];
+        free = 0;
+    }
+
+    @Override
+    public Symbol newSymbol(String name, int id, Object value) {
+        if (free == 0) return super.newSymbol(name, id, value);
+        return reset(pool[--free], name, id, value);
+    }
+
+    @Override
+    public Symbol newSymbol(String name, int id) {
+        if (free == 0) return super.newSymbol(name, id);
+        return reset(pool[--free], name, id, null);
+    }
+
+    /**
+     * Return a Symbol to the factory.  The caller must guarantee that no
+     * reference to the Symbol is retained: its fields are overwritten when
+     * it is handed out again.
+     */
+    public void release(Symbol s) {
+        if (free < pool.length && s instanceof ComplexSymbol) {
+            ComplexSymbol cs = (ComplexSymbol) s;
+            cs.value = null;
+            cs.xleft = null;
+            cs.xright = null;
+            pool[free++] = cs;
+        }
+    }
+
+    protected ComplexSymbol reset(ComplexSymbol s, String name, int id, Object value) {
+        s.name = name;
+        s.sym = id;
+        s.parse_state = 0;
+        s.used_by_parser = false;
+        s.left = -1;
+        s.right = -1;
+        s.value = value;
+        return s;
+    }
+}
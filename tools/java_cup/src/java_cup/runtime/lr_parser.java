@@ -231,6 +231,27 @@ public abstract class lr_parser {
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+    /** The action table packed for constant time lookup, or null if the
+     *  generated subclass only supplies action_table().  When this is
+     *  supplied, action_table() is not used to drive the parser.
+     *
+     * @see java_cup.runtime.PackedTable
+     */
+    public PackedTable packed_action_table() {
+        return null;
+    }
+
+    /** The reduce-goto table packed for constant time lookup, or null if
+     *  the generated subclass only supplies reduce_table().
+     *
+     * @see java_cup.runtime.PackedTable
+     */
+    public PackedTable packed_reduce_table() {
+        return null;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
     /** The index of the start state (supplied by generated subclass). */
     public abstract int start_state();
 
@@ -284,6 +305,18 @@ public abstract class lr_parser {
     /** The parse stack itself. */
     protected Stack<Symbol> stack = new Stack<>();
 
+    /** The parse states of the Symbols on the parse stack, kept as a
+     *  primitive array by parse() so that looking up the current state does
+     *  not go through the (synchronized) Stack.  The entry at index tos is
+     *  the state on top of the stack.
+     */
+    protected int[] state_stack = new int[64];
+
+    /** The factory that parse() releases reduced Symbols to, or null if the
+     *  Symbol factory does not recycle Symbols.
+     */
+    protected RecyclingSymbolFactory recycler;
+
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
     /** Direct reference to the production table. */
@@ -301,6 +334,25 @@ public abstract class lr_parser {
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+    /** Direct reference to the packed action table, if any.  When it is
+     *  set, action_tab is not. */
+    protected PackedTable packed_action_tab;
+
+    /** Direct reference to the packed reduce-goto table, if any.  When it
+     *  is set, reduce_tab is not. */
+    protected PackedTable packed_reduce_tab;
+
+    /** Set up direct references to the tables that drive the parser. */
+    protected void init_tables() {
+        production_tab = production_table();
+        packed_action_tab = packed_action_table();
+        packed_reduce_tab = packed_reduce_table();
+        action_tab = packed_action_tab == null ? action_table() : null;
+        reduce_tab = packed_reduce_tab == null ? reduce_table() : null;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
     /** This is the scanner object used by the default implementation
      *  of scan() to get Symbols.  To avoid name conflicts with existing
      *  code, this field is private. [CSA/davidm] */
@@ -481,6 +533,14 @@ public abstract class lr_parser {
     public List<Integer> expected_token_ids() {
         List<Integer> ret = new LinkedList<>();
         int parse_state = stack.peek().parse_state;
+        if (packed_action_tab != null) {
+            for (int id = 0; id < packed_action_tab.num_symbols(); id++) {
+                if (!packed_action_tab.has_entry(parse_state, id)) continue;
+                if (!validate_expected_symbol(id)) continue;
+                ret.add(id);
+            }
+            return ret;
+        }
         short[] row = action_tab[parse_state];
         for (int i = 0; i < row.length; i += 2) {
             if (row[i] == -1) continue;
@@ -551,11 +611,14 @@ public abstract class lr_parser {
      *  entries in the table), and the list is terminated by a default entry
      *  (denoted with a Symbol index of -1).  To find the proper entry in a row
      *  we do a linear or binary search (depending on the size of the row).
+     *  If the table is packed, the entry is looked up directly.
      *
      * @param state the state index of the action being accessed.
      * @param sym   the Symbol index of the action being accessed.
      */
     protected final short get_action(int state, int sym) {
+        if (packed_action_tab != null) return packed_action_tab.get(state, sym);
+
         short tag;
         int first, last, probe;
         short[] row = action_tab[state];
@@ -597,12 +660,15 @@ public abstract class lr_parser {
      *  Within each row, a list of index, value pairs are given (as sequential
      *  entries in the table), and the list is terminated by a default entry
      *  (denoted with a Symbol index of -1).  To find the proper entry in a row
-     *  we do a linear search.
+     *  we do a linear search.  If the table is packed, the entry is looked
+     *  up directly.
      *
      * @param state the state index of the entry being accessed.
      * @param sym   the Symbol index of the entry being accessed.
      */
     protected final short get_reduce(int state, int sym) {
+        if (packed_reduce_tab != null) return packed_reduce_tab.get(state, sym);
+
         short tag;
         short[] row = reduce_tab[state];
 
@@ -641,9 +707,7 @@ public abstract class lr_parser {
 
         /* set up direct reference to tables to drive the parser */
 
-        production_tab = production_table();
-        action_tab = action_table();
-        reduce_tab = reduce_table();
+        init_tables();
 
         /* initialize the action encapsulation object */
         init_actions();
@@ -654,10 +718,17 @@ public abstract class lr_parser {
         /* get the first token */
         cur_token = scan();
 
+        /* Symbols are only recycled if the factory knows how */
+        recycler =
+                getSymbolFactory() instanceof RecyclingSymbolFactory
+                        ? (RecyclingSymbolFactory) getSymbolFactory()
+                        : null;
+
         /* push dummy Symbol with start state to get us underway */
         stack.removeAllElements();
         stack.push(getSymbolFactory().startSymbol("START", 0, start_state()));
         tos = 0;
+        state_stack[0] = start_state();
 
         /* continue until we are told to stop */
         for (_done_parsing = false; !_done_parsing; ) {
@@ -668,7 +739,7 @@ public abstract class lr_parser {
             /* current state is always on the top of the stack */
 
             /* look up action out of the current state with the current input */
-            act = get_action(stack.peek().parse_state, cur_token.sym);
+            act = get_action(state_stack[tos], cur_token.sym);
 
             /* decode the action -- > 0 encodes shift */
             if (act > 0) {
@@ -676,7 +747,7 @@ public abstract class lr_parser {
                 cur_token.parse_state = act - 1;
                 cur_token.used_by_parser = true;
                 stack.push(cur_token);
-                tos++;
+                push_state(act - 1);
 
                 /* advance to the next Symbol */
                 cur_token = scan();
@@ -690,20 +761,22 @@ public abstract class lr_parser {
                 lhs_sym_num = production_tab[(-act) - 1][0];
                 handle_size = production_tab[(-act) - 1][1];
 
-                /* pop the handle off the stack */
+                /* pop the handle off the stack; the action is done with it,
+                so its Symbols can be reused */
                 for (int i = 0; i < handle_size; i++) {
-                    stack.pop();
+                    Symbol s = stack.pop();
+                    if (recycler != null) recycler.release(s);
                     tos--;
                 }
 
                 /* look up the state to go to from the one popped back to */
-                act = get_reduce(stack.peek().parse_state, lhs_sym_num);
+                act = get_reduce(state_stack[tos], lhs_sym_num);
 
                 /* shift to that state */
                 lhs_sym.parse_state = act;
                 lhs_sym.used_by_parser = true;
                 stack.push(lhs_sym);
-                tos++;
+                push_state(act);
             }
             /* finally if the entry is zero, we have an error */
             else if (act == 0) {
@@ -719,6 +792,8 @@ public abstract class lr_parser {
                     done_parsing();
                 } else {
                     lhs_sym = stack.peek();
+                    /* error recovery works on the Symbol stack only */
+                    sync_state_stack();
                 }
             }
         }
@@ -727,6 +802,33 @@ public abstract class lr_parser {
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
 
+    /** Push a state onto the state stack, growing it if needed. tos is
+     *  incremented to refer to the new top of the stack.
+     *
+     * @param state the state to push.
+     */
+    protected final void push_state(int state) {
+        if (++tos == state_stack.length) {
+            int[] grown = new int[state_stack.length * 2];
+            System.arraycopy(state_stack, 0, grown, 0, state_stack.length);
+            state_stack = grown;
+        }
+        state_stack[tos] = state;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
+    /** Rebuild the state stack from the Symbol stack, after the Symbol
+     *  stack has been modified by something other than parse().
+     */
+    protected void sync_state_stack() {
+        tos = stack.size() - 1;
+        if (state_stack.length <= tos) state_stack = new int[(tos + 1) * 2];
+        for (int i = 0; i <= tos; i++) state_stack[i] = stack.elementAt(i).parse_state;
+    }
+
+    /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
+
     /** Write a debugging message to System.err for the debugging version
      *  of the parser.
      *
@@ -823,9 +925,7 @@ public abstract class lr_parser {
         short handle_size, lhs_sym_num;
 
         /* set up direct reference to tables to drive the parser */
-        production_tab = production_table();
-        action_tab = action_table();
-        reduce_tab = reduce_table();
+        init_tables();
 
         debug_message("# Initializing parser");
 
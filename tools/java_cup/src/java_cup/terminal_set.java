@@ -58,7 +58,7 @@ public class terminal_set {
 
     /** Determine if the set is empty. */
     public boolean empty() {
-        return equals(EMPTY);
+        return _elements.isEmpty();
     }
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
@@ -88,14 +88,12 @@ public class terminal_set {
     public boolean is_subset_of(terminal_set other) throws internal_error {
         not_null(other);
 
-        /* make a copy of the other set */
-        BitSet copy_other = (BitSet) other._elements.clone();
+        /* walk our elements without copying either set */
+        for (int t = _elements.nextSetBit(0); t >= 0; t = _elements.nextSetBit(t + 1))
+            if (!other._elements.get(t)) return false;
 
-        /* and or in */
-        copy_other.or(_elements);
-
-        /* if it hasn't changed, we were a subset */
-        return copy_other.equals(other._elements);
+        /* they were all there */
+        return true;
     }
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
@@ -147,14 +145,14 @@ public class terminal_set {
     public boolean add(terminal_set other) throws internal_error {
         not_null(other);
 
-        /* make a copy */
-        BitSet copy = (BitSet) _elements.clone();
+        /* remember the size rather than copying the set */
+        int before = _elements.cardinality();
 
         /* or in the other set */
         _elements.or(other._elements);
 
-        /* changed if we are not the same as the copy */
-        return !_elements.equals(copy);
+        /* changed if we grew */
+        return _elements.cardinality() != before;
     }
 
     /*. . . . . . . . . . . . . . . . . . . . . . . . . . . . . .*/
@@ -25,12 +25,15 @@
  ******************************************************************************/
 package ppg;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
 
 import ppg.lex.Lexer;
 import ppg.parse.Parser;
@@ -109,6 +112,7 @@ public class PPG {
         spec.parseChain(parent == null ? "" : parent);
 
         PrintStream out = System.out;
+        ByteArrayOutputStream buffer = null;
 
         /* now we have a linked list of inheritance, namely
          * PPG_1, PPG_2, ..., PPG_n, CUP
@@ -116,13 +120,19 @@ public class PPG {
          */
         try {
             if (OUTPUT_FILE != null) {
-                out = new PrintStream(new FileOutputStream(OUTPUT_FILE));
+                buffer = new ByteArrayOutputStream();
+                out = new PrintStream(buffer);
             }
 
             CUPSpec combined = spec.coalesce();
             CodeWriter cw = new CodeWriter(out, 80);
             combined.unparse(cw);
             cw.flush();
+
+            if (buffer != null) {
+                out.flush();
+                writeIfChanged(new File(OUTPUT_FILE), buffer.toByteArray());
+            }
         } catch (PPGError e) {
             System.err.println(e.getMessage());
             System.exit(1);
@@ -136,6 +146,23 @@ public class PPG {
         }
     }
 
+    /**
+     * Write {@code contents} to {@code file} unless the file already has
+     * exactly these contents.  Leaving an unchanged spec untouched keeps its
+     * timestamp, so the build does not run CUP on it again.
+     */
+    protected static void writeIfChanged(File file, byte[] contents) throws IOException {
+        if (file.isFile()
+                && file.length() == contents.length
+                && Arrays.equals(Files.readAllBytes(file.toPath()), contents)) {
+            DEBUG(file + " is unchanged");
+            return;
+        }
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(contents);
+        }
+    }
+
     public static void usage() {
         System.err.println(
                 "Usage: ppg [-symbols ConstClass] <input file>\nwhere:\n"
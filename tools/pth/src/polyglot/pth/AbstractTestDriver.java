@@ -24,6 +24,16 @@ public abstract class AbstractTestDriver implements TestDriver {
     @Override
     public void getSummary(StringBuffer sb) {}
 
+    @Override
+    public boolean supportsParallelTests() {
+        return false;
+    }
+
+    @Override
+    public Thread newWorkerThread(Runnable r) {
+        return new Thread(r);
+    }
+
     protected boolean isSameDirectory(File dir1, File dir2) {
         try {
             return dir1.getCanonicalPath().equals(dir2.getCanonicalPath());
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * This file is part of the Polyglot extensible compiler framework.
+ *
+ * Copyright (c) 2000-2012 Polyglot project group, Cornell University
+ * Copyright (c) 2006-2012 IBM Corporation
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Lesser GNU Public License v2.0 which accompanies this
+ * distribution.
+ *
+ * The development of the Polyglot project has been supported by a
+ * number of funding sources, including DARPA Contract F30602-99-1-0533,
+ * monitored by USAF Rome Laboratory, ONR Grants N00014-01-1-0968 and
+ * N00014-09-1-0652, NSF Grants CNS-0208642, CNS-0430161, CCF-0133302,
+ * and CCF-1054172, AFRL Contract FA8650-10-C-7022, an Alfred P. Sloan
+ * Research Fellowship, and an Intel Research Ph.D. Fellowship.
+ *
+ * See README for contributors.
+ ******************************************************************************/
+package polyglot.pth;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An output controller that records the output of a test run on a worker
+ * thread, to be replayed on the controller of the test collection once the
+ * tests before it have been replayed.
+ */
+public class DeferredOutputController extends OutputController {
+    protected final OutputController target;
+    protected final List<Runnable> deferred = new ArrayList<>();
+
+    public DeferredOutputController(OutputController target) {
+        super(target.out);
+        this.target = target;
+    }
+
+    /** Send the recorded output to the target controller. */
+    public void replay() {
+        for (Runnable r : deferred) r.run();
+        deferred.clear();
+    }
+
+    @Override
+    public void startTest(Test t) {
+        deferred.add(() -> target.startTest(t));
+    }
+
+    @Override
+    public void finishTest(Test t) {
+        deferred.add(() -> target.finishTest(t));
+    }
+
+    @Override
+    protected void startScriptTestSuite(ScriptTestSuite sts) {
+        deferred.add(() -> target.startScriptTestSuite(sts));
+    }
+
+    @Override
+    protected void finishScriptTestSuite(ScriptTestSuite sts) {
+        deferred.add(() -> target.finishScriptTestSuite(sts));
+    }
+
+    @Override
+    protected void startSourceFileTestCollection(SourceFileTestCollection sftc) {
+        deferred.add(() -> target.startSourceFileTestCollection(sftc));
+    }
+
+    @Override
+    protected void finishSourceFileTestCollection(SourceFileTestCollection sftc) {
+        deferred.add(() -> target.finishSourceFileTestCollection(sftc));
+    }
+
+    @Override
+    protected void startSourceFileTest(SourceFileTest sft) {
+        deferred.add(() -> target.startSourceFileTest(sft));
+    }
+
+    @Override
+    protected void finishSourceFileTest(SourceFileTest sft) {
+        deferred.add(() -> target.finishSourceFileTest(sft));
+    }
+
+    @Override
+    protected void startBuildTest(BuildTest bt) {
+        deferred.add(() -> target.startBuildTest(bt));
+    }
+
+    @Override
+    protected void finishBuildTest(BuildTest bt) {
+        deferred.add(() -> target.finishBuildTest(bt));
+    }
+
+    @Override
+    public void printNoTestResults(String suiteName) {
+        deferred.add(() -> target.printNoTestResults(suiteName));
+    }
+
+    @Override
+    public void printTestSuiteHeader(TestSuiteResult tsr) {
+        deferred.add(() -> target.printTestSuiteHeader(tsr));
+    }
+
+    @Override
+    public void printTestSuiteFooter(
+            int total, int grandTotal, int lastSuccess, int neverRun, int neverSuccess) {
+        deferred.add(
+                () ->
+                        target.printTestSuiteFooter(
+                                total, grandTotal, lastSuccess, neverRun, neverSuccess));
+    }
+
+    @Override
+    public void displayTestResults(TestResult tr, String testName) {
+        deferred.add(() -> target.displayTestResults(tr, testName));
+    }
+
+    @Override
+    public void warning(String w) {
+        deferred.add(() -> target.warning(w));
+    }
+}
@@ -85,6 +85,9 @@ public class Options {
     // filename for LaTeX report
     protected String pdffilename = null;
 
+    // number of tests of a collection to run in parallel
+    protected int threads = 1;
+
     // array of the possible command line options.
     // the order in the array is the order that they will be applied in.
     protected CommandLineOption[] commandLineOpts = {
@@ -163,6 +166,19 @@ public class Options {
                 return index + 1;
             }
         },
+        new CommandLineOption(
+                new String[] {"jobs"},
+                "n",
+                "run up to n tests of a test collection in parallel, each in its own compilation"
+                        + " session and output directory.") {
+            @Override
+            protected int invoke(int index, String[] args) {
+                threads = getIntArg(++index, args);
+                if (threads < 1)
+                    throw new IllegalArgumentException("Number of jobs must be at least 1.");
+                return index + 1;
+            }
+        },
         new CommandLineOption(new String[] {"pdf"}, "filename", "generate PDF report.") {
             @Override
             protected int invoke(int index, String[] args) {
@@ -1,12 +1,19 @@
 package polyglot.pth;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 /**
@@ -165,25 +172,28 @@ public abstract class SourceFileTestCollection extends TestSuite<SourceFileTest>
         Map<String, TestResult> oldTestResults = new HashMap<>(testResults);
         Map<String, TestResult> newResults = new HashMap<>();
 
-        boolean shouldExecute = true;
-        for (SourceFileTest t : tests) {
-            t.setTestDriver(td);
-            TestResult tr = oldTestResults.get(t.getUniqueId());
-            if (shouldExecute && t.shouldExecute(tr)) {
-                if (tr != null) t.setTestResult(tr);
-                t.setCommandLineHeader(cmdLineHdr);
-
-                boolean result = t.run();
-                okay = okay && result;
-
-                tr = t.getTestResult();
-
-                executedTests += t.getExecutedTestCount();
-                successfulTests += t.getSuccessfulTestCount();
-                postIndividualTest();
-                if (!result && (t.haltOnFailure() || haltOnFirstFailure)) shouldExecute = false;
+        if (runInParallel()) okay = runTestsInParallel(oldTestResults, newResults);
+        else {
+            boolean shouldExecute = true;
+            for (SourceFileTest t : tests) {
+                t.setTestDriver(td);
+                TestResult tr = oldTestResults.get(t.getUniqueId());
+                if (shouldExecute && t.shouldExecute(tr)) {
+                    if (tr != null) t.setTestResult(tr);
+                    t.setCommandLineHeader(cmdLineHdr);
+
+                    boolean result = t.run();
+                    okay = okay && result;
+
+                    tr = t.getTestResult();
+
+                    executedTests += t.getExecutedTestCount();
+                    successfulTests += t.getSuccessfulTestCount();
+                    postIndividualTest();
+                    if (!result && (t.haltOnFailure() || haltOnFirstFailure)) shouldExecute = false;
+                }
+                newResults.put(t.getUniqueId(), tr);
             }
-            newResults.put(t.getUniqueId(), tr);
         }
         testResults.clear();
         testResults.putAll(newResults);
@@ -199,6 +209,171 @@ public abstract class SourceFileTestCollection extends TestSuite<SourceFileTest>
         return okay;
     }
 
+    /**
+     * Return true if the tests of this collection should run on a pool of
+     * worker threads.  This is not the case if the collection puts its output
+     * directory on the class path, since its tests then depend on the classes
+     * compiled by the tests before them.
+     */
+    protected boolean runInParallel() {
+        if (Main.options.threads <= 1
+                || haltOnFirstFailure
+                || pdfReporter != null
+                || !td.supportsParallelTests()) return false;
+
+        // Source files are copied to the source path unless it is the test
+        // directory, and the copies of different tests may clash.
+        File testDir = new File(td.getPathFromFlagMap("testpath"));
+        File sourceDir = new File(td.getPathFromFlagMap("workpath", "sourcepath"));
+        if (!sameFile(testDir, sourceDir)) return false;
+
+        String destDir = null;
+        for (Iterator<String> i = cmdLineHdr.iterator(); i.hasNext(); ) {
+            String arg = i.next();
+            if (arg.equals("-d") && i.hasNext()) destDir = i.next();
+        }
+        if (destDir == null) return true;
+        for (Iterator<String> i = cmdLineHdr.iterator(); i.hasNext(); ) {
+            String arg = i.next();
+            if ((arg.equals("-cp") || arg.equals("-classpath") || arg.equals("-sourcepath"))
+                    && i.hasNext()) {
+                for (String entry : i.next().split(File.pathSeparator))
+                    if (sameFile(new File(entry), new File(destDir))) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Run the tests of this collection on a pool of worker threads.  Each
+     * test writes its output to a directory of its own, and the output of
+     * the harness for each test is replayed in order once the test is done,
+     * so that the report is the same as that of a sequential run.  A
+     * failed test that halts the collection cancels the tests after it.
+     */
+    protected boolean runTestsInParallel(
+            Map<String, TestResult> oldTestResults, Map<String, TestResult> newResults) {
+        ExecutorService pool =
+                Executors.newFixedThreadPool(
+                        Main.options.threads,
+                        r -> {
+                            Thread t = td.newWorkerThread(r);
+                            t.setDaemon(true);
+                            return t;
+                        });
+        List<SourceFileTest> started = new ArrayList<>();
+        List<DeferredOutputController> outputs = new ArrayList<>();
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (SourceFileTest t : tests) {
+                t.setTestDriver(td);
+                TestResult tr = oldTestResults.get(t.getUniqueId());
+                if (!t.shouldExecute(tr)) {
+                    newResults.put(t.getUniqueId(), tr);
+                    continue;
+                }
+                if (tr != null) t.setTestResult(tr);
+
+                List<File> outputDirs = new ArrayList<>();
+                t.setCommandLineHeader(isolatedCmdLine(started.size(), outputDirs));
+                DeferredOutputController deferred = new DeferredOutputController(output);
+                t.setOutputController(deferred);
+                started.add(t);
+                outputs.add(deferred);
+                results.add(
+                        pool.submit(
+                                () -> {
+                                    try {
+                                        return t.run();
+                                    } finally {
+                                        if (Main.options.deleteOutputFiles)
+                                            for (File dir : outputDirs) deleteRecursively(dir);
+                                    }
+                                }));
+            }
+
+            boolean okay = true;
+            boolean halted = false;
+            for (int i = 0; i < started.size(); i++) {
+                SourceFileTest t = started.get(i);
+                if (halted) {
+                    // As in a sequential run, the tests after a failure that
+                    // halts the collection keep their previous results.
+                    results.get(i).cancel(true);
+                    newResults.put(t.getUniqueId(), oldTestResults.get(t.getUniqueId()));
+                    continue;
+                }
+                boolean result;
+                try {
+                    result = results.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    if (cause instanceof Error) throw (Error) cause;
+                    throw new RuntimeException(cause);
+                }
+                outputs.get(i).replay();
+                t.setOutputController(output);
+                okay = okay && result;
+
+                executedTests += t.getExecutedTestCount();
+                successfulTests += t.getSuccessfulTestCount();
+                postIndividualTest();
+                newResults.put(t.getUniqueId(), t.getTestResult());
+                if (!result && t.haltOnFailure()) halted = true;
+            }
+            return okay;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Return the command line of the {@code index}th test run in parallel,
+     * whose output directories are subdirectories of those of the collection
+     * and are added to {@code outputDirs}.
+     */
+    protected List<String> isolatedCmdLine(int index, List<File> outputDirs) {
+        String subdir = "pth." + index;
+        List<String> args = new ArrayList<>(cmdLineHdr.size() + 2);
+        boolean hasDestDir = false;
+        for (Iterator<String> i = cmdLineHdr.iterator(); i.hasNext(); ) {
+            String arg = i.next();
+            args.add(arg);
+            if ((arg.equals("-d") || arg.equals("-D")) && i.hasNext()) {
+                File dir = new File(i.next(), subdir);
+                args.add(dir.getPath());
+                outputDirs.add(dir);
+                hasDestDir = hasDestDir || arg.equals("-d");
+            }
+        }
+        if (!hasDestDir) {
+            File dir = new File(getPathFromFlagMap("workpath") + subdir);
+            args.add(0, "-d");
+            args.add(1, dir.getPath());
+            outputDirs.add(dir);
+        }
+        for (File dir : outputDirs) dir.mkdirs();
+        return args;
+    }
+
+    protected static void deleteRecursively(File f) {
+        File[] children = f.listFiles();
+        if (children != null) for (File child : children) deleteRecursively(child);
+        f.delete();
+    }
+
+    protected static boolean sameFile(File f1, File f2) {
+        try {
+            return f1.getCanonicalPath().equals(f2.getCanonicalPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     public String getSummary() {
         StringBuffer sb = new StringBuffer(getName());
         sb.append(": ");
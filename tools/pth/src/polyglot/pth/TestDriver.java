@@ -21,4 +21,16 @@ public interface TestDriver {
     void printTestResult(SourceFileTest t, PDFReporter pr);
 
     void getSummary(StringBuffer sb);
+
+    /**
+     * Return true if the tests of the collection can run concurrently, given
+     * that each test is compiled into its own output directory.
+     */
+    boolean supportsParallelTests();
+
+    /**
+     * Create a worker thread that runs {@code r} isolated from the tests run
+     * on other worker threads.
+     */
+    Thread newWorkerThread(Runnable r);
 }
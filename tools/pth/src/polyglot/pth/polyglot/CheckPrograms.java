@@ -0,0 +1,49 @@
+package polyglot.pth.polyglot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import polyglot.frontend.Compiler;
+import polyglot.frontend.ExtensionInfo;
+import polyglot.main.CompilationSession;
+import polyglot.main.Options;
+import polyglot.util.SilentErrorQueue;
+
+/**
+ * Support for the check programs run by {@link JavaMainTestDriver}.
+ */
+public class CheckPrograms {
+    /** A check, run by {@link CheckPrograms#withCompiler}. */
+    public interface Check {
+        void run(ExtensionInfo extInfo) throws Exception;
+    }
+
+    /**
+     * Run {@code check} in a session of its own, once a compiler for
+     * {@code extInfo} has been set up with its default options.  Its output
+     * directory is a temporary directory, which is removed afterwards.
+     * Errors are not displayed.
+     */
+    public static void withCompiler(ExtensionInfo extInfo, Check check) throws Exception {
+        CompilationSession previous = CompilationSession.enter(new CompilationSession());
+        File outputDir = Files.createTempDirectory("check").toFile();
+        try {
+            Options options = extInfo.getOptions();
+            CompilationSession.current().setOptions(options);
+            options.parseCommandLineWithoutSources(new String[] {"-d", outputDir.getPath()});
+            new Compiler(extInfo, new SilentErrorQueue(100, extInfo.compilerName()));
+            check.run(extInfo);
+        } finally {
+            delete(outputDir);
+            CompilationSession.exit(previous);
+        }
+    }
+
+    /** Delete {@code f} and, if it is a directory, its contents. */
+    public static void delete(File f) throws IOException {
+        File[] files = f.listFiles();
+        if (files != null) for (File g : files) delete(g);
+        Files.deleteIfExists(f.toPath());
+    }
+}
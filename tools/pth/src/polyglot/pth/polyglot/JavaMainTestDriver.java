@@ -0,0 +1,86 @@
+package polyglot.pth.polyglot;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import polyglot.pth.SourceFileTestCollection;
+
+/**
+ * Runs check programs: each test is a Java source file that is compiled
+ * against the classes of the harness, which include the compiler, and
+ * whose {@code main} method is then run in the harness.  A test fails if
+ * {@code main} throws.  The source file must be in the unnamed package and
+ * declare a class named after the file.
+ */
+public class JavaMainTestDriver extends JavaTestDriver {
+
+    public JavaMainTestDriver(SourceFileTestCollection sftc) {
+        super(sftc);
+    }
+
+    @Override
+    public String commandName() {
+        return "java";
+    }
+
+    @Override
+    public int invokeCompiler(PolyglotSourceFileTest sft, List<String> cmdLine) {
+        List<String> args = new ArrayList<>(cmdLine);
+        String destDir = ".";
+        boolean classpathGiven = false;
+        for (Iterator<String> i = args.iterator(); i.hasNext(); ) {
+            String arg = i.next();
+            if (arg.equals("-d") && i.hasNext()) destDir = i.next();
+            if (arg.equals("-cp") || arg.equals("-classpath")) classpathGiven = true;
+        }
+        if (!classpathGiven) {
+            args.add(0, "-cp");
+            args.add(1, System.getProperty("java.class.path"));
+        }
+        new File(destDir).mkdirs();
+
+        int ret = super.invokeCompiler(sft, args);
+        if (ret != 0) return ret;
+
+        try (URLClassLoader loader =
+                new URLClassLoader(
+                        new URL[] {new File(destDir).toURI().toURL()},
+                        getClass().getClassLoader())) {
+            for (String arg : cmdLine) {
+                if (!arg.endsWith(".java")) continue;
+                String name = new File(arg).getName();
+                name = name.substring(0, name.length() - ".java".length());
+                Method main = loader.loadClass(name).getMethod("main", String[].class);
+                try {
+                    main.invoke(null, (Object) new String[0]);
+                } catch (InvocationTargetException e) {
+                    sft.appendFailureMessage(failureMessage(name, e.getCause()));
+                    return -1;
+                }
+            }
+        } catch (IOException | ReflectiveOperationException e) {
+            sft.appendFailureMessage("Cannot run check program: " + e);
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * The failure message for {@code t}, thrown by the check program
+     * {@code name}: {@code t} and the line of the program that threw it.
+     */
+    protected static String failureMessage(String name, Throwable t) {
+        for (StackTraceElement e : t.getStackTrace()) {
+            String c = e.getClassName();
+            if (c.equals(name) || c.startsWith(name + "$")) return t + " at " + e;
+        }
+        return t.toString();
+    }
+}
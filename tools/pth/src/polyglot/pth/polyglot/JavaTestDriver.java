@@ -19,6 +19,15 @@ public class JavaTestDriver extends PolyglotTestDriver {
         return "javac";
     }
 
+    /**
+     * The classes compiled by javac are used by later test collections, so
+     * they must be written to the output directory of the collection.
+     */
+    @Override
+    public boolean supportsParallelTests() {
+        return false;
+    }
+
     @Override
     public int invokeCompiler(PolyglotSourceFileTest sft, List<String> cmdLine) {
         return javaCompiler.run(null, null, null, cmdLine.toArray(new String[cmdLine.size()]));
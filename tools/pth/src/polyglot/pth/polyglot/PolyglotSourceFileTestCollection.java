@@ -11,6 +11,7 @@ import polyglot.pth.SourceFileTestCollection;
 public class PolyglotSourceFileTestCollection extends SourceFileTestCollection {
 
     private static final String JAVAC = "javac";
+    private static final String JAVA = "java";
 
     public PolyglotSourceFileTestCollection(
             String testCommand,
@@ -32,7 +33,7 @@ public class PolyglotSourceFileTestCollection extends SourceFileTestCollection {
         List<String> args = super.buildCmdLine();
         String s;
 
-        if ((s = testCommand) != null && !s.equals(JAVAC)) {
+        if ((s = testCommand) != null && !s.equals(JAVAC) && !s.equals(JAVA)) {
             args.add("-extclass");
             args.add(testCommand);
         }
@@ -80,6 +81,9 @@ public class PolyglotSourceFileTestCollection extends SourceFileTestCollection {
             case "javac":
                 ptd = new JavaTestDriver(this);
                 break;
+            case "java":
+                ptd = new JavaMainTestDriver(this);
+                break;
             default:
                 ptd = new PolyglotTestDriver(this);
         }
@@ -3,6 +3,7 @@ package polyglot.pth.polyglot;
 import java.io.File;
 import java.util.List;
 
+import polyglot.main.CompilationSession;
 import polyglot.pth.AbstractTestDriver;
 import polyglot.pth.PDFReporter;
 import polyglot.pth.SourceFileTest;
@@ -63,6 +64,21 @@ public class PolyglotTestDriver extends AbstractTestDriver {
         return 0;
     }
 
+    @Override
+    public boolean supportsParallelTests() {
+        return true;
+    }
+
+    /**
+     * Run the compilers invoked on the worker thread in a compilation
+     * session of their own.
+     */
+    @Override
+    public Thread newWorkerThread(Runnable r) {
+        CompilationSession session = new CompilationSession();
+        return new Thread(() -> session.run(r));
+    }
+
     @Override
     public boolean preTest(SourceFileTestCollection sftc) {
         return true;